@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The shared state of all the benchmarks: an input and an output buffer of
+ * {@code size} bytes, either on the heap or in native memory.
+ * <p>
+ * Native buffers are allocated in a confined arena per trial, so that a
+ * {@code 64 MiB} run doesn't pile up garbage for the next one
+ *
+ * @author Sayantan Chakraborty
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "--add-modules", "jdk.incubator.vector"})
+public abstract class AbstractBenchmark {
+
+    public enum Memory {
+        HEAP, NATIVE
+    }
+
+    @Param({
+        "16", "64", "256", "1024", "4096", "16384", "65536",
+        "262144", "1048576", "4194304", "16777216", "67108864"
+    })
+    public int size;
+
+    @Param({"HEAP", "NATIVE"})
+    public Memory memory;
+
+    protected MemorySegment input, output;
+
+    protected final SplittableRandom random = new SplittableRandom(0x5eed);
+
+    private Arena arena;
+
+    @Setup(Level.Trial)
+    public void allocate() {
+        arena = Arena.ofConfined();
+        input = allocate(size);
+        output = allocate(size);
+        for (long i = 0; i < size; i += 8) {
+            long r = random.nextLong();
+            for (long j = i; j < Math.min(i + 8, size); j++) {
+                input.set(ValueLayout.JAVA_BYTE, j, (byte) r);
+                r >>>= 8;
+            }
+        }
+        setup();
+    }
+
+    @TearDown(Level.Trial)
+    public void release() {
+        input = output = null;
+        arena.close();
+    }
+
+    /**
+     * allocates a buffer of the given size in the configured kind of memory
+     */
+    protected MemorySegment allocate(long length) {
+        return switch (memory) {
+            case HEAP ->
+                MemorySegment.ofArray(new byte[Math.toIntExact(length)]);
+            case NATIVE ->
+                arena.allocate(length, 16);
+        };
+    }
+
+    protected byte[] randomBytes(int length) {
+        var ret = new byte[length];
+        random.nextBytes(ret);
+        return ret;
+    }
+
+    /**
+     * resolves the algorithm and any keys once the buffers are allocated
+     */
+    protected abstract void setup();
+
+    /**
+     * counts the bytes processed, so that the results can be read as
+     * throughput in bytes per second as well as in operations
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+
+        public long bytes;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            bytes = 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import java.lang.foreign.MemorySegment;
+import org.asterisk.crypto.SimpleAead;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Encrypts {@code size} bytes with every {@link SimpleAead} in
+ * {@link Algorithms#aeads()}, without associated data. The ciphertext buffer
+ * has one block of slack, as some of the modes expand the message.
+ * {@code encryptKeyed} does the same through {@link SimpleAead#withKey}, so
+ * the difference between the two is the cost of the key schedule
+ *
+ * @author Sayantan Chakraborty
+ */
+public class AeadBenchmark extends AbstractBenchmark {
+
+    private static final int SLACK = 64;
+
+    @Param({})
+    public String aead;
+
+    private SimpleAead algorithm;
+
+    private SimpleAead.Keyed keyed;
+
+    private byte[] key, iv, tag;
+
+    private MemorySegment ciphertext;
+
+    @Override
+    protected void setup() {
+        algorithm = Algorithms.aead(aead);
+        key = randomBytes(algorithm.keyLength());
+        iv = randomBytes(algorithm.ivLength());
+        tag = new byte[algorithm.tagLength()];
+        keyed = algorithm.withKey(key);
+        ciphertext = allocate(size + SLACK);
+    }
+
+    @Benchmark
+    public long encrypt(Bytes bytes) {
+        long written = algorithm.encrypt(key, iv, MemorySegment.NULL, input, ciphertext, tag, 0, tag.length);
+        bytes.bytes += size;
+        return written;
+    }
+
+    @Benchmark
+    public long encryptKeyed(Bytes bytes) {
+        long written = keyed.encrypt(iv, MemorySegment.NULL, input, ciphertext, tag, 0, tag.length);
+        bytes.bytes += size;
+        return written;
+    }
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import org.asterisk.crypto.Cipher;
+import org.asterisk.crypto.Digest;
+import org.asterisk.crypto.Mac;
+import org.asterisk.crypto.SimpleAead;
+import org.asterisk.crypto.aead.*;
+import org.asterisk.crypto.hash.*;
+import org.asterisk.crypto.mac.*;
+import org.asterisk.crypto.stream.*;
+
+/**
+ * The registry of every algorithm the benchmarks know about.
+ * <p>
+ * Enum constants and public static fields of the listed classes are picked up
+ * reflectively, so a new constant in any of them is benchmarked without
+ * touching this class. Algorithms that only exist through a factory method or
+ * a constructor are registered explicitly with the parameters that are
+ * normally used with them.
+ * <p>
+ * Every algorithm is keyed by a name of the form {@code Class.CONSTANT} or
+ * {@code Class.factory/argument}, which is what the benchmarks take as their
+ * parameter
+ *
+ * @author Sayantan Chakraborty
+ */
+public final class Algorithms {
+
+    private static final List<Class<?>> HASH_CLASSES = List.of(
+            Sha2.class, Sha3.class, Shake.class, Blake2b.class, Blake2s.class, Blake3.class,
+            Groestl.class, Jh.class, KangarooTwelve.class, MarsupilamiFourteen.class,
+            AsconHash.class, AsconXof.class
+    );
+
+    private static final List<Class<?>> MAC_CLASSES = List.of(
+            AesCmac.class, Kravatte.class, Poly1305.class, SipHash.class,
+            Blake2b.class, Blake2s.class, Blake3.class
+    );
+
+    private static final List<Class<?>> STREAM_CLASSES = List.of(
+            ChaCha.class, XChaCha.class, Salsa20.class, XSalsa20.class, Hc128.class, Hc256.class,
+            Rabbit.class, Snow3g.class, SnowV.class, Sosemanuk.class, Zuc.class, AesCtr.class
+    );
+
+    private static final List<Class<?>> AEAD_CLASSES = List.of(
+            Acorn.class, Aegis.class, AesCloc.class, AesGcm.class, AesJambu.class, AesOtr.class, AesSilc.class,
+            Ascon.class, ChaChaPoly1305.class, Colm0.class, DeoxysAE1.class, DeoxysAE2.class,
+            DeoxysI.class, DeoxysII.class, Ketje.class, Rocca.class, Tiaoxin.class
+    );
+
+    private static final Map<String, Digest> DIGESTS;
+    private static final Map<String, Mac> MACS;
+    private static final Map<String, Cipher> CIPHERS;
+    private static final Map<String, SimpleAead> AEADS;
+
+    static {
+        var digests = discover(HASH_CLASSES, Digest.class);
+        for (int bits : new int[]{256, 512}) {
+            digests.put("Skein.skein256/" + bits, Skein.skein256(bits));
+            digests.put("Skein.skein512/" + bits, Skein.skein512(bits));
+            digests.put("Skein.skein1024/" + bits, Skein.skein1024(bits));
+        }
+        digests.put("ParallelHash128/8192", new ParallelHash128("", 8192));
+        digests.put("ParallelHash256/8192", new ParallelHash256("", 8192));
+        DIGESTS = Collections.unmodifiableMap(digests);
+
+        var macs = discover(MAC_CLASSES, Mac.class);
+        macs.put("Skein.skein256/256", Skein.skein256(256));
+        macs.put("Skein.skein512/512", Skein.skein512(512));
+        macs.put("Skein.skein1024/1024", Skein.skein1024(1024));
+        for (var digest : digests.entrySet()) {
+            macs.put("Hmac.hmac/" + digest.getKey(), Hmac.hmac(digest.getValue()));
+        }
+        MACS = Collections.unmodifiableMap(macs);
+
+        CIPHERS = Collections.unmodifiableMap(discover(STREAM_CLASSES, Cipher.class));
+
+        var aeads = discover(AEAD_CLASSES, SimpleAead.class);
+        aeads.put("AesOcb.aes128_ocb/16", AesOcb.aes128_ocb(16));
+        aeads.put("AesOcb.aes192_ocb/16", AesOcb.aes192_ocb(16));
+        aeads.put("AesOcb.aes256_ocb/16", AesOcb.aes256_ocb(16));
+        for (int rounds : new int[]{4, 6}) {
+            for (int parallelism : new int[]{1, 4}) {
+                aeads.put("Norx32/" + rounds + "/" + parallelism, new Norx32(rounds, parallelism));
+                aeads.put("Norx64/" + rounds + "/" + parallelism, new Norx64(rounds, parallelism));
+            }
+        }
+        AEADS = Collections.unmodifiableMap(aeads);
+    }
+
+    private static <T> Map<String, T> discover(List<Class<?>> classes, Class<T> type) {
+        var ret = new LinkedHashMap<String, T>();
+        for (var clazz : classes) {
+            if (clazz.isEnum()) {
+                for (var constant : clazz.getEnumConstants()) {
+                    ret.put(clazz.getSimpleName() + "." + ((Enum<?>) constant).name(), type.cast(constant));
+                }
+                continue;
+            }
+            for (Field field : clazz.getFields()) {
+                int mod = field.getModifiers();
+                if (Modifier.isStatic(mod) && Modifier.isFinal(mod) && type.isAssignableFrom(field.getType())) {
+                    try {
+                        ret.put(clazz.getSimpleName() + "." + field.getName(), type.cast(field.get(null)));
+                    } catch (IllegalAccessException ex) {
+                        throw new IllegalStateException(ex);
+                    }
+                }
+            }
+        }
+        return ret;
+    }
+
+    private static <T> T lookup(Map<String, T> map, String name) {
+        var ret = map.get(name);
+        if (ret == null) {
+            throw new NoSuchElementException("Unknown algorithm " + name + ", known are " + map.keySet());
+        }
+        return ret;
+    }
+
+    public static Map<String, Digest> digests() {
+        return DIGESTS;
+    }
+
+    public static Map<String, Mac> macs() {
+        return MACS;
+    }
+
+    public static Map<String, Cipher> ciphers() {
+        return CIPHERS;
+    }
+
+    public static Map<String, SimpleAead> aeads() {
+        return AEADS;
+    }
+
+    public static Digest digest(String name) {
+        return lookup(DIGESTS, name);
+    }
+
+    public static Mac mac(String name) {
+        return lookup(MACS, name);
+    }
+
+    public static Cipher cipher(String name) {
+        return lookup(CIPHERS, name);
+    }
+
+    public static SimpleAead aead(String name) {
+        return lookup(AEADS, name);
+    }
+
+    private Algorithms() {
+    }
+
+}
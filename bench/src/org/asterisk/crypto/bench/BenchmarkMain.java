@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import java.io.File;
+import java.util.Map;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks with the usual JMH command line.
+ * <p>
+ * The algorithm parameters ({@code digest}, {@code mac}, {@code cipher} and
+ * {@code aead}) default to everything in {@link Algorithms}, unless given with
+ * {@code -p}. Results are written as JSON to the file named by the
+ * {@code jmh.result.file} system property unless {@code -rf}/{@code -rff} say
+ * otherwise
+ *
+ * @author Sayantan Chakraborty
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        var cmd = new CommandLineOptions(args);
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(cmd);
+
+        defaultParam(builder, cmd, "digest", Algorithms.digests());
+        defaultParam(builder, cmd, "mac", Algorithms.macs());
+        defaultParam(builder, cmd, "cipher", Algorithms.ciphers());
+        defaultParam(builder, cmd, "aead", Algorithms.aeads());
+
+        if (cmd.getResultFormat().hasValue() || cmd.getResult().hasValue()) {
+            new Runner(builder.build()).run();
+            return;
+        }
+        var result = new File(System.getProperty("jmh.result.file", "jmh-result.json"));
+        if (result.getParentFile() != null) {
+            result.getParentFile().mkdirs();
+        }
+        builder.resultFormat(ResultFormatType.JSON).result(result.getPath());
+        new Runner(builder.build()).run();
+    }
+
+    private static void defaultParam(ChainedOptionsBuilder builder, CommandLineOptions cmd, String name, Map<String, ?> algorithms) {
+        if (cmd.getParameter(name).hasValue()) {
+            return;
+        }
+        builder.param(name, algorithms.keySet().toArray(String[]::new));
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import javax.crypto.spec.ChaCha20ParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.asterisk.crypto.StreamCipher;
+import org.asterisk.crypto.stream.ChaCha;
+import org.asterisk.crypto.stream.XChaCha;
+
+/**
+ * Checks the vectorised ChaCha keystream against the scalar one, on enough
+ * long messages that the vector code is compiled by C2, whose code has
+ * differed from the interpreter's before. Segments backed by a
+ * {@code byte[]} take the vector path, segments backed by a {@code long[]}
+ * the scalar one. ChaCha20-IETF is also checked against the JDK's ChaCha20.
+ * <p>
+ * Run with {@code --add-modules jdk.incubator.vector}, otherwise both sides
+ * are scalar:
+ *
+ *   ant -f bench/build.xml check
+ *
+ * @author Sayantan Chakraborty
+ */
+public class ChaChaVectorCheck {
+
+    private static final int MESSAGES = 400, MAX_LENGTH = 256 * 1024;
+
+    public static void main(String[] args) throws GeneralSecurityException {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            System.out.println("jdk.incubator.vector is not present, only the scalar path is checked");
+        }
+
+        List<StreamCipher> ciphers = new ArrayList<>();
+        ciphers.addAll(List.of(ChaCha.values()));
+        ciphers.addAll(List.of(XChaCha.values()));
+
+        var random = new Random(args.length > 0 ? Long.parseLong(args[0]) : 1);
+        int failures = 0;
+        for (var cipher : ciphers) {
+            int bad = 0;
+            for (int i = 0; i < MESSAGES; i++) {
+                byte[] key = new byte[cipher.keyLength()], iv = new byte[cipher.ivLength()];
+                random.nextBytes(key);
+                random.nextBytes(iv);
+                byte[] plaintext = new byte[8 * random.nextInt(MAX_LENGTH / 8 + 1)];
+                random.nextBytes(plaintext);
+
+                byte[] vector = new byte[plaintext.length];
+                encrypt(cipher, key, iv, MemorySegment.ofArray(plaintext), MemorySegment.ofArray(vector));
+
+                long[] scalarIn = new long[plaintext.length / 8], scalarOut = new long[plaintext.length / 8];
+                MemorySegment.copy(plaintext, 0, MemorySegment.ofArray(scalarIn), ValueLayout.JAVA_BYTE, 0, plaintext.length);
+                encrypt(cipher, key, iv, MemorySegment.ofArray(scalarIn), MemorySegment.ofArray(scalarOut));
+                byte[] scalar = MemorySegment.ofArray(scalarOut).toArray(ValueLayout.JAVA_BYTE);
+
+                boolean ok = Arrays.equals(vector, scalar);
+                if (ok && cipher == ChaCha.CHACHA20_IETF) {
+                    var jdk = javax.crypto.Cipher.getInstance("ChaCha20");
+                    jdk.init(javax.crypto.Cipher.ENCRYPT_MODE, new SecretKeySpec(key, "ChaCha20"), new ChaCha20ParameterSpec(iv, 0));
+                    ok = Arrays.equals(vector, jdk.doFinal(plaintext));
+                }
+                if (!ok) {
+                    bad++;
+                }
+            }
+            System.out.println(cipher + ": " + (MESSAGES - bad) + "/" + MESSAGES + " messages match");
+            failures += bad;
+        }
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static void encrypt(StreamCipher cipher, byte[] key, byte[] iv, MemorySegment plaintext, MemorySegment ciphertext) {
+        var engine = cipher.startEncryption(key, iv);
+        long length = engine.encrypt(plaintext, ciphertext);
+        engine.finish(ciphertext.asSlice(length));
+    }
+
+}
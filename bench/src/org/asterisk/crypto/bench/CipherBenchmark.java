@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import org.asterisk.crypto.Cipher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Encrypts {@code size} bytes with every {@link Cipher} in
+ * {@link Algorithms#ciphers()}, including the key and iv setup
+ *
+ * @author Sayantan Chakraborty
+ */
+public class CipherBenchmark extends AbstractBenchmark {
+
+    @Param({})
+    public String cipher;
+
+    private Cipher algorithm;
+
+    private byte[] key, iv;
+
+    @Override
+    protected void setup() {
+        algorithm = Algorithms.cipher(cipher);
+        key = randomBytes(algorithm.keyLength());
+        iv = randomBytes(algorithm.ivLength());
+    }
+
+    @Benchmark
+    public long encrypt(Bytes bytes) {
+        var engine = algorithm.startEncryption(key, iv);
+        long written = engine.encrypt(input, output);
+        written += engine.finish(output.asSlice(written));
+        bytes.bytes += size;
+        return written;
+    }
+
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import org.asterisk.crypto.Digest;
+import org.asterisk.crypto.Xof;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Hashes {@code size} bytes with every {@link Digest} in
+ * {@link Algorithms#digests()}. {@link Xof}s squeeze their default digest size
+ *
+ * @author Sayantan Chakraborty
+ */
+public class DigestBenchmark extends AbstractBenchmark {
+
+    @Param({})
+    public String digest;
+
+    private Digest algorithm;
+
+    private byte[] out;
+
+    @Override
+    protected void setup() {
+        algorithm = Algorithms.digest(digest);
+        out = new byte[algorithm.digestSize()];
+    }
+
+    @Benchmark
+    public byte[] digest(Bytes bytes) {
+        var engine = algorithm.start();
+        engine.ingest(input);
+        engine.digestTo(out, 0);
+        bytes.bytes += size;
+        return out;
+    }
+
+}
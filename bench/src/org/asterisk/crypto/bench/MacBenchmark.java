@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.bench;
+
+import org.asterisk.crypto.Mac;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Authenticates {@code size} bytes with every {@link Mac} in
+ * {@link Algorithms#macs()}. {@code authenticate} includes the key setup,
+ * {@code authenticateKeyed} starts from a {@link Mac.Keyed} made once
+ *
+ * @author Sayantan Chakraborty
+ */
+public class MacBenchmark extends AbstractBenchmark {
+
+    @Param({})
+    public String mac;
+
+    private Mac algorithm;
+
+    private Mac.Keyed keyed;
+
+    private byte[] key, tag;
+
+    @Override
+    protected void setup() {
+        algorithm = Algorithms.mac(mac);
+        key = randomBytes(algorithm.keyLength());
+        tag = new byte[algorithm.tagLength()];
+        keyed = algorithm.keyed(key);
+    }
+
+    @Benchmark
+    public byte[] authenticate(Bytes bytes) {
+        var engine = algorithm.start(key);
+        engine.ingest(input);
+        engine.authenticateTo(tag, 0, tag.length);
+        bytes.bytes += size;
+        return tag;
+    }
+
+    @Benchmark
+    public byte[] authenticateKeyed(Bytes bytes) {
+        var engine = keyed.start();
+        engine.ingest(input);
+        engine.authenticateTo(tag, 0, tag.length);
+        bytes.bytes += size;
+        return tag;
+    }
+
+}
@@ -4,6 +4,8 @@
  */
 
 module org.asterisk.crypto {
+    requires static jdk.incubator.vector;
+
     exports org.asterisk.crypto;
     exports org.asterisk.crypto.aead;
     exports org.asterisk.crypto.hash;
@@ -4,9 +4,12 @@
  */
 package org.asterisk.crypto;
 
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
 import javax.crypto.AEADBadTagException;
+import org.asterisk.crypto.helper.Tools;
 
 /**
  *
@@ -41,6 +44,92 @@ public interface AuthenticatedCipher extends SimpleAead {
 
     DecryptEngine startDecryption(byte[] key, byte[] iv);
 
+    /**
+     * starts a new encryption engine whose buffers are allocated in the given
+     * {@code Arena}, so that the engine can only be used while the arena is
+     * alive
+     */
+    default EncryptEngine startEncryption(byte[] key, byte[] iv, Arena arena) {
+        return Tools.inArena(arena, () -> startEncryption(key, iv));
+    }
+
+    /**
+     * starts a new decryption engine whose buffers are allocated in the given
+     * {@code Arena}, so that the engine can only be used while the arena is
+     * alive
+     */
+    default DecryptEngine startDecryption(byte[] key, byte[] iv, Arena arena) {
+        return Tools.inArena(arena, () -> startDecryption(key, iv));
+    }
+
+    @Override
+    default Keyed withKey(byte[] key) {
+        var copy = key.clone();
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return AuthenticatedCipher.this.startEncryption(copy, iv);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return AuthenticatedCipher.this.startDecryption(copy, iv);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AuthenticatedCipher.this;
+            }
+        };
+    }
+
+    /**
+     * an {@code AuthenticatedCipher} bound to a key. Starting an engine from
+     * here only does the per-message work, and each engine is independent, so
+     * engines can be started from multiple threads at once
+     */
+    static interface Keyed extends SimpleAead.Keyed {
+
+        EncryptEngine startEncryption(byte[] iv);
+
+        DecryptEngine startDecryption(byte[] iv);
+
+        default EncryptEngine startEncryption(byte[] iv, Arena arena) {
+            return Tools.inArena(arena, () -> startEncryption(iv));
+        }
+
+        default DecryptEngine startDecryption(byte[] iv, Arena arena) {
+            return Tools.inArena(arena, () -> startDecryption(iv));
+        }
+
+        @Override
+        default long encrypt(byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+            var encrypter = startEncryption(iv);
+            encrypter.ingestAAD(aad);
+            var offset = encrypter.encrypt(plaintext, ciphertext);
+            offset += encrypter.finish(ciphertext.asSlice(offset));
+            encrypter.authenticate(tag, tOffset, tLength);
+            return offset;
+        }
+
+        @Override
+        default long decrypt(byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+            var decrypter = startDecryption(iv);
+            decrypter.ingestAAD(aad);
+            var offset = decrypter.decrypt(ciphertext, plaintext);
+            offset += decrypter.finish(plaintext.asSlice(offset));
+            if (!decrypter.verify(tag, tOffset, tLength)) {
+                plaintext.asSlice(0, offset).fill((byte) 0);
+                throw new AEADBadTagException();
+            }
+            return offset;
+        }
+
+        @Override
+        AuthenticatedCipher getAlgorithm();
+
+    }
+
     /**
      * The normal control flow is (ingestAAD)* (encrypt)* finish authenticate
      * <p>
@@ -97,6 +186,16 @@ public interface AuthenticatedCipher extends SimpleAead {
             authenticate(tag, 0, Math.min(tag.length, getAlgorithm().tagLength()));
         }
 
+        /**
+         * writes the tag to {@code tag}, truncated to the size of the segment
+         * if it is shorter than the tag length of the algorithm
+         */
+        default void authenticate(MemorySegment tag) {
+            var temp = new byte[(int) Math.min(tag.byteSize(), getAlgorithm().tagLength())];
+            authenticate(temp);
+            MemorySegment.copy(temp, 0, tag, ValueLayout.JAVA_BYTE, 0, temp.length);
+        }
+
         AuthenticatedCipher getAlgorithm();
 
     }
@@ -161,6 +260,16 @@ public interface AuthenticatedCipher extends SimpleAead {
             return verify(tag, 0, Math.min(tag.length, getAlgorithm().tagLength()));
         }
 
+        /**
+         * checks the tag in {@code tag}, truncated to the size of the segment
+         * if it is longer than the tag length of the algorithm
+         */
+        default boolean verify(MemorySegment tag) {
+            var temp = new byte[(int) Math.min(tag.byteSize(), getAlgorithm().tagLength())];
+            MemorySegment.copy(tag, ValueLayout.JAVA_BYTE, 0, temp, 0, temp.length);
+            return verify(temp);
+        }
+
         AuthenticatedCipher getAlgorithm();
 
     }
@@ -4,7 +4,9 @@
  */
 package org.asterisk.crypto;
 
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import org.asterisk.crypto.helper.Tools;
 
 /**
  *
@@ -16,6 +18,24 @@ public interface Cipher {
 
     DecryptEngine startDecryption(byte[] key, byte[] iv);
 
+    /**
+     * starts a new encryption engine whose buffers are allocated in the given
+     * {@code Arena}, so that the engine can only be used while the arena is
+     * alive
+     */
+    default EncryptEngine startEncryption(byte[] key, byte[] iv, Arena arena) {
+        return Tools.inArena(arena, () -> startEncryption(key, iv));
+    }
+
+    /**
+     * starts a new decryption engine whose buffers are allocated in the given
+     * {@code Arena}, so that the engine can only be used while the arena is
+     * alive
+     */
+    default DecryptEngine startDecryption(byte[] key, byte[] iv, Arena arena) {
+        return Tools.inArena(arena, () -> startDecryption(key, iv));
+    }
+
     int keyLength();
 
     int ivLength();
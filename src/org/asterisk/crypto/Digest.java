@@ -7,12 +7,14 @@ package org.asterisk.crypto;
 import java.io.IOException;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.Objects;
+import org.asterisk.crypto.helper.Tools;
 
 /**
  *
@@ -28,6 +30,60 @@ public interface Digest {
 
     Engine start();
 
+    /**
+     * starts a new engine whose buffers are allocated in the given
+     * {@code Arena}, so that the engine can only be used while the arena is
+     * alive
+     */
+    default Engine start(Arena arena) {
+        return Tools.inArena(arena, this::start);
+    }
+
+    /**
+     * starts a new engine from a state exported by
+     * {@link Engine#exportState()}, which continues exactly where the
+     * exporting engine was. The exporting engine may have been in a different
+     * process
+     *
+     * @param state the exported state
+     *
+     * @throws IllegalArgumentException      if the state is malformed, of an
+     *                                       unsupported version or exported
+     *                                       from a different algorithm
+     * @throws UnsupportedOperationException if this algorithm can't resume
+     *                                       engines
+     */
+    default Engine resume(byte[] state) {
+        throw new UnsupportedOperationException(this + " engines can't be resumed");
+    }
+
+    /**
+     * digests every message in {@code inputs} independently, writing the
+     * digest of {@code inputs[i]} to {@code output} at offset
+     * {@code i * digestSize()}. Algorithms that can hash several messages at
+     * once override this, so many small messages should be hashed through it
+     *
+     * @implSpec this implementation digests the messages one after the other
+     * with a single engine
+     *
+     * @param inputs the messages
+     * @param output where the digests are written, at least
+     *               {@code inputs.length * digestSize()} bytes
+     *
+     * @throws IndexOutOfBoundsException if {@code output} is too small for
+     *                                   all the digests
+     */
+    default void digestAll(MemorySegment[] inputs, MemorySegment output) {
+        int digestSize = digestSize();
+        Objects.checkFromIndexSize(0, (long) inputs.length * digestSize, output.byteSize());
+        var engine = start();
+        for (int i = 0; i < inputs.length; i++) {
+            engine.ingest(inputs[i]);
+            engine.digestTo(output.asSlice((long) i * digestSize, digestSize));
+            engine.reset();
+        }
+    }
+
     int digestSize();
 
     int blockSize();
@@ -93,12 +149,67 @@ public interface Digest {
             digestTo(dest, 0);
         }
 
+        /**
+         * writes the digest to the start of {@code dest}, which must have
+         * space for at least {@link Digest#digestSize() digestSize} bytes.
+         * Unlike {@link #digest()} this doesn't need to allocate, so digests
+         * can be written straight into off-heap buffers
+         *
+         * @implSpec this implementation digests into a temporary array and
+         * copies it to {@code dest}
+         */
+        default void digestTo(MemorySegment dest) {
+            var digest = digest();
+            MemorySegment.copy(digest, 0, dest, ValueLayout.JAVA_BYTE, 0, digest.length);
+        }
+
         default byte[] digest() {
             byte[] digest = new byte[getAlgorithm().digestSize()];
             digestTo(digest);
             return digest;
         }
 
+        /**
+         * resets this engine to the state it was in when returned by
+         * {@link Digest#start()}, so that it can be used for a new message
+         * without allocating a new engine. This can be called at any point,
+         * including in the middle of a message or after digesting
+         */
+        void reset();
+
+        /**
+         * returns an independent engine in exactly the same state as this one,
+         * so that a common prefix can be ingested once and then finished in
+         * multiple ways. Resetting the copy takes it back to the start of a
+         * new message, not to the point where it was copied
+         *
+         * @throws UnsupportedOperationException if this engine can't be copied
+         */
+        default Engine copy() {
+            throw new UnsupportedOperationException(getAlgorithm() + " engines can't be copied");
+        }
+
+        /**
+         * exports the state of this engine to a compact, versioned byte
+         * format, from which {@link Digest#resume(byte[])} can continue. The
+         * state contains the buffered input, so it must be protected like the
+         * message itself. This engine is not modified
+         * <p>
+         * Engines backed by the JDK, such as those started by
+         * {@link org.asterisk.crypto.hash.Sha2#start()} when it is available,
+         * can't be exported. Use
+         * {@link org.asterisk.crypto.hash.Sha2#startExportable()} for engines
+         * that will be
+         *
+         * @throws IllegalStateException         if the engine has already
+         *                                       started digesting
+         * @throws UnsupportedOperationException if the state of this engine
+         *                                       can't be exported
+         */
+        default byte[] exportState() {
+            throw new UnsupportedOperationException(getAlgorithm() + " engines can't export their state");
+        }
+
         Digest getAlgorithm();
 
     }
@@ -4,7 +4,9 @@
  */
 package org.asterisk.crypto;
 
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
 import org.asterisk.crypto.helper.Tools;
 
@@ -16,10 +18,55 @@ public interface Mac {
 
     Engine start(byte[] key);
 
+    /**
+     * starts a new engine whose buffers are allocated in the given
+     * {@code Arena}, so that the engine can only be used while the arena is
+     * alive
+     */
+    default Engine start(byte[] key, Arena arena) {
+        return Tools.inArena(arena, () -> start(key));
+    }
+
+    /**
+     * binds this algorithm to a key, so that all key dependent setup is done
+     * only once and not for every message. The returned object is immutable
+     * and can be shared between threads
+     */
+    default Keyed keyed(byte[] key) {
+        var copy = key.clone();
+        return new Keyed() {
+            @Override
+            public Engine start() {
+                return Mac.this.start(copy);
+            }
+
+            @Override
+            public Mac getAlgorithm() {
+                return Mac.this;
+            }
+        };
+    }
+
     int tagLength();
 
     int keyLength();
 
+    /**
+     * a {@code Mac} bound to a key. Every engine started from here is
+     * independent, so engines can be started from multiple threads at once
+     */
+    static interface Keyed {
+
+        Engine start();
+
+        default Engine start(Arena arena) {
+            return Tools.inArena(arena, this::start);
+        }
+
+        Mac getAlgorithm();
+
+    }
+
     static interface Engine {
 
         void ingest(MemorySegment input);
@@ -46,6 +93,18 @@ public interface Mac {
             authenticateTo(tag, 0);
         }
 
+        /**
+         * writes the tag to {@code tag}, truncated to the size of the segment
+         * if it is shorter than {@link Mac#tagLength() tagLength}
+         *
+         * @implSpec this implementation authenticates into a temporary array
+         * and copies it to {@code tag}
+         */
+        default void authenticateTo(MemorySegment tag) {
+            var temp = authenticate((int) Math.min(getAlgorithm().tagLength(), tag.byteSize()));
+            MemorySegment.copy(temp, 0, tag, ValueLayout.JAVA_BYTE, 0, temp.length);
+        }
+
         default byte[] authenticate(int length) {
             byte[] ret = new byte[length];
             authenticateTo(ret, 0, length);
@@ -70,6 +129,46 @@ public interface Mac {
             return verify(tag, 0);
         }
 
+        /**
+         * checks the tag in {@code tag} in constant time, truncated to the
+         * size of the segment if it is shorter than
+         * {@link Mac#tagLength() tagLength}
+         */
+        default boolean verify(MemorySegment tag) {
+            var temp = authenticate((int) Math.min(getAlgorithm().tagLength(), tag.byteSize()));
+            return Tools.equals(temp, 0, tag, 0, temp.length);
+        }
+
+        /**
+         * resets this engine to the state it was in when returned by
+         * {@link Mac#start(byte[])}, keeping the same key. This can be called at
+         * any point, including in the middle of a message or after
+         * authenticating
+         */
+        void reset();
+
+        /**
+         * resets this engine to the state it would be in when returned by
+         * {@link Mac#start(byte[])} with the given key
+         *
+         * @param key the new key
+         *
+         * @throws IllegalArgumentException if the key is not valid for the
+         *                                  algorithm
+         */
+        void reset(byte[] key);
+
+        /**
+         * returns an independent engine with the same key and in exactly the
+         * same state as this one, so that a common prefix can be ingested once
+         * and then authenticated with multiple suffixes
+         *
+         * @throws UnsupportedOperationException if this engine can't be copied
+         */
+        default Engine copy() {
+            throw new UnsupportedOperationException(getAlgorithm() + " engines can't be copied");
+        }
+
         Mac getAlgorithm();
 
     }
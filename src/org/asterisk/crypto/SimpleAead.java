@@ -44,4 +44,47 @@ public interface SimpleAead {
 
     int tagLength();
 
+    /**
+     * binds this algorithm to a key, so that all key dependent setup is done
+     * only once and not for every message. The returned object is immutable
+     * and can be shared between threads
+     */
+    default Keyed withKey(byte[] key) {
+        var copy = key.clone();
+        return new Keyed() {
+            @Override
+            public long encrypt(byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+                return SimpleAead.this.encrypt(copy, iv, aad, plaintext, ciphertext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public long decrypt(byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+                return SimpleAead.this.decrypt(copy, iv, aad, ciphertext, plaintext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public SimpleAead getAlgorithm() {
+                return SimpleAead.this;
+            }
+        };
+    }
+
+    static interface Keyed {
+
+        default int encrypt(byte[] iv, byte[] aad, byte[] plaintext, byte[] ciphertext, byte[] tag) {
+            return (int) encrypt(iv, MemorySegment.ofArray(aad), MemorySegment.ofArray(plaintext), MemorySegment.ofArray(ciphertext), tag, 0, getAlgorithm().tagLength());
+        }
+
+        default int decrypt(byte[] iv, byte[] aad, byte[] ciphertext, byte[] plaintext, byte[] tag) throws AEADBadTagException {
+            return (int) decrypt(iv, MemorySegment.ofArray(aad), MemorySegment.ofArray(ciphertext), MemorySegment.ofArray(plaintext), tag, 0, getAlgorithm().tagLength());
+        }
+
+        long encrypt(byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength);
+
+        long decrypt(byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException;
+
+        SimpleAead getAlgorithm();
+
+    }
+
 }
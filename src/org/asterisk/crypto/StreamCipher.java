@@ -33,4 +33,25 @@ public interface StreamCipher extends Cipher {
         };
     }
 
+    /**
+     * an engine that can start anywhere in its keystream, as counter based
+     * ciphers compute every block from its index alone. Decrypting is the
+     * same operation, so a seekable encryption engine also decrypts any range
+     * of a message
+     */
+    static interface SeekableEngine extends EncryptEngine {
+
+        /**
+         * moves to byte {@code offset} of the keystream, so that the next
+         * byte passed in is encrypted as byte {@code offset} of the message.
+         * Input held back for an incomplete block is dropped
+         *
+         * @param offset the offset from the start of the message, in bytes
+         *
+         * @throws IllegalArgumentException if {@code offset} is negative
+         */
+        void seek(long offset);
+
+    }
+
 }
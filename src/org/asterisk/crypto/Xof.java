@@ -4,6 +4,11 @@
  */
 package org.asterisk.crypto;
 
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import org.asterisk.crypto.helper.Tools;
+
 /**
  *
  * @author Sayantan Chakraborty
@@ -13,18 +18,50 @@ public interface Xof extends Digest {
     @Override
     Engine start();
 
+    @Override
+    default Engine start(Arena arena) {
+        return Tools.inArena(arena, this::start);
+    }
+
+    @Override
+    default Engine resume(byte[] state) {
+        throw new UnsupportedOperationException(this + " engines can't be resumed");
+    }
+
     static interface Engine extends Digest.Engine {
 
         void startDigesting();
 
         void continueDigesting(byte[] dest, int offset, int length);
 
+        /**
+         * fills {@code dest} with the next {@code dest.byteSize()} bytes of
+         * output
+         *
+         * @implSpec this implementation squeezes into a temporary array and
+         * copies it to {@code dest}
+         */
+        default void continueDigesting(MemorySegment dest) {
+            var temp = new byte[(int) Math.min(dest.byteSize(), 1 << 16)];
+            for (long offset = 0; offset < dest.byteSize(); offset += temp.length) {
+                int length = (int) Math.min(temp.length, dest.byteSize() - offset);
+                continueDigesting(temp, 0, length);
+                MemorySegment.copy(temp, 0, dest, ValueLayout.JAVA_BYTE, offset, length);
+            }
+        }
+
         @Override
         default void digestTo(byte[] dest, int offset) {
             startDigesting();
             continueDigesting(dest, offset, getAlgorithm().digestSize());
         }
 
+        @Override
+        default void digestTo(MemorySegment dest) {
+            startDigesting();
+            continueDigesting(dest.asSlice(0, getAlgorithm().digestSize()));
+        }
+
         default byte[] digest(int length) {
             var digest = new byte[length];
             startDigesting();
@@ -32,6 +69,11 @@ public interface Xof extends Digest {
             return digest;
         }
 
+        @Override
+        default Engine copy() {
+            throw new UnsupportedOperationException(getAlgorithm() + " engines can't be copied");
+        }
+
         @Override
         Xof getAlgorithm();
 
@@ -67,9 +67,37 @@ public enum AesCloc implements AuthenticatedCipher {
 
     @Override
     public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-        return new AbstractAuthenticaterEngine(16) {
+        return encrypter(AesEncApi.aes128(key), iv);
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(AesEncApi.aes128(key), iv);
+    }
 
-            private final AesEncApi.Aes128EncApi aes = new AesEncApi.Aes128EncApi(key);
+    @Override
+    public Keyed withKey(byte[] key) {
+        var aes = AesEncApi.aes128(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(aes.copy(), iv);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(aes.copy(), iv);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesCloc.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(AesEncApi aes, byte[] iv) {
+        return new AbstractAuthenticaterEngine(16) {
 
             private final int[] state = new int[4], checksum = new int[4];
 
@@ -200,12 +228,9 @@ public enum AesCloc implements AuthenticatedCipher {
         };
     }
 
-    @Override
-    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+    private DecryptEngine decrypter(AesEncApi aes, byte[] iv) {
         return new AbstractVerifierEngine(16) {
 
-            private final AesEncApi.Aes128EncApi aes = new AesEncApi.Aes128EncApi(key);
-
             private final int[] state = new int[4], checksum = new int[4], data = new int[4];
 
             private final int[] storednonce = {
@@ -0,0 +1,366 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.aead;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.function.Function;
+import org.asterisk.crypto.AuthenticatedCipher;
+import org.asterisk.crypto.helper.AbstractAuthenticaterEngine;
+import org.asterisk.crypto.helper.AbstractVerifierEngine;
+import org.asterisk.crypto.helper.Tools;
+import org.asterisk.crypto.lowlevel.AesEncApi;
+import org.asterisk.crypto.lowlevel.Ghash;
+
+/**
+ * AES-GCM as in NIST SP 800-38D. Any non-empty iv is accepted, 12 byte ivs
+ * are used directly as the counter and longer or shorter ones are hashed.
+ * Tags can be truncated by asking for fewer bytes when authenticating or
+ * verifying
+ *
+ * @author Sayantan Chakraborty
+ */
+public enum AesGcm implements AuthenticatedCipher {
+
+    AES_128_GCM(16, AesEncApi::aes128),
+    AES_192_GCM(24, AesEncApi::aes192),
+    AES_256_GCM(32, AesEncApi::aes256);
+
+    private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
+
+    /**
+     * the number of counter blocks passed to the block cipher at a time
+     */
+    private static final int CHUNK_BLOCKS = 32;
+
+    /**
+     * the counter is 32 bits and its first two values are taken, one for the
+     * tag and one unused
+     */
+    private static final long MAX_MESSAGE_LENGTH = ((1L << 32) - 2) * 16;
+
+    private final int keyLength;
+    private final Function<byte[], AesEncApi> constructor;
+
+    private AesGcm(int keyLength, Function<byte[], AesEncApi> constructor) {
+        this.keyLength = keyLength;
+        this.constructor = constructor;
+    }
+
+    /**
+     * the block cipher and the GHASH tables of a key, neither of which is
+     * modified once computed
+     */
+    private final class Keys {
+
+        private final AesEncApi aes;
+        private final Ghash ghash;
+
+        private Keys(byte[] key) {
+            aes = constructor.apply(key);
+            int[] h = new int[4];
+            aes.encryptBlock(h, 0, h, 0);
+            ghash = new Ghash(pack(h[0], h[1]), pack(h[2], h[3]));
+        }
+
+    }
+
+    private static long pack(int hi, int lo) {
+        return (long) hi << 32 | (lo & 0xffffffffL);
+    }
+
+    /**
+     * the per message state, the same in both directions apart from whether
+     * the input or the output is hashed
+     */
+    private static final class Gcm {
+
+        private final AesEncApi aes;
+        private final Ghash ghash;
+
+        private final long[] hash = new long[2];
+        private final int[] counters = new int[4 * CHUNK_BLOCKS], keystream = new int[4 * CHUNK_BLOCKS], tagMask = new int[4];
+
+        private int counter;
+        private long aadLength = 0, msgLength = 0;
+
+        private Gcm(Keys keys, byte[] iv) {
+            aes = keys.aes.copy();
+            ghash = keys.ghash;
+
+            int[] j0;
+            if (iv.length == 12) {
+                j0 = new int[]{Tools.load32BE(iv, 0), Tools.load32BE(iv, 4), Tools.load32BE(iv, 8), 1};
+            } else if (iv.length > 0) {
+                var segment = MemorySegment.ofArray(iv);
+                ghash.ingest(hash, segment, 0, iv.length / 16);
+                if (iv.length % 16 != 0) {
+                    byte[] last = new byte[16];
+                    System.arraycopy(iv, iv.length & -16, last, 0, iv.length % 16);
+                    ghash.ingest(hash, MemorySegment.ofArray(last), 0, 1);
+                }
+                ghash.ingest(hash, 0, 8L * iv.length);
+                j0 = new int[]{(int) (hash[0] >>> 32), (int) hash[0], (int) (hash[1] >>> 32), (int) hash[1]};
+                hash[0] = hash[1] = 0;
+            } else {
+                throw new IllegalArgumentException("AES-GCM requires a non-empty iv");
+            }
+
+            aes.encryptBlock(j0, 0, tagMask, 0);
+            counter = j0[3];
+            for (int i = 0; i < 4 * CHUNK_BLOCKS; i += 4) {
+                counters[i] = j0[0];
+                counters[i + 1] = j0[1];
+                counters[i + 2] = j0[2];
+            }
+        }
+
+        private void ingestAAD(MemorySegment aad, long offset, long blocks) {
+            ghash.ingest(hash, aad, offset, blocks);
+            aadLength += 16 * blocks;
+        }
+
+        private void ingestLastAAD(MemorySegment buffer, int length) {
+            if (length > 0) {
+                buffer.asSlice(length).fill((byte) 0);
+                ghash.ingest(hash, buffer, 0, 1);
+                aadLength += length;
+            }
+        }
+
+        private void generateKeystream(int blocks) {
+            for (int i = 0; i < blocks; i++) {
+                counters[4 * i + 3] = ++counter;
+            }
+            aes.encryptBlocks(counters, 0, keystream, 0, blocks);
+        }
+
+        private void countMessage(long length) {
+            msgLength += length;
+            if (msgLength > MAX_MESSAGE_LENGTH) {
+                throw new IllegalStateException("AES-GCM can process at most 2^36 - 32 bytes per iv");
+            }
+        }
+
+        /**
+         * encrypts or decrypts whole blocks, hashing the ciphertext
+         */
+        private void crypt(MemorySegment input, long iOffset, MemorySegment output, long oOffset, long blocks, boolean encrypting) {
+            countMessage(16 * blocks);
+            while (blocks > 0) {
+                int n = (int) Math.min(blocks, CHUNK_BLOCKS);
+                if (!encrypting) {
+                    ghash.ingest(hash, input, iOffset, n);
+                }
+                generateKeystream(n);
+                for (int i = 0; i < 4 * n; i++) {
+                    output.set(LAYOUT, oOffset + 4 * i, input.get(LAYOUT, iOffset + 4 * i) ^ keystream[i]);
+                }
+                if (encrypting) {
+                    ghash.ingest(hash, output, oOffset, n);
+                }
+                iOffset += 16 * n;
+                oOffset += 16 * n;
+                blocks -= n;
+            }
+        }
+
+        /**
+         * encrypts or decrypts the last {@code length} bytes in
+         * {@code buffer}, which may be a whole block
+         */
+        private int cryptLast(MemorySegment buffer, int length, MemorySegment output, boolean encrypting) {
+            if (length > 0) {
+                countMessage(length);
+                if (!encrypting) {
+                    buffer.asSlice(length).fill((byte) 0);
+                    ghash.ingest(hash, buffer, 0, 1);
+                }
+                generateKeystream(1);
+                for (int i = 0; i < 4; i++) {
+                    buffer.set(LAYOUT, 4 * i, buffer.get(LAYOUT, 4 * i) ^ keystream[i]);
+                }
+                MemorySegment.copy(buffer, 0, output, 0, length);
+                if (encrypting) {
+                    buffer.asSlice(length).fill((byte) 0);
+                    ghash.ingest(hash, buffer, 0, 1);
+                }
+            }
+            return length;
+        }
+
+        private void finish() {
+            ghash.ingest(hash, 8 * aadLength, 8 * msgLength);
+        }
+
+        private void tag(byte[] dest) {
+            Tools.store64BE(hash[0] ^ pack(tagMask[0], tagMask[1]), dest, 0);
+            Tools.store64BE(hash[1] ^ pack(tagMask[2], tagMask[3]), dest, 8);
+        }
+
+    }
+
+    @Override
+    public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(new Keys(key), iv);
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(new Keys(key), iv);
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        var keys = new Keys(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(keys, iv);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(keys, iv);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesGcm.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(Keys keys, byte[] iv) {
+        var gcm = new Gcm(keys, iv);
+        return new AbstractAuthenticaterEngine(16) {
+
+            @Override
+            protected void ingestOneBlock(MemorySegment aad, long offset) {
+                gcm.ingestAAD(aad, offset, 1);
+            }
+
+            @Override
+            protected void ingestBlocks(MemorySegment aad, long offset, long blocks) {
+                gcm.ingestAAD(aad, offset, blocks);
+            }
+
+            @Override
+            protected void ingestLastBlock(MemorySegment aad, int length) {
+                gcm.ingestLastAAD(aad, length);
+            }
+
+            @Override
+            protected void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset) {
+                gcm.crypt(plaintext, pOffset, ciphertext, cOffset, 1, true);
+            }
+
+            @Override
+            protected void encryptBlocks(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                gcm.crypt(plaintext, pOffset, ciphertext, cOffset, blocks, true);
+            }
+
+            @Override
+            protected int encryptLastBlock(MemorySegment buffer, int length, MemorySegment ciphertext) {
+                return gcm.cryptLast(buffer, length, ciphertext, true);
+            }
+
+            @Override
+            protected void finalizeState() {
+                gcm.finish();
+            }
+
+            @Override
+            protected void generateTag(byte[] dest) {
+                gcm.tag(dest);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesGcm.this;
+            }
+        };
+    }
+
+    private DecryptEngine decrypter(Keys keys, byte[] iv) {
+        var gcm = new Gcm(keys, iv);
+        return new AbstractVerifierEngine(16) {
+
+            @Override
+            protected void ingestOneBlock(MemorySegment aad, long offset) {
+                gcm.ingestAAD(aad, offset, 1);
+            }
+
+            @Override
+            protected void ingestBlocks(MemorySegment aad, long offset, long blocks) {
+                gcm.ingestAAD(aad, offset, blocks);
+            }
+
+            @Override
+            protected void ingestLastBlock(MemorySegment aad, int length) {
+                gcm.ingestLastAAD(aad, length);
+            }
+
+            @Override
+            protected void decryptOneBlock(MemorySegment ciphertext, long cOffset, MemorySegment plaintext, long pOffset) {
+                gcm.crypt(ciphertext, cOffset, plaintext, pOffset, 1, false);
+            }
+
+            @Override
+            protected void decryptBlocks(MemorySegment ciphertext, long cOffset, MemorySegment plaintext, long pOffset, long blocks) {
+                gcm.crypt(ciphertext, cOffset, plaintext, pOffset, blocks, false);
+            }
+
+            @Override
+            protected int decryptLastBlock(MemorySegment buffer, int length, MemorySegment plaintext) {
+                return gcm.cryptLast(buffer, length, plaintext, false);
+            }
+
+            @Override
+            protected void finalizeState() {
+                gcm.finish();
+            }
+
+            @Override
+            protected void generateTag(byte[] dest) {
+                gcm.tag(dest);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesGcm.this;
+            }
+        };
+    }
+
+    @Override
+    public int keyLength() {
+        return keyLength;
+    }
+
+    @Override
+    public int ivLength() {
+        return 12;
+    }
+
+    @Override
+    public int tagLength() {
+        return 16;
+    }
+
+}
@@ -24,13 +24,41 @@ public enum AesJambu implements AuthenticatedCipher {
 
     @Override
     public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(AesEncApi.aes128(key), iv);
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(AesEncApi.aes128(key), iv);
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        var aes = AesEncApi.aes128(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(aes.copy(), iv);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(aes.copy(), iv);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesJambu.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(AesEncApi aes, byte[] iv) {
         return new AbstractAuthenticaterEngine(8) {
 
             private final int[] state;
             private int r0, r1;
 
-            private final AesEncApi.Aes128EncApi aes = new AesEncApi.Aes128EncApi(key);
-
             {
                 state = new int[]{
                     0, 0, Tools.load32BE(iv, 0), Tools.load32BE(iv, 4)
@@ -125,15 +153,12 @@ public enum AesJambu implements AuthenticatedCipher {
         };
     }
 
-    @Override
-    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+    private DecryptEngine decrypter(AesEncApi aes, byte[] iv) {
         return new AbstractVerifierEngine(8) {
 
             private final int[] state;
             private int r0, r1;
 
-            private final AesEncApi.Aes128EncApi aes = new AesEncApi.Aes128EncApi(key);
-
             {
                 state = new int[]{
                     0, 0, Tools.load32BE(iv, 0), Tools.load32BE(iv, 4)
@@ -5,6 +5,9 @@
 package org.asterisk.crypto.aead;
 
 import java.lang.foreign.MemorySegment;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Function;
 import java.util.stream.Stream;
 import org.asterisk.crypto.Tested;
@@ -15,9 +18,6 @@ import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.AuthenticatedCipher;
 import org.asterisk.crypto.lowlevel.AesDecApi;
 import org.asterisk.crypto.lowlevel.AesEncApi;
-import org.asterisk.crypto.lowlevel.AesEncApi.Aes128EncApi;
-import org.asterisk.crypto.lowlevel.AesEncApi.Aes192EncApi;
-import org.asterisk.crypto.lowlevel.AesEncApi.Aes256EncApi;
 
 import static org.asterisk.crypto.helper.Tools.BIG_ENDIAN_32_BIT;
 
@@ -29,19 +29,31 @@ public class AesOcb implements AuthenticatedCipher {
 
     @Tested
     public static AesOcb aes128_ocb(int taglen) {
-        return new AesOcb(Aes128EncApi::new, 16, taglen);
+        return new AesOcb(AesEncApi::aes128, 16, taglen);
     }
 
     @Tested
     public static AesOcb aes192_ocb(int taglen) {
-        return new AesOcb(Aes192EncApi::new, 24, taglen);
+        return new AesOcb(AesEncApi::aes192, 24, taglen);
     }
 
     @Tested
     public static AesOcb aes256_ocb(int taglen) {
-        return new AesOcb(Aes256EncApi::new, 32, taglen);
+        return new AesOcb(AesEncApi::aes256, 32, taglen);
     }
 
+    /**
+     * the number of blocks whose offsets are computed ahead and passed to the
+     * block cipher at a time
+     */
+    private static final int CHUNK_BLOCKS = 32;
+
+    /**
+     * with a pool, runs of at least {@code PARALLEL_BLOCKS} message blocks
+     * are split in tasks of at most {@code TASK_BLOCKS} blocks
+     */
+    private static final long PARALLEL_BLOCKS = 1 << 14, TASK_BLOCKS = 1 << 12;
+
     private static int[] ocbDouble(int[] src) {
         int[] ret = new int[4];
         GfHelper.x2(src, ret);
@@ -57,6 +69,26 @@ public class AesOcb implements AuthenticatedCipher {
         this.tagLength = tagLength;
     }
 
+    /**
+     * the key dependent part of OCB: the block cipher and the L table, none of
+     * which are modified once computed
+     */
+    private final class Keys {
+
+        private final AesEncApi engine;
+
+        private final int[] lStar = new int[4], lDollar;
+        private final int[][] lValues;
+
+        private Keys(byte[] key) {
+            engine = constructor.apply(key);
+            engine.encryptBlock(lStar, 0, lStar, 0);
+            lDollar = ocbDouble(lStar);
+            lValues = Stream.iterate(ocbDouble(lDollar), AesOcb::ocbDouble).limit(64).toArray(int[][]::new);
+        }
+
+    }
+
     private int[] getOffset0(byte[] iv, AesEncApi engine) {
         int ivLen = Math.min(iv.length, 15);
         byte[] copy = new byte[16];
@@ -101,23 +133,277 @@ public class AesOcb implements AuthenticatedCipher {
         }
     }
 
+    /**
+     * sets {@code offset} to the offset of block {@code index}, which is
+     * {@code offset0} xored with {@code L_k} for every bit {@code k} set in
+     * the gray code of {@code index}
+     */
+    private static void offsetAt(int[] offset, int[] offset0, int[][] lValues, long index) {
+        System.arraycopy(offset0, 0, offset, 0, 4);
+        for (long gray = index ^ (index >>> 1); gray != 0; gray &= gray - 1) {
+            var lValue = lValues[Long.numberOfTrailingZeros(gray)];
+            offset[0] ^= lValue[0];
+            offset[1] ^= lValue[1];
+            offset[2] ^= lValue[2];
+            offset[3] ^= lValue[3];
+        }
+    }
+
+    /**
+     * processes runs of whole blocks {@link #CHUNK_BLOCKS} at a time: the
+     * offsets of a chunk are computed first, then all its blocks go through
+     * the block cipher in one call. {@code offset} is advanced past the run
+     */
+    private static final class Batch {
+
+        private final int[][] lValues;
+        private final int[] offset, offsets = new int[4 * CHUNK_BLOCKS], data = new int[4 * CHUNK_BLOCKS];
+
+        private Batch(int[][] lValues, int[] offset) {
+            this.lValues = lValues;
+            this.offset = offset;
+        }
+
+        /**
+         * puts the offsets of the {@code n} blocks after block
+         * {@code counter} in {@code offsets}
+         */
+        private void nextOffsets(long counter, int n) {
+            for (int i = 0; i < n; i++) {
+                var lValue = lValues[Long.numberOfTrailingZeros(++counter)];
+                offsets[4 * i] = offset[0] ^= lValue[0];
+                offsets[4 * i + 1] = offset[1] ^= lValue[1];
+                offsets[4 * i + 2] = offset[2] ^= lValue[2];
+                offsets[4 * i + 3] = offset[3] ^= lValue[3];
+            }
+        }
+
+        /**
+         * loads {@code n} blocks xored with their offsets into {@code data}
+         * and xors the blocks themselves into {@code checksum} if it is not
+         * null
+         */
+        private void load(MemorySegment input, long offset, int n, int[] checksum) {
+            for (int i = 0; i < 4 * n; i++) {
+                int word = input.get(BIG_ENDIAN_32_BIT, offset + 4 * i);
+                if (checksum != null) {
+                    checksum[i & 3] ^= word;
+                }
+                data[i] = word ^ offsets[i];
+            }
+        }
+
+        private void encrypt(AesEncApi aes, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long counter, long blocks, int[] checksum) {
+            while (blocks > 0) {
+                int n = (int) Math.min(blocks, CHUNK_BLOCKS);
+                nextOffsets(counter, n);
+                load(plaintext, pOffset, n, checksum);
+                aes.encryptBlocks(data, 0, data, 0, n);
+                for (int i = 0; i < 4 * n; i++) {
+                    ciphertext.set(BIG_ENDIAN_32_BIT, cOffset + 4 * i, data[i] ^ offsets[i]);
+                }
+                pOffset += 16 * n;
+                cOffset += 16 * n;
+                counter += n;
+                blocks -= n;
+            }
+        }
+
+        private void decrypt(AesDecApi aes, MemorySegment ciphertext, long cOffset, MemorySegment plaintext, long pOffset, long counter, long blocks, int[] checksum) {
+            while (blocks > 0) {
+                int n = (int) Math.min(blocks, CHUNK_BLOCKS);
+                nextOffsets(counter, n);
+                load(ciphertext, cOffset, n, null);
+                aes.decryptBlocks(data, 0, data, 0, n);
+                for (int i = 0; i < 4 * n; i++) {
+                    int word = data[i] ^ offsets[i];
+                    checksum[i & 3] ^= word;
+                    plaintext.set(BIG_ENDIAN_32_BIT, pOffset + 4 * i, word);
+                }
+                cOffset += 16 * n;
+                pOffset += 16 * n;
+                counter += n;
+                blocks -= n;
+            }
+        }
+
+        private void hash(AesEncApi aes, MemorySegment aad, long offset, long counter, long blocks, int[] sum) {
+            while (blocks > 0) {
+                int n = (int) Math.min(blocks, CHUNK_BLOCKS);
+                nextOffsets(counter, n);
+                load(aad, offset, n, null);
+                aes.encryptBlocks(data, 0, data, 0, n);
+                for (int i = 0; i < 4 * n; i++) {
+                    sum[i & 3] ^= data[i];
+                }
+                offset += 16 * n;
+                counter += n;
+                blocks -= n;
+            }
+        }
+
+    }
+
+    /**
+     * encrypts or decrypts the message blocks {@code first} to
+     * {@code first + blocks - 1}, counting from 1, and returns the xor of
+     * their plaintexts
+     */
+    @SuppressWarnings("serial")
+    private static final class CryptTask extends RecursiveTask<int[]> {
+
+        private final int[][] lValues;
+        private final int[] offset0;
+        private final AesEncApi encrypter;
+        private final AesDecApi decrypter;
+        private final MemorySegment input, output;
+        private final long iOffset, oOffset, first, blocks;
+
+        private CryptTask(int[][] lValues, int[] offset0, AesEncApi encrypter, AesDecApi decrypter, MemorySegment input, long iOffset, MemorySegment output, long oOffset, long first, long blocks) {
+            this.lValues = lValues;
+            this.offset0 = offset0;
+            this.encrypter = encrypter;
+            this.decrypter = decrypter;
+            this.input = input;
+            this.output = output;
+            this.iOffset = iOffset;
+            this.oOffset = oOffset;
+            this.first = first;
+            this.blocks = blocks;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (blocks <= TASK_BLOCKS) {
+                int[] offset = new int[4], checksum = new int[4];
+                offsetAt(offset, offset0, lValues, first - 1);
+                var batch = new Batch(lValues, offset);
+                if (encrypter != null) {
+                    batch.encrypt(encrypter.copy(), input, iOffset, output, oOffset, first - 1, blocks, checksum);
+                } else {
+                    batch.decrypt(decrypter.copy(), input, iOffset, output, oOffset, first - 1, blocks, checksum);
+                }
+                return checksum;
+            }
+            long half = blocks / 2;
+            var left = new CryptTask(lValues, offset0, encrypter, decrypter, input, iOffset, output, oOffset, first, half);
+            var right = new CryptTask(lValues, offset0, encrypter, decrypter, input, iOffset + 16 * half, output, oOffset + 16 * half, first + half, blocks - half);
+            left.fork();
+            int[] checksum = right.compute(), other = left.join();
+            checksum[0] ^= other[0];
+            checksum[1] ^= other[1];
+            checksum[2] ^= other[2];
+            checksum[3] ^= other[3];
+            return checksum;
+        }
+
+    }
+
+    private static boolean parallel(ForkJoinPool pool, long blocks, MemorySegment input, MemorySegment output) {
+        return pool != null && blocks >= PARALLEL_BLOCKS && Tools.isShared(input) && Tools.isShared(output);
+    }
+
     @Override
     public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(new Keys(key), iv, null);
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        var keys = new Keys(key);
+        return decrypter(keys, keys.engine.decrypter(), iv, null);
+    }
+
+    /**
+     * starts an encryption engine that splits long runs of message blocks
+     * into tasks on {@code pool}, each with its own offsets and checksum. The
+     * output is the same as that of {@link #startEncryption(byte[], byte[])}.
+     * Messages in confined segments are encrypted on the calling thread
+     *
+     * @param pool the pool to run the tasks on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public EncryptEngine startEncryption(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return encrypter(new Keys(key), iv, Objects.requireNonNull(pool));
+    }
+
+    /**
+     * starts a decryption engine that decrypts long messages on
+     * {@code pool}, like {@link #startEncryption(byte[], byte[], ForkJoinPool)}
+     */
+    public DecryptEngine startDecryption(byte[] key, byte[] iv, ForkJoinPool pool) {
+        var keys = new Keys(key);
+        return decrypter(keys, keys.engine.decrypter(), iv, Objects.requireNonNull(pool));
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        return keyed(key, null);
+    }
+
+    /**
+     * binds {@code key} for engines that process long messages on
+     * {@code pool}, like {@link #startEncryption(byte[], byte[], ForkJoinPool)}
+     */
+    public Keyed withKey(byte[] key, ForkJoinPool pool) {
+        return keyed(key, Objects.requireNonNull(pool));
+    }
+
+    private Keyed keyed(byte[] key, ForkJoinPool pool) {
+        var keys = new Keys(key);
+        var aesDec = keys.engine.decrypter();
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(keys, iv, pool);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(keys, aesDec, iv, pool);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesOcb.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(Keys keys, byte[] iv, ForkJoinPool pool) {
         return new AbstractAuthenticaterEngine(16) {
 
-            private final AesEncApi engine = constructor.apply(key);
+            private final AesEncApi engine = keys.engine.copy();
 
-            private final int[] lStar = new int[4], lDollar;
-            private final int[][] lValues;
+            private final int[] lStar = keys.lStar, lDollar = keys.lDollar;
+            private final int[][] lValues = keys.lValues;
 
             private final int[] sum = new int[4], offset = new int[4], data = new int[4], mOffset = getOffset0(iv, engine), checksum = new int[4];
 
+            private final Batch batch = new Batch(lValues, offset);
+
             private long counter = 0;
 
-            {
-                engine.encryptBlock(lStar, 0, lStar, 0);
-                lDollar = ocbDouble(lStar);
-                lValues = Stream.iterate(ocbDouble(lDollar), AesOcb::ocbDouble).limit(64).toArray(int[][]::new);
+            @Override
+            protected void ingestBlocks(MemorySegment aad, long off, long blocks) {
+                batch.hash(engine, aad, off, counter, blocks, sum);
+                counter += blocks;
+            }
+
+            @Override
+            protected void encryptBlocks(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                if (parallel(pool, blocks, plaintext, ciphertext)) {
+                    int[] sums = pool.invoke(new CryptTask(lValues, mOffset, engine, null, plaintext, pOffset, ciphertext, cOffset, counter + 1, blocks));
+                    checksum[0] ^= sums[0];
+                    checksum[1] ^= sums[1];
+                    checksum[2] ^= sums[2];
+                    checksum[3] ^= sums[3];
+                    counter += blocks;
+                    offsetAt(offset, mOffset, lValues, counter);
+                } else {
+                    batch.encrypt(engine, plaintext, pOffset, ciphertext, cOffset, counter, blocks, checksum);
+                    counter += blocks;
+                }
             }
 
             @Override
@@ -264,25 +550,42 @@ public class AesOcb implements AuthenticatedCipher {
         };
     }
 
-    @Override
-    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+    private DecryptEngine decrypter(Keys keys, AesDecApi aesDec, byte[] iv, ForkJoinPool pool) {
         return new AbstractVerifierEngine(16) {
 
-            private final AesEncApi engine = constructor.apply(key);
+            private final AesEncApi engine = keys.engine.copy();
 
-            private final AesDecApi decEngine = engine.decrypter();
+            private final AesDecApi decEngine = aesDec.copy();
 
-            private final int[] lStar = new int[4], lDollar;
-            private final int[][] lValues;
+            private final int[] lStar = keys.lStar, lDollar = keys.lDollar;
+            private final int[][] lValues = keys.lValues;
 
             private final int[] sum = new int[4], offset = new int[4], data = new int[4], mOffset = getOffset0(iv, engine), checksum = new int[4];
 
+            private final Batch batch = new Batch(lValues, offset);
+
             private long counter = 0;
 
-            {
-                engine.encryptBlock(lStar, 0, lStar, 0);
-                lDollar = ocbDouble(lStar);
-                lValues = Stream.iterate(ocbDouble(lDollar), AesOcb::ocbDouble).limit(64).toArray(int[][]::new);
+            @Override
+            protected void ingestBlocks(MemorySegment aad, long off, long blocks) {
+                batch.hash(engine, aad, off, counter, blocks, sum);
+                counter += blocks;
+            }
+
+            @Override
+            protected void decryptBlocks(MemorySegment ciphertext, long cOffset, MemorySegment plaintext, long pOffset, long blocks) {
+                if (parallel(pool, blocks, ciphertext, plaintext)) {
+                    int[] sums = pool.invoke(new CryptTask(lValues, mOffset, null, decEngine, ciphertext, cOffset, plaintext, pOffset, counter + 1, blocks));
+                    checksum[0] ^= sums[0];
+                    checksum[1] ^= sums[1];
+                    checksum[2] ^= sums[2];
+                    checksum[3] ^= sums[3];
+                    counter += blocks;
+                    offsetAt(offset, mOffset, lValues, counter);
+                } else {
+                    batch.decrypt(decEngine, ciphertext, cOffset, plaintext, pOffset, counter, blocks, checksum);
+                    counter += blocks;
+                }
             }
 
             @Override
@@ -6,6 +6,7 @@ package org.asterisk.crypto.aead;
 
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.function.Function;
 import org.asterisk.crypto.helper.AbstractAuthenticaterEngine;
 import org.asterisk.crypto.helper.AbstractVerifierEngine;
 import org.asterisk.crypto.helper.Tools;
@@ -20,74 +21,62 @@ import static org.asterisk.crypto.helper.GfHelper.*;
  */
 public enum AesOtr implements AuthenticatedCipher {
 
-    AES_128_OTR_P(16) {
-        @Override
-        public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-            return new OtrPEncrypter(new AesEncApi.Aes128EncApi(key), iv);
-        }
+    AES_128_OTR_P(16, AesEncApi::aes128, false),
+    AES_128_OTR_S(16, AesEncApi::aes128, true),
+    AES_192_OTR_P(24, AesEncApi::aes192, false),
+    AES_192_OTR_S(24, AesEncApi::aes192, true),
+    AES_256_OTR_P(32, AesEncApi::aes256, false),
+    AES_256_OTR_S(32, AesEncApi::aes256, true);
 
-        @Override
-        public DecryptEngine startDecryption(byte[] key, byte[] iv) {
-            return new OtrPDecrypter(new AesEncApi.Aes128EncApi(key), iv);
-        }
-    }, AES_128_OTR_S(16) {
-        @Override
-        public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-            return new OtrSEncrypter(new AesEncApi.Aes128EncApi(key), iv);
-        }
+    private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
 
-        @Override
-        public DecryptEngine startDecryption(byte[] key, byte[] iv) {
-            return new OtrSDecrypter(new AesEncApi.Aes128EncApi(key), iv);
-        }
-    }, AES_192_OTR_P(16) {
-        @Override
-        public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-            return new OtrPEncrypter(new AesEncApi.Aes192EncApi(key), iv);
-        }
+    private final int keyLength;
+    private final Function<byte[], AesEncApi> constructor;
+    private final boolean serial;
 
-        @Override
-        public DecryptEngine startDecryption(byte[] key, byte[] iv) {
-            return new OtrPDecrypter(new AesEncApi.Aes192EncApi(key), iv);
-        }
-    }, AES_192_OTR_S(16) {
-        @Override
-        public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-            return new OtrSEncrypter(new AesEncApi.Aes192EncApi(key), iv);
-        }
+    private AesOtr(int keyLength, Function<byte[], AesEncApi> constructor, boolean serial) {
+        this.keyLength = keyLength;
+        this.constructor = constructor;
+        this.serial = serial;
+    }
 
-        @Override
-        public DecryptEngine startDecryption(byte[] key, byte[] iv) {
-            return new OtrSDecrypter(new AesEncApi.Aes192EncApi(key), iv);
-        }
-    }, AES_256_OTR_P(16) {
-        @Override
-        public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-            return new OtrPEncrypter(new AesEncApi.Aes256EncApi(key), iv);
-        }
+    @Override
+    public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(constructor.apply(key), iv);
+    }
 
-        @Override
-        public DecryptEngine startDecryption(byte[] key, byte[] iv) {
-            return new OtrPDecrypter(new AesEncApi.Aes256EncApi(key), iv);
-        }
-    }, AES_256_OTR_S(16) {
-        @Override
-        public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-            return new OtrSEncrypter(new AesEncApi.Aes256EncApi(key), iv);
-        }
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(constructor.apply(key), iv);
+    }
 
-        @Override
-        public DecryptEngine startDecryption(byte[] key, byte[] iv) {
-            return new OtrSDecrypter(new AesEncApi.Aes256EncApi(key), iv);
-        }
-    };
+    @Override
+    public Keyed withKey(byte[] key) {
+        var aes = constructor.apply(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(aes.copy(), iv);
+            }
 
-    private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(aes.copy(), iv);
+            }
 
-    private final int keyLength;
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return AesOtr.this;
+            }
+        };
+    }
 
-    private AesOtr(int keyLength) {
-        this.keyLength = keyLength;
+    private EncryptEngine encrypter(AesEncApi aes, byte[] iv) {
+        return serial ? new OtrSEncrypter(aes, iv) : new OtrPEncrypter(aes, iv);
+    }
+
+    private DecryptEngine decrypter(AesEncApi aes, byte[] iv) {
+        return serial ? new OtrSDecrypter(aes, iv) : new OtrPDecrypter(aes, iv);
     }
 
     @Override
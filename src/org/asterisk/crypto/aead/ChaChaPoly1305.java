@@ -23,6 +23,7 @@ import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.AuthenticatedCipher;
 import org.asterisk.crypto.mac.Poly1305;
 import org.asterisk.crypto.stream.ChaCha;
+import org.asterisk.crypto.stream.XChaCha;
 
 /**
  *
@@ -34,7 +35,41 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
     @Tested
     CHACHA20_POLY1305_IETF(ChaCha.CHACHA20_IETF),
     CHACHA12_POLY1305(ChaCha.CHACHA12),
-    CHACHA6_POLY1305(ChaCha.CHACHA6);
+    CHACHA6_POLY1305(ChaCha.CHACHA6),
+    /**
+     * XChaCha20-Poly1305 with 24 byte ivs, which are long enough to be drawn
+     * at random for every message
+     */
+    @Tested
+    XCHACHA20_POLY1305(ChaCha.CHACHA20) {
+        @Override
+        ChaCha.ChaChaEngine startChaCha(int[] keyState, byte[] iv) {
+            return XChaCha.XCHACHA20.startChaCha(keyState, iv);
+        }
+
+        @Override
+        public int ivLength() {
+            return 24;
+        }
+    },
+    XCHACHA12_POLY1305(ChaCha.CHACHA12) {
+        @Override
+        ChaCha.ChaChaEngine startChaCha(int[] keyState, byte[] iv) {
+            return XChaCha.XCHACHA12.startChaCha(keyState, iv);
+        }
+
+        @Override
+        public int ivLength() {
+            return 24;
+        }
+    };
+
+    /**
+     * messages are encrypted and authenticated in pieces of this many bytes,
+     * so the mac reads each piece while it is still in the L1 cache instead
+     * of making a second pass over the whole message
+     */
+    private static final long FUSED_CHUNK = 4096;
 
     private final ChaCha cipher;
 
@@ -42,11 +77,48 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
         this.cipher = cipher;
     }
 
+    /**
+     * starts the ChaCha engine for {@code iv}, the first block of which keys
+     * Poly1305
+     */
+    ChaCha.ChaChaEngine startChaCha(int[] keyState, byte[] iv) {
+        return cipher.startEncryption(keyState, iv);
+    }
+
     @Override
     public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(startChaCha(ChaCha.expandKey(key), iv));
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(startChaCha(ChaCha.expandKey(key), iv));
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        var keyState = ChaCha.expandKey(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(startChaCha(keyState, iv));
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(startChaCha(keyState, iv));
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return ChaChaPoly1305.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(ChaCha.ChaChaEngine encrypter) {
         return new EncryptEngine() {
 
-            private final ChaCha.ChaChaEngine encrypter = cipher.startEncryption(key, iv);
             private final Poly1305.Poly1305Engine mac = encrypter.keyPoly1305();
 
             private boolean ingestingAAD = true;
@@ -71,8 +143,15 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
                     ingestingAAD = false;
                 }
                 msglen += plaintext.byteSize();
-                long offset = encrypter.encrypt(plaintext, ciphertext);
-                mac.ingest(ciphertext.asSlice(0, offset));
+                long offset = 0;
+                for (long pOffset = 0, length = plaintext.byteSize(); length > 0;) {
+                    long take = Math.min(length, FUSED_CHUNK);
+                    long written = encrypter.encrypt(plaintext.asSlice(pOffset, take), ciphertext.asSlice(offset));
+                    mac.ingest(ciphertext.asSlice(offset, written));
+                    offset += written;
+                    pOffset += take;
+                    length -= take;
+                }
                 return offset;
             }
 
@@ -106,6 +185,11 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
                 mac.authenticateTo(tag, offset, length);
             }
 
+            @Override
+            public void authenticate(MemorySegment tag) {
+                mac.authenticateTo(tag);
+            }
+
             @Override
             public AuthenticatedCipher getAlgorithm() {
                 return ChaChaPoly1305.this;
@@ -113,11 +197,9 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
         };
     }
 
-    @Override
-    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+    private DecryptEngine decrypter(ChaCha.ChaChaEngine encrypter) {
         return new DecryptEngine() {
 
-            private final ChaCha.ChaChaEngine encrypter = cipher.startEncryption(key, iv);
             private final Poly1305.Poly1305Engine mac = encrypter.keyPoly1305();
 
             private boolean ingestingAAD = true;
@@ -141,8 +223,15 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
                     }
                     ingestingAAD = false;
                 }
-                mac.ingest(ciphertext);
-                long offset = encrypter.encrypt(ciphertext, plaintext);
+                long offset = 0;
+                for (long cOffset = 0, length = ciphertext.byteSize(); length > 0;) {
+                    long take = Math.min(length, FUSED_CHUNK);
+                    var chunk = ciphertext.asSlice(cOffset, take);
+                    mac.ingest(chunk);
+                    offset += encrypter.encrypt(chunk, plaintext.asSlice(offset));
+                    cOffset += take;
+                    length -= take;
+                }
                 msglen += offset;
                 return offset;
             }
@@ -178,6 +267,11 @@ public enum ChaChaPoly1305 implements AuthenticatedCipher {
                 return mac.verify(tag, offset, length);
             }
 
+            @Override
+            public boolean verify(MemorySegment tag) {
+                return mac.verify(tag);
+            }
+
             @Override
             public AuthenticatedCipher getAlgorithm() {
                 return ChaChaPoly1305.this;
@@ -1,7 +1,6 @@
 package org.asterisk.crypto.aead;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import javax.crypto.AEADBadTagException;
@@ -78,28 +77,40 @@ public enum Colm0 implements SimpleAead {
         if (key.length < 16) {
             throw new IllegalArgumentException("Colm0 takes a 16 byte key, " + key.length + " bytes provided");
         }
-        if (iv.length < 8) {
-            throw new IllegalArgumentException("Colm0 takes a 8 byte iv, " + iv.length + " bytes provided");
-        }
-        return new Colm0EncryptEngine(key, iv);
+        return encrypter(AesEncApi.aes128(key), iv);
     }
 
     public Colm0DecryptEngine startDecryption(byte[] key, byte[] iv) {
         if (key.length < 16) {
             throw new IllegalArgumentException("Colm0 takes a 16 byte key, " + key.length + " bytes provided");
         }
+        var aes = AesEncApi.aes128(key);
+        return decrypter(aes, aes.decrypter(), iv);
+    }
+
+    private static Colm0EncryptEngine encrypter(AesEncApi aes, byte[] iv) {
         if (iv.length < 8) {
             throw new IllegalArgumentException("Colm0 takes a 8 byte iv, " + iv.length + " bytes provided");
         }
-        return new Colm0DecryptEngine(key, iv);
+        return new Colm0EncryptEngine(aes, iv);
+    }
+
+    private static Colm0DecryptEngine decrypter(AesEncApi aes, AesDecApi aesDec, byte[] iv) {
+        if (iv.length < 8) {
+            throw new IllegalArgumentException("Colm0 takes a 8 byte iv, " + iv.length + " bytes provided");
+        }
+        return new Colm0DecryptEngine(aes, aesDec, iv);
     }
 
     @Override
     public long encrypt(byte[] key, byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
-        if (tLength != tagLength()) {
+        return encrypt(startEncryption(key, iv), aad, plaintext, ciphertext, tag, tOffset, tLength);
+    }
+
+    private static long encrypt(Colm0EncryptEngine encrypter, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+        if (tLength != 16) {
             throw new IllegalArgumentException("Colm must use a 16-byte tag");
         }
-        var encrypter = startEncryption(key, iv);
         encrypter.ingestAAD(aad);
         long offset = encrypter.encrypt(plaintext, ciphertext);
         offset += encrypter.finish(ciphertext, tag, tOffset);
@@ -108,10 +119,13 @@ public enum Colm0 implements SimpleAead {
 
     @Override
     public long decrypt(byte[] key, byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
-        if (tLength != tagLength()) {
+        return decrypt(startDecryption(key, iv), aad, ciphertext, plaintext, tag, tOffset, tLength);
+    }
+
+    private static long decrypt(Colm0DecryptEngine decrypter, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+        if (tLength != 16) {
             throw new IllegalArgumentException("Colm must use a 16-byte tag");
         }
-        var decrypter = startDecryption(key, iv);
         decrypter.ingestAAD(aad);
         long offset = decrypter.decrypt(ciphertext, plaintext);
         try {
@@ -123,6 +137,31 @@ public enum Colm0 implements SimpleAead {
         return offset;
     }
 
+    @Override
+    public Keyed withKey(byte[] key) {
+        if (key.length < 16) {
+            throw new IllegalArgumentException("Colm0 takes a 16 byte key, " + key.length + " bytes provided");
+        }
+        var aes = AesEncApi.aes128(key);
+        var aesDec = aes.decrypter();
+        return new Keyed() {
+            @Override
+            public long encrypt(byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+                return Colm0.encrypt(encrypter(aes.copy(), iv), aad, plaintext, ciphertext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public long decrypt(byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+                return Colm0.decrypt(decrypter(aes.copy(), aesDec.copy(), iv), aad, ciphertext, plaintext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public SimpleAead getAlgorithm() {
+                return Colm0.this;
+            }
+        };
+    }
+
     /**
      * The normal control flow is (ingestAAD)* (encrypt)* finish
      * <p>
@@ -137,15 +176,15 @@ public enum Colm0 implements SimpleAead {
 
         private final int[] data = new int[4];
 
-        private final AesEncApi.Aes128EncApi aes;
+        private final AesEncApi aes;
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(16);
+        private final MemorySegment buffer = Tools.allocate(16);
         private int position = 0;
 
         private boolean ingestingAAD = true;
 
-        private Colm0EncryptEngine(byte[] key, byte[] iv) {
-            aes = new AesEncApi.Aes128EncApi(key);
+        private Colm0EncryptEngine(AesEncApi aes, byte[] iv) {
+            this.aes = aes;
 
             aes.encryptBlock(data, 0, deltaM, 0);
 
@@ -399,17 +438,17 @@ public enum Colm0 implements SimpleAead {
 
         private final int[] data = new int[4];
 
-        private final AesEncApi.Aes128EncApi aes;
-        private final AesDecApi.Aes128DecApi aesDec;
+        private final AesEncApi aes;
+        private final AesDecApi aesDec;
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(16);
+        private final MemorySegment buffer = Tools.allocate(16);
         private int position = 0;
 
         private boolean ingestingAAD = true;
 
-        private Colm0DecryptEngine(byte[] key, byte[] iv) {
-            aes = new AesEncApi.Aes128EncApi(key);
-            aesDec = aes.decrypter();
+        private Colm0DecryptEngine(AesEncApi aes, AesDecApi aesDec, byte[] iv) {
+            this.aes = aes;
+            this.aesDec = aesDec;
 
             aes.encryptBlock(data, 0, deltaM, 0);
 
@@ -26,14 +26,42 @@ public enum DeoxysAE1 implements AuthenticatedCipher {
 
     @Override
     public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(new DeoxysTBC.DeoxysTBC_128_256(key), iv);
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(new DeoxysTBC.DeoxysTBC_128_256(key), iv);
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        var blockCipher = new DeoxysTBC.DeoxysTBC_128_256(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(blockCipher.copy(), iv);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(blockCipher.copy(), iv);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return DeoxysAE1.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(DeoxysTBC.DeoxysTBC_128_256 blockCipher, byte[] iv) {
         return new AbstractAuthenticaterEngine(16, 32) {
 
             private final int[] tweak = new int[8], data = new int[4];
 
             private final int[] auth = new int[4], checksum = new int[4];
 
-            private final DeoxysTBC.DeoxysTBC_128_256 blockCipher = new DeoxysTBC.DeoxysTBC_128_256(key);
-
             private long counter = 0;
 
             private final int[] savednonce = {
@@ -181,16 +209,13 @@ public enum DeoxysAE1 implements AuthenticatedCipher {
         };
     }
 
-    @Override
-    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+    private DecryptEngine decrypter(DeoxysTBC.DeoxysTBC_128_256 blockCipher, byte[] iv) {
         return new AbstractVerifierEngine(16, 32) {
 
             private final int[] tweak = new int[8], data = new int[4];
 
             private final int[] auth = new int[4], checksum = new int[4];
 
-            private final DeoxysTBC.DeoxysTBC_128_256 blockCipher = new DeoxysTBC.DeoxysTBC_128_256(key);
-
             private long counter = 0;
 
             private final int[] savednonce = {
@@ -18,7 +18,6 @@
 package org.asterisk.crypto.aead;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import javax.crypto.AEADBadTagException;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.SimpleAead;
@@ -55,10 +54,13 @@ public enum DeoxysAE2 implements SimpleAead {
 
     @Override
     public long encrypt(byte[] key, byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+        return encrypt(startEncryption(key, iv), aad, plaintext, ciphertext, tag, tOffset, tLength);
+    }
+
+    private static long encrypt(Encrypter encrypter, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
         if (tLength != 16) {
             throw new IllegalArgumentException("Deoxys-AE2 always exports a 16 byte tag");
         }
-        var encrypter = startEncryption(key, iv);
         encrypter.ingestAAD(aad);
         encrypter.firstPass(plaintext);
         encrypter.authenticate(tag, tOffset);
@@ -69,10 +71,13 @@ public enum DeoxysAE2 implements SimpleAead {
 
     @Override
     public long decrypt(byte[] key, byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+        return decrypt(startDecryption(key, iv), aad, ciphertext, plaintext, tag, tOffset, tLength);
+    }
+
+    private static long decrypt(Decrypter decrypter, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
         if (tLength != 16) {
             throw new IllegalArgumentException("Deoxys-AE2 always exports a 16 byte tag");
         }
-        var decrypter = startDecryption(key, iv);
         decrypter.ingestAAD(aad);
         decrypter.setTag(tag, tOffset);
         var offset = decrypter.decrypt(ciphertext, plaintext);
@@ -88,20 +93,52 @@ public enum DeoxysAE2 implements SimpleAead {
         if (key.length < keyLength()) {
             throw new IllegalArgumentException(this + " requires a key of " + keyLength() + " bytes, passed only " + key.length + " bytes");
         }
+        return encrypter(new DeoxysTBC.DeoxysTBC_128_256(key), iv);
+    }
+
+    private Encrypter encrypter(DeoxysTBC.DeoxysTBC_128_256 blockCipher, byte[] iv) {
         if (iv.length < 16) {
             throw new IllegalArgumentException(this + " requires an iv of 16 bytes, passed only " + iv.length + " bytes");
         }
-        return new Encrypter(key, iv);
+        return new Encrypter(blockCipher, iv);
     }
 
     public Decrypter startDecryption(byte[] key, byte[] iv) {
         if (key.length < keyLength()) {
             throw new IllegalArgumentException(this + " requires a key of " + keyLength() + " bytes, passed only " + key.length + " bytes");
         }
+        return decrypter(new DeoxysTBC.DeoxysTBC_128_256(key), iv);
+    }
+
+    private Decrypter decrypter(DeoxysTBC.DeoxysTBC_128_256 blockCipher, byte[] iv) {
         if (iv.length < 16) {
             throw new IllegalArgumentException(this + " requires an iv of 16 bytes, passed only " + iv.length + " bytes");
         }
-        return new Decrypter(key, iv);
+        return new Decrypter(blockCipher, iv);
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        if (key.length < keyLength()) {
+            throw new IllegalArgumentException(this + " requires a key of " + keyLength() + " bytes, passed only " + key.length + " bytes");
+        }
+        var blockCipher = new DeoxysTBC.DeoxysTBC_128_256(key);
+        return new Keyed() {
+            @Override
+            public long encrypt(byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+                return DeoxysAE2.encrypt(encrypter(blockCipher.copy(), iv), aad, plaintext, ciphertext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public long decrypt(byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+                return DeoxysAE2.decrypt(decrypter(blockCipher.copy(), iv), aad, ciphertext, plaintext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public SimpleAead getAlgorithm() {
+                return DeoxysAE2.this;
+            }
+        };
     }
 
     private enum State {
@@ -110,7 +147,7 @@ public enum DeoxysAE2 implements SimpleAead {
 
     public static class Encrypter {
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(32);
+        private final MemorySegment buffer = Tools.allocate(32);
         private int position = 0;
 
         private final int[] auth = new int[4], tweak = new int[8], data = new int[4], savednonce, savedtag = new int[4];
@@ -121,8 +158,8 @@ public enum DeoxysAE2 implements SimpleAead {
 
         private State state = State.INGESTING;
 
-        private Encrypter(byte[] key, byte[] iv) {
-            blockCipher = new DeoxysTBC.DeoxysTBC_128_256(key);
+        private Encrypter(DeoxysTBC.DeoxysTBC_128_256 blockCipher, byte[] iv) {
+            this.blockCipher = blockCipher;
             savednonce = new int[]{
                 load32BE(iv, 0),
                 load32BE(iv, 4),
@@ -349,7 +386,7 @@ public enum DeoxysAE2 implements SimpleAead {
 
     public static class Decrypter {
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(32);
+        private final MemorySegment buffer = Tools.allocate(32);
         private int position = 0;
 
         private final DeoxysTBC.DeoxysTBC_128_256 authCipher, cryptCipher;
@@ -360,9 +397,9 @@ public enum DeoxysAE2 implements SimpleAead {
 
         private boolean ingestingAAD = true, tagSet = false;
 
-        private Decrypter(byte[] key, byte[] iv) {
-            authCipher = new DeoxysTBC.DeoxysTBC_128_256(key);
-            cryptCipher = new DeoxysTBC.DeoxysTBC_128_256(authCipher);
+        private Decrypter(DeoxysTBC.DeoxysTBC_128_256 blockCipher, byte[] iv) {
+            authCipher = blockCipher;
+            cryptCipher = blockCipher.copy();
 
             savednonce = new int[]{
                 load32BE(iv, 0),
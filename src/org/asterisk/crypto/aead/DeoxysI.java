@@ -44,14 +44,42 @@ public enum DeoxysI implements AuthenticatedCipher {
 
     @Override
     public EncryptEngine startEncryption(byte[] key, byte[] iv) {
+        return encrypter(constructor.apply(key), iv);
+    }
+
+    @Override
+    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+        return decrypter(constructor.apply(key), iv);
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        var blockCipher = constructor.apply(key);
+        return new Keyed() {
+            @Override
+            public EncryptEngine startEncryption(byte[] iv) {
+                return encrypter(blockCipher.copy(), iv);
+            }
+
+            @Override
+            public DecryptEngine startDecryption(byte[] iv) {
+                return decrypter(blockCipher.copy(), iv);
+            }
+
+            @Override
+            public AuthenticatedCipher getAlgorithm() {
+                return DeoxysI.this;
+            }
+        };
+    }
+
+    private EncryptEngine encrypter(DeoxysTBC blockCipher, byte[] iv) {
         final int temp0 = Tools.load32BE(iv, 0), temp1 = Tools.load32BE(iv, 4);
 
         return new AbstractAuthenticaterEngine(16) {
 
             private final int[] tweak = new int[4], data = new int[4];
 
-            private final DeoxysTBC blockCipher = constructor.apply(key);
-
             private final int[] auth = new int[4], checksum = new int[4];
             private long counter = 0;
 
@@ -195,14 +223,11 @@ public enum DeoxysI implements AuthenticatedCipher {
         };
     }
 
-    @Override
-    public DecryptEngine startDecryption(byte[] key, byte[] iv) {
+    private DecryptEngine decrypter(DeoxysTBC blockCipher, byte[] iv) {
         final int temp0 = Tools.load32BE(iv, 0), temp1 = Tools.load32BE(iv, 4);
         return new AbstractVerifierEngine(16) {
             private final int[] tweak = new int[4], data = new int[4];
 
-            private final DeoxysTBC blockCipher = constructor.apply(key);
-
             private final int[] auth = new int[4], checksum = new int[4];
             private long counter = 0;
 
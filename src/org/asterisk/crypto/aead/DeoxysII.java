@@ -5,7 +5,6 @@
 package org.asterisk.crypto.aead;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.util.function.Function;
 import javax.crypto.AEADBadTagException;
 import org.asterisk.crypto.helper.Tools;
@@ -71,10 +70,13 @@ public enum DeoxysII implements SimpleAead {
 
     @Override
     public long encrypt(byte[] key, byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+        return encrypt(startEncryption(key, iv), aad, plaintext, ciphertext, tag, tOffset, tLength);
+    }
+
+    private static long encrypt(Encrypter encrypter, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
         if (tLength != 16) {
             throw new IllegalArgumentException("Deoxys-II always exports a 16 byte tag");
         }
-        var encrypter = startEncryption(key, iv);
         encrypter.ingestAAD(aad);
         encrypter.firstPass(plaintext);
         encrypter.authenticate(tag, tOffset);
@@ -85,10 +87,13 @@ public enum DeoxysII implements SimpleAead {
 
     @Override
     public long decrypt(byte[] key, byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+        return decrypt(startDecryption(key, iv), aad, ciphertext, plaintext, tag, tOffset, tLength);
+    }
+
+    private static long decrypt(Decrypter decrypter, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
         if (tLength != 16) {
             throw new IllegalArgumentException("Deoxys-AE2 always exports a 16 byte tag");
         }
-        var decrypter = startDecryption(key, iv);
         decrypter.ingestAAD(aad);
         decrypter.setTag(tag, tOffset);
         var offset = decrypter.decrypt(ciphertext, plaintext);
@@ -104,20 +109,52 @@ public enum DeoxysII implements SimpleAead {
         if (key.length < keyLength()) {
             throw new IllegalArgumentException(this + " requires a key of " + keyLength() + " bytes, passed only " + key.length + " bytes");
         }
+        return encrypter(constructor.apply(key), iv);
+    }
+
+    private Encrypter encrypter(DeoxysTBC blockCipher, byte[] iv) {
         if (iv.length < 15) {
             throw new IllegalArgumentException(this + " requires an iv of 15 bytes, passed only " + iv.length + " bytes");
         }
-        return new Encrypter(constructor.apply(key), iv);
+        return new Encrypter(blockCipher, iv);
     }
 
     public Decrypter startDecryption(byte[] key, byte[] iv) {
         if (key.length < keyLength()) {
             throw new IllegalArgumentException(this + " requires a key of " + keyLength() + " bytes, passed only " + key.length + " bytes");
         }
+        return decrypter(constructor.apply(key), iv);
+    }
+
+    private Decrypter decrypter(DeoxysTBC blockCipher, byte[] iv) {
         if (iv.length < 15) {
             throw new IllegalArgumentException(this + " requires an iv of 15 bytes, passed only " + iv.length + " bytes");
         }
-        return new Decrypter(constructor.apply(key), iv);
+        return new Decrypter(blockCipher, iv);
+    }
+
+    @Override
+    public Keyed withKey(byte[] key) {
+        if (key.length < keyLength()) {
+            throw new IllegalArgumentException(this + " requires a key of " + keyLength() + " bytes, passed only " + key.length + " bytes");
+        }
+        var blockCipher = constructor.apply(key);
+        return new Keyed() {
+            @Override
+            public long encrypt(byte[] iv, MemorySegment aad, MemorySegment plaintext, MemorySegment ciphertext, byte[] tag, int tOffset, int tLength) {
+                return DeoxysII.encrypt(encrypter(blockCipher.copy(), iv), aad, plaintext, ciphertext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public long decrypt(byte[] iv, MemorySegment aad, MemorySegment ciphertext, MemorySegment plaintext, byte[] tag, int tOffset, int tLength) throws AEADBadTagException {
+                return DeoxysII.decrypt(decrypter(blockCipher.copy(), iv), aad, ciphertext, plaintext, tag, tOffset, tLength);
+            }
+
+            @Override
+            public SimpleAead getAlgorithm() {
+                return DeoxysII.this;
+            }
+        };
     }
 
     private enum State {
@@ -126,7 +163,7 @@ public enum DeoxysII implements SimpleAead {
 
     public static class Encrypter {
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(16);
+        private final MemorySegment buffer = Tools.allocate(16);
         private int position = 0;
 
         private final int[] auth = new int[4], tweak = new int[4], data = new int[4], savednonce, savedtag = new int[4];
@@ -359,7 +396,7 @@ public enum DeoxysII implements SimpleAead {
 
     public static class Decrypter {
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(16);
+        private final MemorySegment buffer = Tools.allocate(16);
         private int position = 0;
 
         private final int[] auth = new int[4], tweak = new int[4], crypttweak = new int[4], data = new int[4], savednonce, savedtag = new int[4];
@@ -33,17 +33,23 @@ import static org.asterisk.crypto.lowlevel.AsconP.ascon_p;
 public enum AsconHash implements Digest {
 
     ASCON_HASH {
+        private static final long[] IV = {
+            0xee9398aadb67f03dL,
+            0x8bb21831c60f1002L,
+            0xb48a92db98d5da62L,
+            0x43189921b8f8e3e8L,
+            0x348fa5c9d525e140L
+        };
+
         @Override
         public Engine start() {
+            return engine(IV.clone());
+        }
+
+        private AbstractDigestEngine engine(long[] initialState) {
             return new AbstractDigestEngine(8) {
 
-                private final long[] state = {
-                    0xee9398aadb67f03dL,
-                    0x8bb21831c60f1002L,
-                    0xb48a92db98d5da62L,
-                    0x43189921b8f8e3e8L,
-                    0x348fa5c9d525e140L
-                };
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -54,7 +60,7 @@ public enum AsconHash implements Digest {
                 @Override
                 protected void ingestLastBlock(MemorySegment input, int length) {
                     if (length == 8) {
-                        ingestOneBlock(input, length);
+                        ingestOneBlock(input, 0);
                         length = 0;
                     }
                     Tools.ozpad(input, length);
@@ -73,6 +79,16 @@ public enum AsconHash implements Digest {
                     store64BE(state[3], output, offset + 24);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 5);
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return ASCON_HASH;
@@ -81,17 +97,23 @@ public enum AsconHash implements Digest {
         }
 
     }, ASCON_HASHa {
+        private static final long[] IV = {
+            0x01470194fc6528a6L,
+            0x738ec38ac0adffa7L,
+            0x2ec8e3296c76384cL,
+            0xd6f6a54d7f52377dL,
+            0xa13c42a223be8d87L
+        };
+
         @Override
         public Engine start() {
+            return engine(IV.clone());
+        }
+
+        private AbstractDigestEngine engine(long[] initialState) {
             return new AbstractDigestEngine(8) {
 
-                private final long[] state = {
-                    0x01470194fc6528a6L,
-                    0x738ec38ac0adffa7L,
-                    0x2ec8e3296c76384cL,
-                    0xd6f6a54d7f52377dL,
-                    0xa13c42a223be8d87L
-                };
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -102,7 +124,7 @@ public enum AsconHash implements Digest {
                 @Override
                 protected void ingestLastBlock(MemorySegment input, int length) {
                     if (length == 8) {
-                        ingestOneBlock(input, length);
+                        ingestOneBlock(input, 0);
                         length = 0;
                     }
                     Tools.ozpad(input, length);
@@ -121,6 +143,16 @@ public enum AsconHash implements Digest {
                     store64BE(state[3], output, offset + 24);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 5);
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return ASCON_HASHa;
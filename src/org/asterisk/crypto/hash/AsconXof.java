@@ -33,17 +33,23 @@ import static org.asterisk.crypto.lowlevel.AsconP.ascon_p;
 public enum AsconXof implements Xof {
 
     ASCON_XOF {
+        private static final long[] IV = {
+            0xb57e273b814cd415L,
+            0x2b51042562ae2420L,
+            0x66a3a7768ddf2218L,
+            0x5aad0a7a8153650cL,
+            0x4f3e0e32539493b6L
+        };
+
         @Override
         public Engine start() {
+            return engine(IV.clone());
+        }
+
+        private AbstractXofEngine engine(long[] initialState) {
             return new AbstractXofEngine(8, 8) {
 
-                private final long[] state = {
-                    0xb57e273b814cd415L,
-                    0x2b51042562ae2420L,
-                    0x66a3a7768ddf2218L,
-                    0x5aad0a7a8153650cL,
-                    0x4f3e0e32539493b6L
-                };
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -54,7 +60,7 @@ public enum AsconXof implements Xof {
                 @Override
                 protected void ingestLastBlock(MemorySegment input, int length) {
                     if (length == 8) {
-                        ingestOneBlock(input, length);
+                        ingestOneBlock(input, 0);
                         length = 0;
                     }
                     Tools.ozpad(input, length);
@@ -67,6 +73,16 @@ public enum AsconXof implements Xof {
                     store64BE(state[0], output, offset);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 5);
+                }
+
+                @Override
+                public Xof.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
                 @Override
                 public Xof getAlgorithm() {
                     return ASCON_XOF;
@@ -76,17 +92,23 @@ public enum AsconXof implements Xof {
         }
 
     }, ASCON_XOFa {
+        private static final long[] IV = {
+            0x44906568b77b9832L,
+            0xcd8d6cae53455532L,
+            0xf7b5212756422129L,
+            0x246885e1de0d225bL,
+            0xa8cd5ce33449973fL
+        };
+
         @Override
         public Engine start() {
+            return engine(IV.clone());
+        }
+
+        private AbstractXofEngine engine(long[] initialState) {
             return new AbstractXofEngine(8, 8) {
 
-                private final long[] state = {
-                    0x44906568b77b9832L,
-                    0xcd8d6cae53455532L,
-                    0xf7b5212756422129L,
-                    0x246885e1de0d225bL,
-                    0xa8cd5ce33449973fL
-                };
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -97,7 +119,7 @@ public enum AsconXof implements Xof {
                 @Override
                 protected void ingestLastBlock(MemorySegment input, int length) {
                     if (length == 8) {
-                        ingestOneBlock(input, length);
+                        ingestOneBlock(input, 0);
                         length = 0;
                     }
                     Tools.ozpad(input, length);
@@ -110,6 +132,16 @@ public enum AsconXof implements Xof {
                     store64BE(state[0], output, offset);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 5);
+                }
+
+                @Override
+                public Xof.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
                 @Override
                 public Xof getAlgorithm() {
                     return ASCON_XOFa;
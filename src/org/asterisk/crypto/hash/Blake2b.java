@@ -9,6 +9,8 @@ import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
 import org.asterisk.crypto.helper.AbstractDigestEngine;
 import org.asterisk.crypto.helper.AbstractMacEngine;
+import org.asterisk.crypto.helper.StateReader;
+import org.asterisk.crypto.helper.StateWriter;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.Mac;
@@ -118,21 +120,17 @@ public class Blake2b implements Digest, Mac {
 
     public Mac.Engine startSalted(byte[] key, byte[] salt) {
         var padded = salt.length < 16 ? Arrays.copyOf(salt, 16) : salt;
-        return new AbstractMacEngine(128) {
+        var engine = macEngine(padded, new long[8], new byte[128], 0);
+        engine.reset(key);
+        return engine;
+    }
 
-            private final long[] state = IV.clone();
+    private AbstractMacEngine macEngine(byte[] padded, long[] initialState, byte[] keyBlock, long initialCounter) {
+        return new AbstractMacEngine(128) {
 
-            private long counter = 0;
+            private final long[] state = initialState;
 
-            {
-                state[0] ^= 0x01012040;
-                state[4] ^= Tools.load64LE(padded, 0);
-                state[5] ^= Tools.load64LE(padded, 8);
-                state[6] ^= Tools.load64LE(pers, 0);
-                state[7] ^= Tools.load64LE(pers, 8);
-                ingest(key, 0, 32);
-                setBufferPosition(128);
-            }
+            private long counter = initialCounter;
 
             @Override
             protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -153,6 +151,32 @@ public class Blake2b implements Digest, Mac {
                 Tools.store64LE(state[1], dest, offset + 8);
             }
 
+            @Override
+            protected void resetState() {
+                System.arraycopy(IV, 0, state, 0, 8);
+                state[0] ^= 0x01012040;
+                state[4] ^= Tools.load64LE(padded, 0);
+                state[5] ^= Tools.load64LE(padded, 8);
+                state[6] ^= Tools.load64LE(pers, 0);
+                state[7] ^= Tools.load64LE(pers, 8);
+                counter = 0;
+                ingest(keyBlock);
+            }
+
+            @Override
+            protected void resetState(byte[] key) {
+                if (key.length < 32) {
+                    throw new IllegalArgumentException("Blake2b requires a 32 byte key, " + key.length + " bytes provided");
+                }
+                System.arraycopy(key, 0, keyBlock, 0, 32);
+                resetState();
+            }
+
+            @Override
+            public Mac.Engine copy() {
+                return copyBufferTo(macEngine(padded, state.clone(), keyBlock.clone(), counter));
+            }
+
             @Override
             public Mac getAlgorithm() {
                 return Blake2b.this;
@@ -176,21 +200,24 @@ public class Blake2b implements Digest, Mac {
         return startSalted(DEFAULT_SALT);
     }
 
+    @Override
+    public Digest.Engine resume(byte[] state) {
+        return digestEngine(new byte[16], new long[8], 0).importState(state);
+    }
+
     public Digest.Engine startSalted(byte[] salt) {
         var padded = salt.length < 16 ? Arrays.copyOf(salt, 16) : salt;
+        var engine = digestEngine(padded, new long[8], 0);
+        engine.reset();
+        return engine;
+    }
+
+    private AbstractDigestEngine digestEngine(byte[] padded, long[] initialState, long initialCounter) {
         return new AbstractDigestEngine(128) {
 
-            private final long[] state = IV.clone();
+            private final long[] state = initialState;
 
-            private long counter = 0;
-
-            {
-                state[0] ^= 0x01010040;
-                state[4] ^= Tools.load64LE(padded, 0);
-                state[5] ^= Tools.load64LE(padded, 8);
-                state[6] ^= Tools.load64LE(pers, 0);
-                state[7] ^= Tools.load64LE(pers, 8);
-            }
+            private long counter = initialCounter;
 
             @Override
             protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -212,6 +239,34 @@ public class Blake2b implements Digest, Mac {
                 }
             }
 
+            @Override
+            protected void resetState() {
+                System.arraycopy(IV, 0, state, 0, 8);
+                state[0] ^= 0x01010040;
+                state[4] ^= Tools.load64LE(padded, 0);
+                state[5] ^= Tools.load64LE(padded, 8);
+                state[6] ^= Tools.load64LE(pers, 0);
+                state[7] ^= Tools.load64LE(pers, 8);
+                counter = 0;
+            }
+
+            @Override
+            public Digest.Engine copy() {
+                return copyBufferTo(digestEngine(padded, state.clone(), counter));
+            }
+
+            @Override
+            protected void writeState(StateWriter out) {
+                out.putBytes(MemorySegment.ofArray(padded), 16).putLongs(state, 8).putLong(counter);
+            }
+
+            @Override
+            protected void readState(StateReader in) {
+                in.getBytes(padded);
+                in.getLongs(state, 8);
+                counter = in.getCounter();
+            }
+
             @Override
             public Digest getAlgorithm() {
                 return Blake2b.this;
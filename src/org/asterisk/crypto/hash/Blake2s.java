@@ -9,6 +9,8 @@ import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
 import org.asterisk.crypto.helper.AbstractDigestEngine;
 import org.asterisk.crypto.helper.AbstractMacEngine;
+import org.asterisk.crypto.helper.StateReader;
+import org.asterisk.crypto.helper.StateWriter;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.Mac;
@@ -115,21 +117,17 @@ public class Blake2s implements Digest, Mac {
 
     public Mac.Engine startSalted(byte[] key, byte[] salt) {
         var padded = salt.length < 8 ? Arrays.copyOf(salt, 8) : salt;
-        return new AbstractMacEngine(64) {
+        var engine = macEngine(padded, new int[8], new byte[64], 0);
+        engine.reset(key);
+        return engine;
+    }
 
-            private final int[] state = IV.clone();
+    private AbstractMacEngine macEngine(byte[] padded, int[] initialState, byte[] keyBlock, long initialCounter) {
+        return new AbstractMacEngine(64) {
 
-            private long counter = 0;
+            private final int[] state = initialState;
 
-            {
-                state[0] ^= 0x01012020;
-                state[4] ^= Tools.load32LE(padded, 0);
-                state[5] ^= Tools.load32LE(padded, 4);
-                state[6] ^= Tools.load32LE(pers, 0);
-                state[7] ^= Tools.load32LE(pers, 4);
-                ingest(key, 0, 32);
-                setBufferPosition(64);
-            }
+            private long counter = initialCounter;
 
             @Override
             protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -152,6 +150,32 @@ public class Blake2s implements Digest, Mac {
                 Tools.store32LE(state[3], dest, offset + 12);
             }
 
+            @Override
+            protected void resetState() {
+                System.arraycopy(IV, 0, state, 0, 8);
+                state[0] ^= 0x01012020;
+                state[4] ^= Tools.load32LE(padded, 0);
+                state[5] ^= Tools.load32LE(padded, 4);
+                state[6] ^= Tools.load32LE(pers, 0);
+                state[7] ^= Tools.load32LE(pers, 4);
+                counter = 0;
+                ingest(keyBlock);
+            }
+
+            @Override
+            protected void resetState(byte[] key) {
+                if (key.length < 32) {
+                    throw new IllegalArgumentException("Blake2s requires a 32 byte key, " + key.length + " bytes provided");
+                }
+                System.arraycopy(key, 0, keyBlock, 0, 32);
+                resetState();
+            }
+
+            @Override
+            public Mac.Engine copy() {
+                return copyBufferTo(macEngine(padded, state.clone(), keyBlock.clone(), counter));
+            }
+
             @Override
             public Mac getAlgorithm() {
                 return Blake2s.this;
@@ -175,21 +199,24 @@ public class Blake2s implements Digest, Mac {
         return startSalted(DEFAULT_SALT);
     }
 
+    @Override
+    public Digest.Engine resume(byte[] state) {
+        return digestEngine(new byte[8], new int[8], 0).importState(state);
+    }
+
     public Digest.Engine startSalted(byte[] salt) {
         var padded = salt.length < 8 ? Arrays.copyOf(salt, 8) : salt;
+        var engine = digestEngine(padded, new int[8], 0);
+        engine.reset();
+        return engine;
+    }
+
+    private AbstractDigestEngine digestEngine(byte[] padded, int[] initialState, long initialCounter) {
         return new AbstractDigestEngine(64) {
 
-            private final int[] state = IV.clone();
+            private final int[] state = initialState;
 
-            private long counter = 0;
-
-            {
-                state[0] ^= 0x01010020;
-                state[4] ^= Tools.load32BE(padded, 0);
-                state[5] ^= Tools.load32BE(padded, 4);
-                state[6] ^= Tools.load32BE(pers, 0);
-                state[7] ^= Tools.load32BE(pers, 4);
-            }
+            private long counter = initialCounter;
 
             @Override
             protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -211,6 +238,34 @@ public class Blake2s implements Digest, Mac {
                 }
             }
 
+            @Override
+            protected void resetState() {
+                System.arraycopy(IV, 0, state, 0, 8);
+                state[0] ^= 0x01010020;
+                state[4] ^= Tools.load32BE(padded, 0);
+                state[5] ^= Tools.load32BE(padded, 4);
+                state[6] ^= Tools.load32BE(pers, 0);
+                state[7] ^= Tools.load32BE(pers, 4);
+                counter = 0;
+            }
+
+            @Override
+            public Digest.Engine copy() {
+                return copyBufferTo(digestEngine(padded, state.clone(), counter));
+            }
+
+            @Override
+            protected void writeState(StateWriter out) {
+                out.putBytes(MemorySegment.ofArray(padded), 8).putInts(state, 8).putLong(counter);
+            }
+
+            @Override
+            protected void readState(StateReader in) {
+                in.getBytes(padded);
+                in.getInts(state, 8);
+                counter = in.getCounter();
+            }
+
             @Override
             public Digest getAlgorithm() {
                 return Blake2s.this;
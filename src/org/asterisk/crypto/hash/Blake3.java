@@ -18,8 +18,13 @@
 package org.asterisk.crypto.hash;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import org.asterisk.crypto.helper.StateReader;
+import org.asterisk.crypto.helper.StateWriter;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Mac;
 import org.asterisk.crypto.Xof;
@@ -58,6 +63,13 @@ public enum Blake3 implements Xof, Mac {
 
     private static final ValueLayout.OfInt LAYOUT = Tools.LITTLE_ENDIAN_32_BIT;
 
+    /**
+     * subtrees are only hashed in parallel if they have at least
+     * {@code PARALLEL_CHUNKS} chunks, and are split into tasks down to
+     * {@code TASK_CHUNKS} chunks
+     */
+    private static final long PARALLEL_CHUNKS = 128, TASK_CHUNKS = 32;
+
     private static void g(int[] state, int a, int b, int c, int d, int mx, int my) {
         state[a] += state[b] + mx;
         state[d] = Integer.rotateRight(state[d] ^ state[a], 16);
@@ -161,6 +173,63 @@ public enum Blake3 implements Xof, Mac {
         return state;
     }
 
+    private static int[] chunkCV(int[] keyWords, MemorySegment input, long offset, long chunkCtr, int flags) {
+        int[] chainingValue = compress(keyWords, input, offset, chunkCtr, BLOCK_LEN, flags | CHUNK_START);
+        offset += 64;
+
+        for (int i = 64; i < 960; i += 64) {
+            chainingValue = compress(chainingValue, input, offset, chunkCtr, BLOCK_LEN, flags);
+            offset += 64;
+        }
+
+        return compress(chainingValue, input, offset, chunkCtr, BLOCK_LEN, flags | CHUNK_END);
+    }
+
+    /**
+     * the chaining value of the subtree of {@code chunks} chunks starting at
+     * chunk {@code chunkCtr}, where {@code chunks} is a power of 2 and divides
+     * {@code chunkCtr}
+     */
+    private static int[] subtreeCV(int[] keyWords, MemorySegment input, long offset, long chunkCtr, long chunks, int flags) {
+        if (chunks == 1) {
+            return chunkCV(keyWords, input, offset, chunkCtr, flags);
+        }
+        long half = chunks >>> 1;
+        return parent(subtreeCV(keyWords, input, offset, chunkCtr, half, flags),
+                subtreeCV(keyWords, input, offset + half * CHUNK_LEN, chunkCtr + half, half, flags),
+                keyWords, flags);
+    }
+
+    @SuppressWarnings("serial")
+    private static class SubtreeTask extends RecursiveTask<int[]> {
+
+        private final int[] keyWords;
+        private final MemorySegment input;
+        private final long offset, chunkCtr, chunks;
+        private final int flags;
+
+        private SubtreeTask(int[] keyWords, MemorySegment input, long offset, long chunkCtr, long chunks, int flags) {
+            this.keyWords = keyWords;
+            this.input = input;
+            this.offset = offset;
+            this.chunkCtr = chunkCtr;
+            this.chunks = chunks;
+            this.flags = flags;
+        }
+
+        @Override
+        protected int[] compute() {
+            if (chunks <= TASK_CHUNKS) {
+                return subtreeCV(keyWords, input, offset, chunkCtr, chunks, flags);
+            }
+            long half = chunks >>> 1;
+            var left = new SubtreeTask(keyWords, input, offset, chunkCtr, half, flags);
+            left.fork();
+            var right = new SubtreeTask(keyWords, input, offset + half * CHUNK_LEN, chunkCtr + half, half, flags).compute();
+            return parent(left.join(), right, keyWords, flags);
+        }
+    }
+
     private static Node parentOutput(int[] leftChild, int[] rightChild, int[] keyWords, int flags) {
         System.arraycopy(rightChild, 0, leftChild, 8, 8);
         return new Node(keyWords, leftChild, 0, BLOCK_LEN, flags | PARENT);
@@ -173,7 +242,27 @@ public enum Blake3 implements Xof, Mac {
 
     @Override
     public Xof.Engine start() {
-        return new Blake3Engine(DEFAULT_IV, 0);
+        return new Blake3Engine(DEFAULT_IV, 0, null);
+    }
+
+    /**
+     * starts an engine that hashes large inputs on {@code pool}. Whole
+     * subtrees of the input are hashed as separate tasks and merged in the
+     * usual order, so the output is the same as that of {@link #start()}.
+     * Inputs in confined segments are hashed on the calling thread
+     *
+     * @param pool the pool to run the subtrees on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public Xof.Engine start(ForkJoinPool pool) {
+        return new Blake3Engine(DEFAULT_IV, 0, Objects.requireNonNull(pool));
+    }
+
+    @Override
+    public Xof.Engine resume(byte[] state) {
+        var engine = new Blake3Engine(DEFAULT_IV, 0, null);
+        engine.importState(new StateReader(state, this));
+        return engine;
     }
 
     @Override
@@ -188,23 +277,79 @@ public enum Blake3 implements Xof, Mac {
 
     @Override
     public Mac.Engine start(byte[] key) {
-        var internal = new Blake3Engine(new int[]{
+        return macEngine(new Blake3Engine(keyWords(key), KEYED_HASH, null));
+    }
+
+    /**
+     * starts a keyed engine that hashes large inputs on {@code pool}, like
+     * {@link #start(ForkJoinPool)}
+     */
+    public Mac.Engine start(byte[] key, ForkJoinPool pool) {
+        return macEngine(new Blake3Engine(keyWords(key), KEYED_HASH, Objects.requireNonNull(pool)));
+    }
+
+    private static int[] keyWords(byte[] key) {
+        return new int[]{
             load32LE(key, 0), load32LE(key, 4), load32LE(key, 8), load32LE(key, 12),
             load32LE(key, 16), load32LE(key, 20), load32LE(key, 24), load32LE(key, 28)
-        }, KEYED_HASH);
+        };
+    }
 
+    private static Mac.Engine macEngine(Blake3Engine internal) {
         return new Mac.Engine() {
             @Override
             public void ingest(MemorySegment input) {
                 internal.ingest(input);
             }
 
+            private final byte[] temp = new byte[DEFAULT_HASH_LEN];
+
             @Override
             public void authenticateTo(byte[] tag, int offset, int length) {
                 internal.startDigesting();
                 internal.continueDigesting(tag, offset, length);
             }
 
+            @Override
+            public void authenticateTo(MemorySegment tag) {
+                internal.startDigesting();
+                internal.continueDigesting(tag.asSlice(0, Math.min(DEFAULT_HASH_LEN, tag.byteSize())));
+            }
+
+            @Override
+            public boolean verify(byte[] tag, int offset, int length) {
+                if (length > DEFAULT_HASH_LEN) {
+                    return Mac.Engine.super.verify(tag, offset, length);
+                }
+                authenticateTo(temp, 0, length);
+                return Tools.equals(temp, 0, tag, offset, length);
+            }
+
+            @Override
+            public boolean verify(MemorySegment tag) {
+                int length = (int) Math.min(DEFAULT_HASH_LEN, tag.byteSize());
+                authenticateTo(temp, 0, length);
+                return Tools.equals(temp, 0, tag, 0, length);
+            }
+
+            @Override
+            public void reset() {
+                internal.reset();
+            }
+
+            @Override
+            public void reset(byte[] key) {
+                if (key.length < 32) {
+                    throw new IllegalArgumentException("Blake3 requires a 32 byte key, " + key.length + " bytes provided");
+                }
+                internal.reset(key);
+            }
+
+            @Override
+            public Mac.Engine copy() {
+                return macEngine(internal.copy());
+            }
+
             @Override
             public Mac getAlgorithm() {
                 return BLAKE3;
@@ -239,6 +384,13 @@ public enum Blake3 implements Xof, Mac {
             this.flags = flags;
         }
 
+        private Node(Node src) {
+            this(src.inputCV.clone(), src.blockWords, src.counter, src.blockLen, src.flags);
+            outputCounter = src.outputCounter;
+            outputPosition = src.outputPosition;
+            System.arraycopy(src.outputBuffer, 0, outputBuffer, 0, 64);
+        }
+
         private int[] chain() {
             return compress(inputCV, blockWords, counter, blockLen, flags);
         }
@@ -264,6 +416,14 @@ public enum Blake3 implements Xof, Mac {
             store32LE(words[15], output, offset + 60);
         }
 
+        private void outputOneBlock(MemorySegment output, long offset) {
+            int[] words = compress(inputCV, blockWords, outputCounter++, blockLen, flags | ROOT);
+
+            for (int i = 0; i < 16; i++) {
+                output.set(LAYOUT, offset + 4 * i, words[i]);
+            }
+        }
+
         private void rootOutputBytes(byte[] output, int offset, int length) {
             if (outputPosition > 0) {
                 int take = Math.min(length, 64 - outputPosition);
@@ -285,11 +445,33 @@ public enum Blake3 implements Xof, Mac {
             }
         }
 
+        private void rootOutputBytes(MemorySegment output) {
+            long offset = 0, length = output.byteSize();
+            if (outputPosition > 0) {
+                int take = (int) Math.min(length, 64 - outputPosition);
+                MemorySegment.copy(outputBuffer, outputPosition, output, ValueLayout.JAVA_BYTE, offset, take);
+                offset += take;
+                length -= take;
+                outputPosition = (outputPosition + take) & 0x3f;
+            }
+            while (length >= 64) {
+                outputOneBlock(output, offset);
+
+                offset += 64;
+                length -= 64;
+            }
+            if (length > 0) {
+                outputOneBlock(outputBuffer, 0);
+                MemorySegment.copy(outputBuffer, 0, output, ValueLayout.JAVA_BYTE, offset, (int) length);
+                outputPosition = (int) length;
+            }
+        }
+
     }
 
     private static class ChunkState {
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(BLOCK_LEN);
+        private final MemorySegment buffer = Tools.allocate(BLOCK_LEN);
         private int position = 0;
         private int startFlag = CHUNK_START;
 
@@ -303,16 +485,15 @@ public enum Blake3 implements Xof, Mac {
             this.flags = flags;
         }
 
-        public int[] ingestFullChunk(MemorySegment input, long offset) {
-            chainingValue = compress(chainingValue, input, offset, chunkCtr, BLOCK_LEN, flags | CHUNK_START);
-            offset += 64;
-
-            for (int i = 64; i < 960; i += 64) {
-                chainingValue = compress(chainingValue, input, offset, chunkCtr, BLOCK_LEN, flags);
-                offset += 64;
-            }
+        private ChunkState(ChunkState src) {
+            this(src.chainingValue.clone(), src.chunkCtr, src.flags);
+            MemorySegment.copy(src.buffer, 0, buffer, 0, BLOCK_LEN);
+            position = src.position;
+            startFlag = src.startFlag;
+        }
 
-            return compress(chainingValue, input, offset, chunkCtr, BLOCK_LEN, flags | CHUNK_END);
+        public int[] ingestFullChunk(MemorySegment input, long offset) {
+            return chunkCV(chainingValue, input, offset, chunkCtr, flags);
         }
 
         public void ingest(MemorySegment input, long offset, long length) {
@@ -360,8 +541,12 @@ public enum Blake3 implements Xof, Mac {
         }
 
         private void reset(int[] keyWords) {
+            reset(keyWords, chunkCtr + 1);
+        }
+
+        private void reset(int[] keyWords, long chunkCtr) {
             chainingValue = keyWords;
-            chunkCtr++;
+            this.chunkCtr = chunkCtr;
             position = 0;
             startFlag = CHUNK_START;
         }
@@ -377,14 +562,30 @@ public enum Blake3 implements Xof, Mac {
         private final ChunkState state;
         private int position = 0;
 
+        private final ForkJoinPool pool;
+
         private Node out = null;
 
-        private Blake3Engine(int[] keyWords, int flags) {
+        private Blake3Engine(int[] keyWords, int flags, ForkJoinPool pool) {
             this.keyWords = keyWords;
             this.flags = flags;
+            this.pool = pool;
             this.state = new ChunkState(this.keyWords, 0, flags);
         }
 
+        private Blake3Engine(Blake3Engine src) {
+            for (int i = 0; i < src.cvStackLen; i++) {
+                cvStack[i] = src.cvStack[i].clone();
+            }
+            cvStackLen = src.cvStackLen;
+            keyWords = src.keyWords.clone();
+            flags = src.flags;
+            state = new ChunkState(src.state);
+            position = src.position;
+            pool = src.pool;
+            out = src.out == null ? null : new Node(src.out);
+        }
+
         private void addChunkCV(int[] newCV, long totalChunks) {
             while ((totalChunks & 1) == 0) {
                 newCV = parent(popStack(), newCV, keyWords, flags);
@@ -421,6 +622,26 @@ public enum Blake3 implements Xof, Mac {
                     position = 0;
                 }
             }
+            if (pool != null && length > PARALLEL_CHUNKS * CHUNK_LEN && Tools.isShared(input)) {
+                while (length > PARALLEL_CHUNKS * CHUNK_LEN) {
+                    //the largest subtree that starts at this chunk and leaves the last chunk alone
+                    long chunks = Long.highestOneBit((length - 1) / CHUNK_LEN);
+                    if (state.chunkCtr != 0) {
+                        chunks = Math.min(chunks, Long.lowestOneBit(state.chunkCtr));
+                    }
+                    if (chunks < PARALLEL_CHUNKS) {
+                        addChunkCV(state.ingestFullChunk(input, offset), state.chunkCtr + 1);
+                        state.reset(keyWords);
+                        chunks = 1;
+                    } else {
+                        addChunkCV(pool.invoke(new SubtreeTask(keyWords, input, offset, state.chunkCtr, chunks, flags)), (state.chunkCtr + chunks) / chunks);
+                        state.reset(keyWords, state.chunkCtr + chunks);
+                    }
+
+                    offset += chunks * CHUNK_LEN;
+                    length -= chunks * CHUNK_LEN;
+                }
+            }
             while (length > CHUNK_LEN) {
                 addChunkCV(state.ingestFullChunk(input, offset), state.chunkCtr + 1);
                 state.reset(keyWords);
@@ -428,8 +649,10 @@ public enum Blake3 implements Xof, Mac {
                 offset += CHUNK_LEN;
                 length -= CHUNK_LEN;
             }
-            state.ingest(input, offset, length);
-            position = (int) length;
+            if (length > 0) {
+                state.ingest(input, offset, length);
+                position = (int) length;
+            }
         }
 
         @Override
@@ -448,6 +671,66 @@ public enum Blake3 implements Xof, Mac {
             out.rootOutputBytes(output, offset, length);
         }
 
+        @Override
+        public void continueDigesting(MemorySegment output) {
+            out.rootOutputBytes(output);
+        }
+
+        @Override
+        public void reset() {
+            Arrays.fill(cvStack, 0, cvStackLen, null);
+            cvStackLen = 0;
+            state.reset(keyWords, 0);
+            position = 0;
+            out = null;
+        }
+
+        @Override
+        public Blake3Engine copy() {
+            return new Blake3Engine(this);
+        }
+
+        @Override
+        public byte[] exportState() {
+            if (out != null) {
+                throw new IllegalStateException("Cannot export the state after starting to digest!");
+            }
+            if (flags != 0) {
+                throw new UnsupportedOperationException("Keyed Blake3 engines can't export their state");
+            }
+            var writer = new StateWriter(BLAKE3).putInt(position).putInt(cvStackLen);
+            for (int i = 0; i < cvStackLen; i++) {
+                writer.putInts(cvStack[i], 8);
+            }
+            writer.putInts(state.chainingValue, 8).putLong(state.chunkCtr).putInt(state.startFlag);
+            return writer.putBytes(state.buffer, state.position).toByteArray();
+        }
+
+        private void importState(StateReader in) {
+            position = in.getInt(CHUNK_LEN);
+            cvStackLen = in.getInt(cvStack.length);
+            for (int i = 0; i < cvStackLen; i++) {
+                cvStack[i] = new int[16];
+                in.getInts(cvStack[i], 8);
+            }
+            state.chainingValue = new int[8];
+            in.getInts(state.chainingValue, 8);
+            state.chunkCtr = in.getCounter();
+            if (Long.bitCount(state.chunkCtr) != cvStackLen) {
+                throw new IllegalArgumentException("Corrupt state, " + cvStackLen + " chaining values for " + state.chunkCtr + " chunks");
+            }
+            state.startFlag = in.getInt(CHUNK_START);
+            state.position = in.getBytes(state.buffer, 0, BLOCK_LEN);
+            in.finish();
+        }
+
+        private void reset(byte[] key) {
+            for (int i = 0; i < 8; i++) {
+                keyWords[i] = load32LE(key, 4 * i);
+            }
+            reset();
+        }
+
         @Override
         public Xof getAlgorithm() {
             return BLAKE3;
@@ -1142,12 +1142,14 @@ public enum Groestl implements Digest {
     private static abstract class Groest512Engine extends AbstractDigestEngine {
 
         private final long[] temp1 = new long[8], temp2 = new long[8], temp3 = new long[8];
+        private final long[] iv;
         protected final long[] state;
         private long counter = 0;
 
         private Groest512Engine(long[] iv) {
             super(64);
-            state = iv;
+            this.iv = iv;
+            state = iv.clone();
         }
 
         @Override
@@ -1218,18 +1220,34 @@ public enum Groestl implements Digest {
             }
         }
 
+        @Override
+        protected void resetState() {
+            System.arraycopy(iv, 0, state, 0, state.length);
+            counter = 0;
+        }
+
+        @Override
+        public Digest.Engine copy() {
+            var copy = (Groest512Engine) getAlgorithm().start();
+            System.arraycopy(state, 0, copy.state, 0, state.length);
+            copy.counter = counter;
+            return copyBufferTo(copy);
+        }
+
     }
 
     @SuppressWarnings("unused")
     private static abstract class Groest1024Engine extends AbstractDigestEngine {
 
         private final long[] temp1 = new long[16], temp2 = new long[16], temp3 = new long[16];
+        private final long[] iv;
         protected final long[] state;
         private long counter = 0;
 
         private Groest1024Engine(long[] iv) {
             super(128);
-            state = iv;
+            this.iv = iv;
+            state = iv.clone();
         }
 
         @Override
@@ -1312,6 +1330,20 @@ public enum Groestl implements Digest {
             }
         }
 
+        @Override
+        protected void resetState() {
+            System.arraycopy(iv, 0, state, 0, state.length);
+            counter = 0;
+        }
+
+        @Override
+        public Digest.Engine copy() {
+            var copy = (Groest1024Engine) getAlgorithm().start();
+            System.arraycopy(state, 0, copy.state, 0, state.length);
+            copy.counter = counter;
+            return copyBufferTo(copy);
+        }
+
     }
 
 }
@@ -144,7 +144,7 @@ public enum Jh implements Digest {
 
                 @Override
                 public Digest getAlgorithm() {
-                    return JH_384;
+                    return JH_512;
                 }
 
             };
@@ -839,13 +839,15 @@ public enum Jh implements Digest {
 
     private abstract static class JhEngine extends AbstractDigestEngine {
 
+        private final long[] iv;
         protected final long[] state;
         private final long[] data = new long[8];
         private long counter = 0;
 
-        private JhEngine(long[] state) {
+        private JhEngine(long[] iv) {
             super(64);
-            this.state = state;
+            this.iv = iv;
+            this.state = iv.clone();
         }
 
         @Override
@@ -881,6 +883,20 @@ public enum Jh implements Digest {
             compress(state, data);
         }
 
+        @Override
+        protected void resetState() {
+            System.arraycopy(iv, 0, state, 0, state.length);
+            counter = 0;
+        }
+
+        @Override
+        public Digest.Engine copy() {
+            var copy = (JhEngine) getAlgorithm().start();
+            System.arraycopy(state, 0, copy.state, 0, state.length);
+            copy.counter = counter;
+            return copyBufferTo(copy);
+        }
+
     }
 
 }
@@ -4,13 +4,18 @@
  */
 package org.asterisk.crypto.hash;
 
-import java.lang.foreign.MemorySegment;
 import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.asterisk.crypto.Tested;
+import org.asterisk.crypto.helper.StateReader;
+import org.asterisk.crypto.helper.StateWriter;
 import org.asterisk.crypto.helper.Tools;
+import org.asterisk.crypto.lowlevel.KeccakP;
 import org.asterisk.crypto.Xof;
 
 import static org.asterisk.crypto.helper.Tools.store64LE;
@@ -24,6 +29,14 @@ public class KangarooTwelve implements Xof {
 
     private static final int BLOCK_SIZE = 168, CHUNK_SIZE = 8192;
 
+    /**
+     * leaves are only hashed in parallel in runs of at least
+     * {@code PARALLEL_LEAVES}, at most {@code BATCH_LEAVES} at a time so that
+     * the chaining values stay small, and split into tasks of up to
+     * {@code TASK_LEAVES} leaves
+     */
+    private static final int PARALLEL_LEAVES = 32, BATCH_LEAVES = 4096, TASK_LEAVES = 16;
+
     @Tested
     public static final KangarooTwelve DEFAULT = new KangarooTwelve(new byte[0]);
 
@@ -50,10 +63,33 @@ public class KangarooTwelve implements Xof {
 
     @Override
     public Engine start() {
+        return engine(null, null);
+    }
+
+    /**
+     * starts an engine that hashes the leaves of large inputs on {@code pool}.
+     * Their chaining values are fed into the final node in order, so the
+     * output is the same as that of {@link #start()}. Inputs in confined
+     * segments are hashed on the calling thread
+     *
+     * @param pool the pool to hash the leaves on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public Engine start(ForkJoinPool pool) {
+        return engine(null, Objects.requireNonNull(pool));
+    }
+
+    @Override
+    public Engine resume(byte[] state) {
+        return engine(new StateReader(state, this), null);
+    }
+
+    private Engine engine(StateReader resumed, ForkJoinPool pool) {
         return new Xof.Engine() {
 
+            private final Arena arena = Tools.arena();
             private final Node root = new Node();
-            private Node current = root;
+            private Node leaf = null, current = root;
 
             private final long[] output = new long[4];
 
@@ -62,6 +98,14 @@ public class KangarooTwelve implements Xof {
 
             private int chunkPos = 0;
 
+            private boolean digesting = false;
+
+            {
+                if (resumed != null) {
+                    importState(resumed);
+                }
+            }
+
             @Override
             public void ingest(MemorySegment input) {
                 long length = input.byteSize(), offset = 0;
@@ -73,8 +117,7 @@ public class KangarooTwelve implements Xof {
                     chunkPos += take;
                     if (chunkPos == CHUNK_SIZE && length > 0) {
                         if (chunkCtr++ == 0) {
-                            current = new Node();
-                            root.star();
+                            startLeaves();
                         } else {
                             current.chain(0x0b, output);
                             root.chain(output);
@@ -85,14 +128,30 @@ public class KangarooTwelve implements Xof {
                 }
                 while (length > CHUNK_SIZE) {
 
-                    current.ingestWholeChunk(input, offset, 0x0b, output);
-                    root.chain(output);
-                    current.reset();
+                    //whole chunks, always leaving the last one for startDigesting
+                    long chunks = (length - 1) / CHUNK_SIZE;
+                    if (chunkCtr == 0) {
+                        root.ingest(input, offset, CHUNK_SIZE);
+                        startLeaves();
+                        chunks = 1;
+                    } else if (pool != null && chunks >= PARALLEL_LEAVES && Tools.isShared(input)) {
+                        chunks = Math.min(chunks, BATCH_LEAVES);
+                        ingestLeaves(input, offset, (int) chunks, true);
+                    } else if (KeccakP.WAYS > 1 && chunks >= KeccakP.WAYS) {
+                        chunks = Math.min(chunks, BATCH_LEAVES);
+                        chunks -= chunks % KeccakP.WAYS;
+                        ingestLeaves(input, offset, (int) chunks, false);
+                    } else {
+                        current.ingestWholeChunk(input, offset, 0x0b, output);
+                        root.chain(output);
+                        current.reset();
+                        chunks = 1;
+                    }
 
-                    chunkCtr++;
+                    chunkCtr += chunks;
 
-                    offset += CHUNK_SIZE;
-                    length -= CHUNK_SIZE;
+                    offset += chunks * CHUNK_SIZE;
+                    length -= chunks * CHUNK_SIZE;
                 }
 
                 if (length > 0) {
@@ -101,8 +160,30 @@ public class KangarooTwelve implements Xof {
                 }
             }
 
+            private void ingestLeaves(MemorySegment input, long offset, int leaves, boolean parallel) {
+                long[] cvs = new long[4 * leaves];
+                if (parallel) {
+                    pool.invoke(new LeafTask(input, offset, cvs, 0, leaves));
+                } else {
+                    Node.leafCVs(input, offset, cvs, 0, leaves);
+                }
+                for (int i = 0; i < leaves; i++) {
+                    System.arraycopy(cvs, 4 * i, output, 0, 4);
+                    root.chain(output);
+                }
+            }
+
+            private void startLeaves() {
+                if (leaf == null) {
+                    leaf = Tools.inArena(arena, Node::new);
+                }
+                current = leaf;
+                root.star();
+            }
+
             @Override
             public void startDigesting() {
+                digesting = true;
                 ingest(customization);
                 ingest(lengthEncoded);
                 if (chunkCtr == 0) {
@@ -144,6 +225,66 @@ public class KangarooTwelve implements Xof {
                 }
             }
 
+            @Override
+            public void continueDigesting(MemorySegment dest) {
+                long offset = 0, length = dest.byteSize();
+                if (chunkPos > 0) {
+                    int give = (int) Math.min(BLOCK_SIZE - chunkPos, length);
+                    MemorySegment.copy(digestBuffer, chunkPos, dest, ValueLayout.JAVA_BYTE, offset, give);
+                    chunkPos += give;
+                    offset += give;
+                    length -= give;
+                    if (chunkPos == BLOCK_SIZE) {
+                        chunkPos = 0;
+                    }
+                }
+                while (length > 0) {
+                    int give = (int) Math.min(BLOCK_SIZE, length);
+                    root.digestOneBlock(digestBuffer, 0);
+                    MemorySegment.copy(digestBuffer, 0, dest, ValueLayout.JAVA_BYTE, offset, give);
+                    offset += give;
+                    length -= give;
+                    chunkPos = give % BLOCK_SIZE;
+                }
+            }
+
+            @Override
+            public void reset() {
+                root.reset();
+                if (leaf != null) {
+                    leaf.reset();
+                }
+                current = root;
+                chunkCtr = 0;
+                chunkPos = 0;
+                digesting = false;
+            }
+
+            @Override
+            public byte[] exportState() {
+                if (digesting) {
+                    throw new IllegalStateException("Cannot export the state after starting to digest!");
+                }
+                var out = new StateWriter(KangarooTwelve.this).putLong(chunkCtr).putInt(chunkPos);
+                root.writeState(out);
+                if (chunkCtr > 0) {
+                    leaf.writeState(out);
+                }
+                return out.toByteArray();
+            }
+
+            private void importState(StateReader in) {
+                chunkCtr = in.getCounter();
+                chunkPos = in.getInt(CHUNK_SIZE);
+                root.readState(in);
+                if (chunkCtr > 0) {
+                    leaf = Tools.inArena(arena, Node::new);
+                    leaf.readState(in);
+                    current = leaf;
+                }
+                in.finish();
+            }
+
             @Override
             public Xof getAlgorithm() {
                 return KangarooTwelve.this;
@@ -156,20 +297,56 @@ public class KangarooTwelve implements Xof {
         return 32;
     }
 
+    @Override
+    public String toString() {
+        return "KangarooTwelve{customization=" + new String(customization) + "}";
+    }
+
     @Override
     public int blockSize() {
         return BLOCK_SIZE;
     }
 
+    @SuppressWarnings("serial")
+    private static class LeafTask extends RecursiveAction {
+
+        private final MemorySegment input;
+        private final long offset;
+        private final long[] cvs;
+        private final int from, to;
+
+        private LeafTask(MemorySegment input, long offset, long[] cvs, int from, int to) {
+            this.input = input;
+            this.offset = offset;
+            this.cvs = cvs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_LEAVES) {
+                Node.leafCVs(input, offset, cvs, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LeafTask(input, offset, cvs, from, mid), new LeafTask(input, offset, cvs, mid, to));
+            }
+        }
+    }
+
     private static class Node {
 
         private static final ValueLayout.OfLong LAYOUT = Tools.LITTLE_ENDIAN_64_BIT;
 
         private final long[] state = new long[25];
-        private final MemorySegment buffer = Arena.ofAuto().allocate(BLOCK_SIZE);
+        private final MemorySegment buffer = Tools.allocate(BLOCK_SIZE);
         private int position = 0;
 
         private void round(MemorySegment input, long offset) {
+            round(state, input, offset);
+        }
+
+        private static void round(long[] state, MemorySegment input, long offset) {
             state[0] ^= input.get(LAYOUT, offset + 0);
             state[1] ^= input.get(LAYOUT, offset + 8);
             state[2] ^= input.get(LAYOUT, offset + 16);
@@ -198,8 +375,79 @@ public class KangarooTwelve implements Xof {
         public void ingestWholeChunk(MemorySegment input, long offset, int delimitedSuffix, long[] output) {
             assert position == 0;
 
+            wholeChunk(state, input, offset, delimitedSuffix);
+
+            output[0] = state[0];
+            output[1] = state[1];
+            output[2] = state[2];
+            output[3] = state[3];
+
+        }
+
+        /**
+         * hashes a whole chunk as a leaf into {@code cvs[index..index+4)}
+         * with a state of its own, so that it can run on any thread
+         */
+        private static void leafCV(MemorySegment input, long offset, long[] cvs, int index) {
+            long[] state = new long[25];
+            wholeChunk(state, input, offset, 0x0b);
+            System.arraycopy(state, 0, cvs, index, 4);
+        }
+
+        /**
+         * hashes the whole chunks {@code from} to {@code to} as leaves into
+         * {@code cvs}, {@link KeccakP#WAYS} chunks side by side at a time
+         */
+        private static void leafCVs(MemorySegment input, long offset, long[] cvs, int from, int to) {
+            int i = from;
+            if (KeccakP.WAYS > 1) {
+                int ways = KeccakP.WAYS;
+                long[] states = new long[25 * ways];
+                for (; to - i >= ways; i += ways) {
+                    Arrays.fill(states, 0);
+                    wholeChunks(states, ways, input, offset + (long) i * CHUNK_SIZE);
+                    for (int j = 0; j < ways; j++) {
+                        for (int w = 0; w < 4; w++) {
+                            cvs[4 * (i + j) + w] = states[ways * w + j];
+                        }
+                    }
+                }
+            }
+            for (; i < to; i++) {
+                leafCV(input, offset + (long) i * CHUNK_SIZE, cvs, 4 * i);
+            }
+        }
+
+        /**
+         * {@link #wholeChunk(long[], MemorySegment, long, int) wholeChunk} on
+         * {@code ways} consecutive chunks, with the states interleaved as
+         * {@link KeccakP#keccak_p1600(long[], int, int)} expects
+         */
+        private static void wholeChunks(long[] states, int ways, MemorySegment input, long offset) {
+            for (int b = 0; b < 48; b++) {
+                for (int j = 0; j < ways; j++) {
+                    long base = offset + (long) j * CHUNK_SIZE + b * BLOCK_SIZE;
+                    for (int w = 0; w < 21; w++) {
+                        states[ways * w + j] ^= input.get(LAYOUT, base + 8 * w);
+                    }
+                }
+                KeccakP.keccak_p1600(states, ways, 12);
+            }
+
+            for (int j = 0; j < ways; j++) {
+                long base = offset + (long) j * CHUNK_SIZE + 48 * BLOCK_SIZE;
+                for (int w = 0; w < 16; w++) {
+                    states[ways * w + j] ^= input.get(LAYOUT, base + 8 * w);
+                }
+                states[ways * 16 + j] ^= 0x0b;
+                states[ways * 20 + j] ^= 0x8000000000000000L;
+            }
+            KeccakP.keccak_p1600(states, ways, 12);
+        }
+
+        private static void wholeChunk(long[] state, MemorySegment input, long offset, int delimitedSuffix) {
             for (int i = 0; i < 48; i++) {
-                round(input, offset);
+                round(state, input, offset);
                 offset += BLOCK_SIZE;
             }
 
@@ -211,12 +459,6 @@ public class KangarooTwelve implements Xof {
             state[20] ^= 0x8000000000000000L;
 
             keccak_p1600(state, 12);
-
-            output[0] = state[0];
-            output[1] = state[1];
-            output[2] = state[2];
-            output[3] = state[3];
-
         }
 
         public void ingest(byte... input) {
@@ -370,6 +612,16 @@ public class KangarooTwelve implements Xof {
             position = 0;
         }
 
+        private void writeState(StateWriter out) {
+            out.putLongs(state, 25).putInt(position).putBytes(buffer, BLOCK_SIZE);
+        }
+
+        private void readState(StateReader in) {
+            in.getLongs(state, 25);
+            position = in.getInt(BLOCK_SIZE);
+            in.getBytes(buffer, BLOCK_SIZE, BLOCK_SIZE);
+        }
+
     }
 
 }
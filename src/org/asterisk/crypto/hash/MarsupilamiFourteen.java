@@ -4,12 +4,15 @@
  */
 package org.asterisk.crypto.hash;
 
-import java.lang.foreign.MemorySegment;
 import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.asterisk.crypto.helper.Tools;
+import org.asterisk.crypto.lowlevel.KeccakP;
 import org.asterisk.crypto.Xof;
 
 import static org.asterisk.crypto.helper.Tools.store64LE;
@@ -23,6 +26,19 @@ public class MarsupilamiFourteen implements Xof {
 
     private static final int BLOCK_SIZE = 136, CHUNK_SIZE = 8192;
 
+    /**
+     * chaining values are as long as the capacity, 64 bytes
+     */
+    private static final int CV_WORDS = 8;
+
+    /**
+     * leaves are only hashed in parallel in runs of at least
+     * {@code PARALLEL_LEAVES}, at most {@code BATCH_LEAVES} at a time so that
+     * the chaining values stay small, and split into tasks of up to
+     * {@code TASK_LEAVES} leaves
+     */
+    private static final int PARALLEL_LEAVES = 32, BATCH_LEAVES = 4096, TASK_LEAVES = 16;
+
     public static final MarsupilamiFourteen DEFAULT = new MarsupilamiFourteen(new byte[0]);
 
     public static byte[] lengthEncode(long length) {
@@ -47,12 +63,30 @@ public class MarsupilamiFourteen implements Xof {
 
     @Override
     public Xof.Engine start() {
+        return engine(null);
+    }
+
+    /**
+     * starts an engine that hashes the leaves of large inputs on {@code pool}.
+     * Their chaining values are fed into the final node in order, so the
+     * output is the same as that of {@link #start()}. Inputs in confined
+     * segments are hashed on the calling thread
+     *
+     * @param pool the pool to hash the leaves on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public Xof.Engine start(ForkJoinPool pool) {
+        return engine(Objects.requireNonNull(pool));
+    }
+
+    private Xof.Engine engine(ForkJoinPool pool) {
         return new Xof.Engine() {
 
+            private final Arena arena = Tools.arena();
             private final Node root = new Node();
-            private Node current = root;
+            private Node leaf = null, current = root;
 
-            private final long[] output = new long[4];
+            private final long[] output = new long[CV_WORDS];
 
             private final byte[] digestBuffer = new byte[BLOCK_SIZE];
             private long chunkCtr = 0;
@@ -70,8 +104,7 @@ public class MarsupilamiFourteen implements Xof {
                     chunkPos += take;
                     if (chunkPos == CHUNK_SIZE && length > 0) {
                         if (chunkCtr++ == 0) {
-                            current = new Node();
-                            root.star();
+                            startLeaves();
                         } else {
                             current.chain(0x0b, output);
                             root.chain(output);
@@ -82,14 +115,30 @@ public class MarsupilamiFourteen implements Xof {
                 }
                 while (length > CHUNK_SIZE) {
 
-                    current.ingestWholeChunk(input, offset, 0x0b, output);
-                    root.chain(output);
-                    current.reset();
+                    //whole chunks, always leaving the last one for startDigesting
+                    long chunks = (length - 1) / CHUNK_SIZE;
+                    if (chunkCtr == 0) {
+                        root.ingest(input, offset, CHUNK_SIZE);
+                        startLeaves();
+                        chunks = 1;
+                    } else if (pool != null && chunks >= PARALLEL_LEAVES && Tools.isShared(input)) {
+                        chunks = Math.min(chunks, BATCH_LEAVES);
+                        ingestLeaves(input, offset, (int) chunks, true);
+                    } else if (KeccakP.WAYS > 1 && chunks >= KeccakP.WAYS) {
+                        chunks = Math.min(chunks, BATCH_LEAVES);
+                        chunks -= chunks % KeccakP.WAYS;
+                        ingestLeaves(input, offset, (int) chunks, false);
+                    } else {
+                        current.ingestWholeChunk(input, offset, 0x0b, output);
+                        root.chain(output);
+                        current.reset();
+                        chunks = 1;
+                    }
 
-                    chunkCtr++;
+                    chunkCtr += chunks;
 
-                    offset += CHUNK_SIZE;
-                    length -= CHUNK_SIZE;
+                    offset += chunks * CHUNK_SIZE;
+                    length -= chunks * CHUNK_SIZE;
                 }
 
                 if (length > 0) {
@@ -98,6 +147,27 @@ public class MarsupilamiFourteen implements Xof {
                 }
             }
 
+            private void ingestLeaves(MemorySegment input, long offset, int leaves, boolean parallel) {
+                long[] cvs = new long[CV_WORDS * leaves];
+                if (parallel) {
+                    pool.invoke(new LeafTask(input, offset, cvs, 0, leaves));
+                } else {
+                    Node.leafCVs(input, offset, cvs, 0, leaves);
+                }
+                for (int i = 0; i < leaves; i++) {
+                    System.arraycopy(cvs, CV_WORDS * i, output, 0, CV_WORDS);
+                    root.chain(output);
+                }
+            }
+
+            private void startLeaves() {
+                if (leaf == null) {
+                    leaf = Tools.inArena(arena, Node::new);
+                }
+                current = leaf;
+                root.star();
+            }
+
             @Override
             public void startDigesting() {
                 ingest(customization);
@@ -141,6 +211,40 @@ public class MarsupilamiFourteen implements Xof {
                 }
             }
 
+            @Override
+            public void continueDigesting(MemorySegment dest) {
+                long offset = 0, length = dest.byteSize();
+                if (chunkPos > 0) {
+                    int give = (int) Math.min(BLOCK_SIZE - chunkPos, length);
+                    MemorySegment.copy(digestBuffer, chunkPos, dest, ValueLayout.JAVA_BYTE, offset, give);
+                    chunkPos += give;
+                    offset += give;
+                    length -= give;
+                    if (chunkPos == BLOCK_SIZE) {
+                        chunkPos = 0;
+                    }
+                }
+                while (length > 0) {
+                    int give = (int) Math.min(BLOCK_SIZE, length);
+                    root.digestOneBlock(digestBuffer, 0);
+                    MemorySegment.copy(digestBuffer, 0, dest, ValueLayout.JAVA_BYTE, offset, give);
+                    offset += give;
+                    length -= give;
+                    chunkPos = give % BLOCK_SIZE;
+                }
+            }
+
+            @Override
+            public void reset() {
+                root.reset();
+                if (leaf != null) {
+                    leaf.reset();
+                }
+                current = root;
+                chunkCtr = 0;
+                chunkPos = 0;
+            }
+
             @Override
             public Xof getAlgorithm() {
                 return MarsupilamiFourteen.this;
@@ -158,15 +262,46 @@ public class MarsupilamiFourteen implements Xof {
         return BLOCK_SIZE;
     }
 
+    @SuppressWarnings("serial")
+    private static class LeafTask extends RecursiveAction {
+
+        private final MemorySegment input;
+        private final long offset;
+        private final long[] cvs;
+        private final int from, to;
+
+        private LeafTask(MemorySegment input, long offset, long[] cvs, int from, int to) {
+            this.input = input;
+            this.offset = offset;
+            this.cvs = cvs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TASK_LEAVES) {
+                Node.leafCVs(input, offset, cvs, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new LeafTask(input, offset, cvs, from, mid), new LeafTask(input, offset, cvs, mid, to));
+            }
+        }
+    }
+
     private static class Node {
 
         private static final ValueLayout.OfLong LAYOUT = Tools.LITTLE_ENDIAN_64_BIT;
 
         private final long[] state = new long[25];
-        private final MemorySegment buffer = Arena.ofAuto().allocate(BLOCK_SIZE);
+        private final MemorySegment buffer = Tools.allocate(BLOCK_SIZE);
         private int position = 0;
 
         private void round(MemorySegment input, long offset) {
+            round(state, input, offset);
+        }
+
+        private static void round(long[] state, MemorySegment input, long offset) {
             for (int i = 0; i < 17; i++) {
                 state[i] ^= input.get(LAYOUT, offset + 8 * i);
             }
@@ -176,8 +311,76 @@ public class MarsupilamiFourteen implements Xof {
         public void ingestWholeChunk(MemorySegment input, long offset, int delimitedSuffix, long[] output) {
             assert position == 0;
 
+            wholeChunk(state, input, offset, delimitedSuffix);
+
+            System.arraycopy(state, 0, output, 0, CV_WORDS);
+        }
+
+        /**
+         * hashes a whole chunk as a leaf into
+         * {@code cvs[index..index+CV_WORDS)} with a state of its own, so that it
+         * can run on any thread
+         */
+        private static void leafCV(MemorySegment input, long offset, long[] cvs, int index) {
+            long[] state = new long[25];
+            wholeChunk(state, input, offset, 0x0b);
+            System.arraycopy(state, 0, cvs, index, CV_WORDS);
+        }
+
+        /**
+         * hashes the whole chunks {@code from} to {@code to} as leaves into
+         * {@code cvs}, {@link KeccakP#WAYS} chunks side by side at a time
+         */
+        private static void leafCVs(MemorySegment input, long offset, long[] cvs, int from, int to) {
+            int i = from;
+            if (KeccakP.WAYS > 1) {
+                int ways = KeccakP.WAYS;
+                long[] states = new long[25 * ways];
+                for (; to - i >= ways; i += ways) {
+                    Arrays.fill(states, 0);
+                    wholeChunks(states, ways, input, offset + (long) i * CHUNK_SIZE);
+                    for (int j = 0; j < ways; j++) {
+                        for (int w = 0; w < CV_WORDS; w++) {
+                            cvs[CV_WORDS * (i + j) + w] = states[ways * w + j];
+                        }
+                    }
+                }
+            }
+            for (; i < to; i++) {
+                leafCV(input, offset + (long) i * CHUNK_SIZE, cvs, CV_WORDS * i);
+            }
+        }
+
+        /**
+         * {@link #wholeChunk(long[], MemorySegment, long, int) wholeChunk} on
+         * {@code ways} consecutive chunks, with the states interleaved as
+         * {@link KeccakP#keccak_p1600(long[], int, int)} expects
+         */
+        private static void wholeChunks(long[] states, int ways, MemorySegment input, long offset) {
+            for (int b = 0; b < 60; b++) {
+                for (int j = 0; j < ways; j++) {
+                    long base = offset + (long) j * CHUNK_SIZE + b * BLOCK_SIZE;
+                    for (int w = 0; w < 17; w++) {
+                        states[ways * w + j] ^= input.get(LAYOUT, base + 8 * w);
+                    }
+                }
+                KeccakP.keccak_p1600(states, ways, 14);
+            }
+
+            for (int j = 0; j < ways; j++) {
+                long base = offset + (long) j * CHUNK_SIZE + 60 * BLOCK_SIZE;
+                for (int w = 0; w < 4; w++) {
+                    states[ways * w + j] ^= input.get(LAYOUT, base + 8 * w);
+                }
+                states[ways * 4 + j] ^= 0x0b;
+                states[ways * 16 + j] ^= 0x8000000000000000L;
+            }
+            KeccakP.keccak_p1600(states, ways, 14);
+        }
+
+        private static void wholeChunk(long[] state, MemorySegment input, long offset, int delimitedSuffix) {
             for (int i = 0; i < 60; i++) {
-                round(input, offset);
+                round(state, input, offset);
                 offset += BLOCK_SIZE;
             }
 
@@ -189,12 +392,6 @@ public class MarsupilamiFourteen implements Xof {
             state[16] ^= 0x8000000000000000L;
 
             keccak_p1600(state, 14);
-
-            output[0] = state[0];
-            output[1] = state[1];
-            output[2] = state[2];
-            output[3] = state[3];
-
         }
 
         public void ingest(byte... input) {
@@ -228,48 +425,14 @@ public class MarsupilamiFourteen implements Xof {
             assert (position & 7) == 0;
 
             int x = position >>> 3;
-
-            switch (x) {
-                case 13 -> {
-                    state[13] ^= output[0];
-                    state[14] ^= output[1];
-                    state[15] ^= output[2];
-                    state[16] ^= output[3];
-                    keccak_p1600(state, 14);
-                    position = 0;
-                }
-                case 14 -> {
-                    state[14] ^= output[0];
-                    state[15] ^= output[1];
-                    state[16] ^= output[2];
+            for (int i = 0; i < CV_WORDS; i++) {
+                state[x++] ^= output[i];
+                if (x == 17) {
                     keccak_p1600(state, 14);
-                    state[0] ^= output[3];
-                    position = 8;
-                }
-                case 15 -> {
-                    state[15] ^= output[0];
-                    state[16] ^= output[1];
-                    keccak_p1600(state, 14);
-                    state[0] ^= output[2];
-                    state[1] ^= output[3];
-                    position = 16;
-                }
-                case 16 -> {
-                    state[16] ^= output[0];
-                    keccak_p1600(state, 14);
-                    state[0] ^= output[1];
-                    state[1] ^= output[2];
-                    state[2] ^= output[3];
-                    position = 24;
-                }
-                default -> {
-                    state[x + 0] ^= output[0];
-                    state[x + 1] ^= output[1];
-                    state[x + 2] ^= output[2];
-                    state[x + 3] ^= output[3];
-                    position += 32;
+                    x = 0;
                 }
             }
+            position = x << 3;
         }
 
         public void chainLast(byte delimitedSuffix, long[] output) {
@@ -283,10 +446,7 @@ public class MarsupilamiFourteen implements Xof {
 
             round(buffer, 0);
 
-            output[0] = state[0];
-            output[1] = state[1];
-            output[2] = state[2];
-            output[3] = state[3];
+            System.arraycopy(state, 0, output, 0, CV_WORDS);
         }
 
         private void chain(int delimitedSuffix, long[] output) {
@@ -301,10 +461,7 @@ public class MarsupilamiFourteen implements Xof {
 
             keccak_p1600(state, 14);
 
-            output[0] = state[0];
-            output[1] = state[1];
-            output[2] = state[2];
-            output[3] = state[3];
+            System.arraycopy(state, 0, output, 0, CV_WORDS);
         }
 
         private void star() {
@@ -318,7 +475,7 @@ public class MarsupilamiFourteen implements Xof {
 
             buffer.fill((byte) 0);
 
-            position = 32;
+            position = 40;
         }
 
         public void startDigesting(byte delimitedSuffix) {
@@ -5,9 +5,11 @@
 package org.asterisk.crypto.hash;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.lang.foreign.ValueLayout;
 import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.lowlevel.KeccakP;
@@ -20,62 +22,125 @@ import static org.asterisk.crypto.lowlevel.KeccakP.keccak_f1600;
  */
 public class ParallelHash256 implements Digest {
 
-    private static final int BLOCK_SIZE = 136, DIGEST_LEN = 64;
+    private static final int BLOCK_SIZE = 136, DIGEST_LEN = 64, CV_WORDS = 8;
+
+    /**
+     * chunks are only hashed in parallel in runs of at least
+     * {@code PARALLEL_BYTES} bytes, at most {@code BATCH_CHUNKS} at a time so
+     * that the chaining values stay small, and split into tasks of about
+     * {@code TASK_BYTES} bytes
+     */
+    private static final int PARALLEL_BYTES = 1 << 18, BATCH_CHUNKS = 1 << 16, TASK_BYTES = 1 << 16;
 
     private static final ValueLayout.OfLong LAYOUT = Tools.LITTLE_ENDIAN_64_BIT;
 
-    private static final long PREFIX_0 = 0x01a8010c50617261L, PREFIX_1 = 0x6c6c656c48617368L;
+    private static final byte[] NAME = "ParallelHash".getBytes();
 
-    private static long[] precomputeState(byte[] customization) {
-        if (customization.length > 118) {
-            throw new UnsupportedOperationException("Customization strings of over 118 bytes are not supported yet!");
+    private static byte[] leftEncode(long value) {
+        int n = Math.max(1, Math.ceilDiv(64 - Long.numberOfLeadingZeros(value), 8));
+        byte[] ret = new byte[n + 1];
+        ret[0] = (byte) n;
+        for (int i = n; i > 0; i--, value >>>= 8) {
+            ret[i] = (byte) value;
         }
+        return ret;
+    }
 
-        long[] state = new long[25];
-
-        state[0] = PREFIX_0;
-        state[1] = PREFIX_1;
-
-        byte[] buffer = new byte[BLOCK_SIZE - 16];
+    private static byte[] rightEncode(long value) {
+        int n = Math.max(1, Math.ceilDiv(64 - Long.numberOfLeadingZeros(value), 8));
+        byte[] ret = new byte[n + 1];
+        ret[n] = (byte) n;
+        for (int i = n - 1; i >= 0; i--, value >>>= 8) {
+            ret[i] = (byte) value;
+        }
+        return ret;
+    }
 
-        buffer[0] = 0x01;
-        buffer[0] = (byte) customization.length;
-        System.arraycopy(customization, 0, buffer, 2, customization.length);
+    /**
+     * absorbs {@code bytepad(encode_string(N) || encode_string(S), 136)} with
+     * the function name {@code N = "ParallelHash"}
+     */
+    private static long[] precomputeState(byte[] customization) {
+        byte[] rate = leftEncode(BLOCK_SIZE), name = leftEncode(8L * NAME.length), custom = leftEncode(8L * customization.length);
 
-        for (int i = 0; i < 15; i++) {
-            state[i + 2] = Tools.load64BE(buffer, 8 * i);
+        byte[] buffer = new byte[BLOCK_SIZE * Math.ceilDiv(rate.length + name.length + NAME.length + custom.length + customization.length, BLOCK_SIZE)];
+        int position = 0;
+        for (byte[] part : new byte[][]{rate, name, NAME, custom, customization}) {
+            System.arraycopy(part, 0, buffer, position, part.length);
+            position += part.length;
         }
 
-        KeccakP.keccak_f1600(state);
-
+        long[] state = new long[25];
+        for (int offset = 0; offset < buffer.length; offset += BLOCK_SIZE) {
+            for (int i = 0; i < BLOCK_SIZE / 8; i++) {
+                state[i] ^= Tools.load64LE(buffer, offset + 8 * i);
+            }
+            keccak_f1600(state);
+        }
         return state;
-
     }
 
     private final long[] precomputedState;
     private final long chunkSize;
+    private final byte[] encodedChunkSize;
 
     public ParallelHash256(String customization, long chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("ParallelHash256 requires a positive chunk size, " + chunkSize + " provided");
+        }
         this.precomputedState = precomputeState(customization.getBytes());
         this.chunkSize = chunkSize;
+        this.encodedChunkSize = leftEncode(chunkSize);
     }
 
     @Override
     public Digest.Engine start() {
+        return engine(null);
+    }
+
+    /**
+     * starts an engine that hashes the chunks of large inputs on
+     * {@code pool}. Their outputs are absorbed in order, so the digest is the
+     * same as that of {@link #start()}. Inputs in confined segments are hashed
+     * on the calling thread
+     *
+     * @param pool the pool to hash the chunks on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public Digest.Engine start(ForkJoinPool pool) {
+        return engine(Objects.requireNonNull(pool));
+    }
+
+    private Digest.Engine engine(ForkJoinPool pool) {
         return new Digest.Engine() {
 
-            private final Chunk current = new Chunk();
-            private final Root root = new Root(precomputedState);
+            private final Chunk current = new Chunk(Tools.allocate(BLOCK_SIZE));
+            private final Root root = new Root(precomputedState, encodedChunkSize);
             private long chunkPos = 0;
 
-            private final long[] chaining = new long[8];
+            private final long[] chaining = new long[CV_WORDS];
 
-            private int nChunks = 0;
+            private long nChunks = 0;
 
             @Override
             public void ingest(MemorySegment input) {
                 long length = input.byteSize(), offset = 0;
                 while (length + chunkPos >= chunkSize) {
+                    if (chunkPos == 0) {
+                        long chunks = Math.min(length / chunkSize, BATCH_CHUNKS);
+                        if (pool != null && chunks > 1 && length >= PARALLEL_BYTES && Tools.isShared(input)) {
+                            ingestChunks(input, offset, (int) chunks, true);
+                            offset += chunks * chunkSize;
+                            length -= chunks * chunkSize;
+                            continue;
+                        } else if (KeccakP.WAYS > 1 && chunks >= KeccakP.WAYS) {
+                            chunks -= chunks % KeccakP.WAYS;
+                            ingestChunks(input, offset, (int) chunks, false);
+                            offset += chunks * chunkSize;
+                            length -= chunks * chunkSize;
+                            continue;
+                        }
+                    }
                     long take = chunkSize - chunkPos;
 
                     current.ingest(input, offset, take);
@@ -95,6 +160,20 @@ public class ParallelHash256 implements Digest {
                 }
             }
 
+            private void ingestChunks(MemorySegment input, long offset, int chunks, boolean parallel) {
+                long[] cvs = new long[CV_WORDS * chunks];
+                if (parallel) {
+                    pool.invoke(new ChunkTask(input, offset, chunkSize, cvs, 0, chunks));
+                } else {
+                    Chunk.chunkCVs(input, offset, chunkSize, cvs, 0, chunks);
+                }
+                for (int i = 0; i < chunks; i++) {
+                    System.arraycopy(cvs, CV_WORDS * i, chaining, 0, CV_WORDS);
+                    root.chain(chaining);
+                }
+                nChunks += chunks;
+            }
+
             @Override
             public void digestTo(byte[] dest, int offset) {
                 if (chunkPos > 0) {
@@ -106,6 +185,14 @@ public class ParallelHash256 implements Digest {
                 root.finish(nChunks, dest, offset);
             }
 
+            @Override
+            public void reset() {
+                current.reset();
+                root.reset(precomputedState, encodedChunkSize);
+                chunkPos = 0;
+                nChunks = 0;
+            }
+
             @Override
             public Digest getAlgorithm() {
                 return ParallelHash256.this;
@@ -123,12 +210,73 @@ public class ParallelHash256 implements Digest {
         return BLOCK_SIZE;
     }
 
+    @SuppressWarnings("serial")
+    private static class ChunkTask extends RecursiveAction {
+
+        private final MemorySegment input;
+        private final long offset, chunkSize;
+        private final long[] cvs;
+        private final int from, to;
+
+        private ChunkTask(MemorySegment input, long offset, long chunkSize, long[] cvs, int from, int to) {
+            this.input = input;
+            this.offset = offset;
+            this.chunkSize = chunkSize;
+            this.cvs = cvs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= Math.max(1, TASK_BYTES / chunkSize)) {
+                Chunk.chunkCVs(input, offset, chunkSize, cvs, from, to);
+            } else {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ChunkTask(input, offset, chunkSize, cvs, from, mid), new ChunkTask(input, offset, chunkSize, cvs, mid, to));
+            }
+        }
+    }
+
     private static final class Chunk {
 
         private final long[] state = new long[25];
-        private final MemorySegment buffer = Arena.ofAuto().allocate(BLOCK_SIZE);
+        private final MemorySegment buffer;
         private int position = 0;
 
+        private Chunk(MemorySegment buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * hashes the whole chunks {@code from} to {@code to} into {@code cvs},
+         * {@link KeccakP#WAYS} chunks side by side at a time
+         */
+        private static void chunkCVs(MemorySegment input, long offset, long chunkSize, long[] cvs, int from, int to) {
+            var chunk = new Chunk(MemorySegment.ofArray(new byte[BLOCK_SIZE]));
+            int i = from;
+            if (KeccakP.WAYS > 1) {
+                int ways = KeccakP.WAYS;
+                long[] states = new long[25 * ways];
+                for (; to - i >= ways; i += ways) {
+                    Arrays.fill(states, 0);
+                    chunk.wholeChunks(states, ways, input, offset + i * chunkSize, chunkSize);
+                    for (int j = 0; j < ways; j++) {
+                        for (int w = 0; w < CV_WORDS; w++) {
+                            cvs[CV_WORDS * (i + j) + w] = states[ways * w + j];
+                        }
+                    }
+                }
+            }
+            long[] cv = new long[CV_WORDS];
+            for (; i < to; i++) {
+                chunk.ingest(input, offset + i * chunkSize, chunkSize);
+                chunk.finish(cv);
+                System.arraycopy(cv, 0, cvs, CV_WORDS * i, CV_WORDS);
+                chunk.reset();
+            }
+        }
+
         private void ingestOneBlock(MemorySegment input, long offset) {
             for (int i = 0; i < 17; i++) {
                 state[i] ^= input.get(LAYOUT, offset + 8 * i);
@@ -136,6 +284,24 @@ public class ParallelHash256 implements Digest {
             KeccakP.keccak_f1600(state);
         }
 
+        private void pad(int position) {
+            if (position == BLOCK_SIZE - 1) {
+                buffer.set(ValueLayout.JAVA_BYTE, position, (byte) 0x9f);
+            } else {
+                buffer.set(ValueLayout.JAVA_BYTE, position, (byte) 0x1f);
+                buffer.asSlice(position + 1, BLOCK_SIZE - 2 - position).fill((byte) 0);
+                buffer.set(ValueLayout.JAVA_BYTE, BLOCK_SIZE - 1, (byte) 0x80);
+            }
+        }
+
+        public void finish(long[] output) {
+            pad(position);
+
+            ingestOneBlock(buffer, 0);
+
+            System.arraycopy(state, 0, output, 0, 8);
+        }
+
         public void ingest(MemorySegment input, long offset, long length) {
             if (position > 0) {
                 int take = (int) Math.min(length, BLOCK_SIZE - position);
@@ -159,74 +325,101 @@ public class ParallelHash256 implements Digest {
             }
         }
 
-        public void finish(long[] output) {
-            if (position == BLOCK_SIZE - 1) {
-                buffer.set(ValueLayout.JAVA_BYTE, position, (byte) 0x9f);
-            } else {
-                buffer.set(ValueLayout.JAVA_BYTE, position, (byte) 0x1f);
-                buffer.asSlice(position + 1, BLOCK_SIZE - 2 - position).fill((byte) 0);
-                buffer.set(ValueLayout.JAVA_BYTE, BLOCK_SIZE - 1, (byte) 0x80);
-            }
-
-            ingestOneBlock(buffer, 0);
-
-            System.arraycopy(state, 0, output, 0, 8);
-        }
-
         public void reset() {
             Arrays.fill(state, 0);
+            position = 0;
+        }
+
+        /**
+         * hashes {@code ways} consecutive chunks of {@code chunkSize} bytes
+         * side by side, leaving word {@code i} of the output of chunk
+         * {@code j} in {@code states[ways * i + j]}. This chunk must be empty
+         * and stays so, only its buffer is used
+         */
+        public void wholeChunks(long[] states, int ways, MemorySegment input, long offset, long chunkSize) {
+            long blocks = chunkSize / BLOCK_SIZE;
+            int tail = (int) (chunkSize % BLOCK_SIZE);
+            for (long b = 0; b < blocks; b++) {
+                for (int j = 0; j < ways; j++) {
+                    long base = offset + j * chunkSize + b * BLOCK_SIZE;
+                    for (int i = 0; i < 17; i++) {
+                        states[ways * i + j] ^= input.get(LAYOUT, base + 8 * i);
+                    }
+                }
+                KeccakP.keccak_p1600(states, ways, 24);
+            }
+            for (int j = 0; j < ways; j++) {
+                MemorySegment.copy(input, offset + j * chunkSize + blocks * BLOCK_SIZE, buffer, 0, tail);
+                pad(tail);
+                for (int i = 0; i < 17; i++) {
+                    states[ways * i + j] ^= buffer.get(LAYOUT, 8 * i);
+                }
+            }
+            KeccakP.keccak_p1600(states, ways, 24);
         }
     }
 
+    /**
+     * the outer cSHAKE256, absorbing
+     * {@code left_encode(B) || z_0 || ... || z_(n-1) || right_encode(n) || right_encode(L)}
+     */
     private static final class Root {
 
-        private final long[] state;
+        private final long[] state = new long[25];
+        private final byte[] buffer = new byte[BLOCK_SIZE], cv = new byte[8 * CV_WORDS];
         private int position = 0;
 
-        private Root(long[] precomputed) {
-            this.state = precomputed.clone();
+        private Root(long[] precomputed, byte[] encodedChunkSize) {
+            reset(precomputed, encodedChunkSize);
         }
 
-        public void chain(long[] output) {
-            if (position < 9) {
-                for (int i = 0; i < 8; i++) {
-                    state[position++] ^= output[i];
-                }
-            } else {
-                int i;
-                for (i = 0; position < 17; i++) {
-                    state[position++] ^= output[i];
-                }
-                keccak_f1600(state);
-                position = 0;
-                for (; i < 8; i++) {
-                    state[position++] ^= output[i];
+        public void reset(long[] precomputed, byte[] encodedChunkSize) {
+            System.arraycopy(precomputed, 0, state, 0, 25);
+            position = 0;
+            absorb(encodedChunkSize);
+        }
+
+        private void absorb(byte[] bytes) {
+            int offset = 0, length = bytes.length;
+            while (length > 0) {
+                int take = Math.min(length, BLOCK_SIZE - position);
+                System.arraycopy(bytes, offset, buffer, position, take);
+                offset += take;
+                length -= take;
+                position += take;
+                if (position == BLOCK_SIZE) {
+                    permute();
                 }
             }
         }
 
-        public void finish(int length, byte[] output, int offset) {
-            int n = length == 0 ? 1 : Math.ceilDiv(32 - Integer.numberOfLeadingZeros(length), 8);
-
-            byte[] buf = new byte[8];
-            for (int i = n - 1; length != 0; i--, length >>>= 8) {
-                buf[i] = (byte) (length & 0xff);
+        private void permute() {
+            for (int i = 0; i < BLOCK_SIZE / 8; i++) {
+                state[i] ^= Tools.load64LE(buffer, 8 * i);
             }
-            buf[n] = (byte) n;
-            buf[n + 1] = (byte) DIGEST_LEN;
-            buf[n + 2] = 0x01;
+            keccak_f1600(state);
+            position = 0;
+        }
 
-            buf[n + 3] = 0x04;
+        public void chain(long[] output) {
+            for (int i = 0; i < CV_WORDS; i++) {
+                Tools.store64LE(output[i], cv, 8 * i);
+            }
+            absorb(cv);
+        }
 
-            state[position] ^= Tools.load64LE(buf, 0);
-            state[16] ^= 0x8000000000000000L;
+        public void finish(long chunks, byte[] output, int offset) {
+            absorb(rightEncode(chunks));
+            absorb(rightEncode(8L * DIGEST_LEN));
 
-            keccak_f1600(state);
+            Arrays.fill(buffer, position, BLOCK_SIZE, (byte) 0);
+            buffer[position] = 0x04;
+            buffer[BLOCK_SIZE - 1] |= (byte) 0x80;
+            permute();
 
-            for (int i = 0; i < 8; i++) {
+            for (int i = 0; i < DIGEST_LEN / 8; i++) {
                 Tools.store64LE(state[i], output, offset + 8 * i);
             }
-
         }
 
     }
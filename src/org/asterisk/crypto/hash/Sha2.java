@@ -6,12 +6,21 @@ package org.asterisk.crypto.hash;
 
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.security.MessageDigest;
+import java.util.Objects;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.Tested;
 import org.asterisk.crypto.helper.AbstractDigestEngine;
+import org.asterisk.crypto.helper.JdkDigestEngine;
+import org.asterisk.crypto.helper.StateReader;
+import org.asterisk.crypto.helper.StateWriter;
 import org.asterisk.crypto.helper.Tools;
 
 /**
+ * Engines are backed by {@link JdkDigestEngine} when the JDK's own, intrinsified,
+ * implementation is available, and by the Java implementations here otherwise.
+ * Only the latter can export their state, so engines that will be exported
+ * should be started with {@link #startExportable()}. Either can resume one
  *
  * @author Sayantan Chakraborty
  */
@@ -22,16 +31,34 @@ public enum Sha2 implements Digest {
 
         private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
 
+        private static final int[] IV = {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
+            0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+        };
+
+        private static final MessageDigest JDK = JdkDigestEngine.prototype("SHA-256");
+
         @Override
         public Engine start() {
+            return JDK != null ? new JdkDigestEngine(this, JDK) : startExportable();
+        }
+
+        @Override
+        public Engine startExportable() {
+            return engine(IV.clone(), 0);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new int[8], 0).importState(state);
+        }
+
+        private AbstractDigestEngine engine(int[] initialState, long initialLength) {
             return new AbstractDigestEngine(64) {
 
-                private final int[] state = {
-                    0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a,
-                    0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
-                }, expand = new int[64];
+                private final int[] state = initialState, expand = new int[64];
 
-                private long msglen = 0;
+                private long msglen = initialLength;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -173,6 +200,28 @@ public enum Sha2 implements Digest {
                     Tools.store32BE(state[7], dest, offset + 28);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 8);
+                    msglen = 0;
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone(), msglen));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putInts(state, 8).putLong(msglen);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getInts(state, 8);
+                    msglen = in.getCounter();
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return Sha2.SHA_256;
@@ -181,6 +230,20 @@ public enum Sha2 implements Digest {
             };
         }
 
+        /**
+         * hashes the messages {@code Sha256Vector.LANES} at a time in vector
+         * lanes when the vector api is available
+         */
+        @Override
+        public void digestAll(MemorySegment[] inputs, MemorySegment output) {
+            if (MULTI_BUFFER && inputs.length > 1) {
+                Objects.checkFromIndexSize(0, 32L * inputs.length, output.byteSize());
+                Sha256Vector.digestAll(IV, 8, inputs, output);
+            } else {
+                super.digestAll(inputs, output);
+            }
+        }
+
         @Override
         public int digestSize() {
             return 32;
@@ -196,16 +259,34 @@ public enum Sha2 implements Digest {
 
         private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
 
+        private static final int[] IV = {
+            0xc1059ed8, 0x367cd507, 0x3070dd17, 0xf70e5939,
+            0xffc00b31, 0x68581511, 0x64f98fa7, 0xbefa4fa4
+        };
+
+        private static final MessageDigest JDK = JdkDigestEngine.prototype("SHA-224");
+
         @Override
         public Engine start() {
+            return JDK != null ? new JdkDigestEngine(this, JDK) : startExportable();
+        }
+
+        @Override
+        public Engine startExportable() {
+            return engine(IV.clone(), 0);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new int[8], 0).importState(state);
+        }
+
+        private AbstractDigestEngine engine(int[] initialState, long initialLength) {
             return new AbstractDigestEngine(64) {
 
-                private final int[] state = {
-                    0xc1059ed8, 0x367cd507, 0x3070dd17, 0xf70e5939,
-                    0xffc00b31, 0x68581511, 0x64f98fa7, 0xbefa4fa4
-                }, expand = new int[64];
+                private final int[] state = initialState, expand = new int[64];
 
-                private long msglen = 0;
+                private long msglen = initialLength;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -346,6 +427,28 @@ public enum Sha2 implements Digest {
                     Tools.store32BE(state[6], dest, offset + 24);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 8);
+                    msglen = 0;
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone(), msglen));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putInts(state, 8).putLong(msglen);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getInts(state, 8);
+                    msglen = in.getCounter();
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return Sha2.SHA_224;
@@ -354,6 +457,20 @@ public enum Sha2 implements Digest {
             };
         }
 
+        /**
+         * hashes the messages {@code Sha256Vector.LANES} at a time in vector
+         * lanes when the vector api is available
+         */
+        @Override
+        public void digestAll(MemorySegment[] inputs, MemorySegment output) {
+            if (MULTI_BUFFER && inputs.length > 1) {
+                Objects.checkFromIndexSize(0, 28L * inputs.length, output.byteSize());
+                Sha256Vector.digestAll(IV, 7, inputs, output);
+            } else {
+                super.digestAll(inputs, output);
+            }
+        }
+
         @Override
         public int digestSize() {
             return 28;
@@ -370,16 +487,34 @@ public enum Sha2 implements Digest {
 
         private static final ValueLayout.OfLong LAYOUT = Tools.BIG_ENDIAN_64_BIT;
 
+        private static final long[] IV = {
+            0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+            0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+        };
+
+        private static final MessageDigest JDK = JdkDigestEngine.prototype("SHA-512");
+
         @Override
         public Engine start() {
+            return JDK != null ? new JdkDigestEngine(this, JDK) : startExportable();
+        }
+
+        @Override
+        public Engine startExportable() {
+            return engine(IV.clone(), 0);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new long[8], 0).importState(state);
+        }
+
+        private AbstractDigestEngine engine(long[] initialState, long initialLength) {
             return new AbstractDigestEngine(128) {
 
-                private final long[] state = {
-                    0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
-                    0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
-                }, expand = new long[80];
+                private final long[] state = initialState, expand = new long[80];
 
-                private long msglen = 0;
+                private long msglen = initialLength;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -521,6 +656,28 @@ public enum Sha2 implements Digest {
                     Tools.store64BE(state[7], dest, offset + 56);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 8);
+                    msglen = 0;
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone(), msglen));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putLongs(state, 8).putLong(msglen);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getLongs(state, 8);
+                    msglen = in.getCounter();
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return Sha2.SHA_512;
@@ -543,16 +700,34 @@ public enum Sha2 implements Digest {
 
         private static final ValueLayout.OfLong LAYOUT = Tools.BIG_ENDIAN_64_BIT;
 
+        private static final long[] IV = {
+            0xcbbb9d5dc1059ed8L, 0x629a292a367cd507L, 0x9159015a3070dd17L, 0x152fecd8f70e5939L,
+            0x67332667ffc00b31L, 0x8eb44a8768581511L, 0xdb0c2e0d64f98fa7L, 0x47b5481dbefa4fa4L
+        };
+
+        private static final MessageDigest JDK = JdkDigestEngine.prototype("SHA-384");
+
         @Override
         public Engine start() {
+            return JDK != null ? new JdkDigestEngine(this, JDK) : startExportable();
+        }
+
+        @Override
+        public Engine startExportable() {
+            return engine(IV.clone(), 0);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new long[8], 0).importState(state);
+        }
+
+        private AbstractDigestEngine engine(long[] initialState, long initialLength) {
             return new AbstractDigestEngine(128) {
 
-                private final long[] state = {
-                    0xcbbb9d5dc1059ed8L, 0x629a292a367cd507L, 0x9159015a3070dd17L, 0x152fecd8f70e5939L,
-                    0x67332667ffc00b31L, 0x8eb44a8768581511L, 0xdb0c2e0d64f98fa7L, 0x47b5481dbefa4fa4L
-                }, expand = new long[80];
+                private final long[] state = initialState, expand = new long[80];
 
-                private long msglen = 0;
+                private long msglen = initialLength;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -692,6 +867,28 @@ public enum Sha2 implements Digest {
                     Tools.store64BE(state[5], dest, offset + 40);
                 }
 
+                @Override
+                protected void resetState() {
+                    System.arraycopy(IV, 0, state, 0, 8);
+                    msglen = 0;
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone(), msglen));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putLongs(state, 8).putLong(msglen);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getLongs(state, 8);
+                    msglen = in.getCounter();
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return Sha2.SHA_384;
@@ -711,7 +908,19 @@ public enum Sha2 implements Digest {
         }
     };
 
-    private static final int[] RCON_32 = {
+    /**
+     * starts an engine of the Java implementation, whose state can always be
+     * exported, whether or not {@link #start()} would be backed by the JDK
+     */
+    public abstract Engine startExportable();
+
+    /**
+     * {@link Sha256Vector} is only loaded when the vector api is present and
+     * the hardware has at least 4 int lanes
+     */
+    private static final boolean MULTI_BUFFER = Tools.VECTOR_API && Sha256Vector.LANES >= 4;
+
+    static final int[] RCON_32 = {
         0x428a2f98, 0x71374491, 0xb5c0fbcf, 0xe9b5dba5, 0x3956c25b, 0x59f111f1, 0x923f82a4, 0xab1c5ed5,
         0xd807aa98, 0x12835b01, 0x243185be, 0x550c7dc3, 0x72be5d74, 0x80deb1fe, 0x9bdc06a7, 0xc19bf174,
         0xe49b69c1, 0xefbe4786, 0x0fc19dc6, 0x240ca1cc, 0x2de92c6f, 0x4a7484aa, 0x5cb0a9dc, 0x76f988da,
@@ -0,0 +1,205 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.hash;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+import org.asterisk.crypto.helper.Tools;
+
+import static jdk.incubator.vector.VectorOperators.AND;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.OR;
+import static jdk.incubator.vector.VectorOperators.ROR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * multi-buffer SHA-256, with one message per vector lane, so a call hashes as
+ * many messages at once as the preferred species has int lanes (4 with
+ * SSE/NEON, 8 with AVX2, 16 with AVX-512). The messages are sorted by their
+ * number of blocks so that the lanes of a group finish at about the same
+ * time, lanes whose message is already done are masked out
+ * <p>
+ * This class must only be touched when the {@code jdk.incubator.vector}
+ * module is present, see {@link Sha2#SHA_256}
+ *
+ * @author Sayantan Chakraborty
+ */
+final class Sha256Vector {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    static final int LANES = SPECIES.length();
+
+    private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
+
+    private static long blocks(long length) {
+        return (length + 8) / 64 + 1;
+    }
+
+    /**
+     * hashes every message in {@code inputs} starting from {@code iv}, and
+     * writes the first {@code words} words of the final state of
+     * {@code inputs[i]} to {@code output} at offset {@code 4 * words * i}
+     */
+    static void digestAll(int[] iv, int words, MemorySegment[] inputs, MemorySegment output) {
+        int n = inputs.length;
+
+        long[] order = new long[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = Math.min(blocks(inputs[i].byteSize()), Integer.MAX_VALUE) << 32 | i;
+        }
+        Arrays.sort(order);
+
+        int[] state = new int[8 * LANES], schedule = new int[64 * LANES];
+        byte[] tails = new byte[128 * LANES];
+        var tailSegment = MemorySegment.ofArray(tails);
+        var lanes = new MemorySegment[LANES];
+        long[] full = new long[LANES], blocks = new long[LANES];
+        boolean[] active = new boolean[LANES];
+
+        for (int g = 0; g < n; g += LANES) {
+            long most = 0;
+            for (int j = 0; j < LANES; j++) {
+                if (g + j < n) {
+                    var input = inputs[(int) order[g + j]];
+                    long length = input.byteSize();
+                    int rest = (int) (length % 64);
+                    lanes[j] = input;
+                    full[j] = length / 64;
+                    blocks[j] = blocks(length);
+
+                    //the last partial block, the padding and the bit length
+                    Arrays.fill(tails, 128 * j, 128 * j + 128, (byte) 0);
+                    MemorySegment.copy(input, length - rest, tailSegment, 128 * j, rest);
+                    tails[128 * j + rest] = (byte) 0x80;
+                    Tools.store64BE(length << 3, tails, 128 * j + 64 * (int) (blocks[j] - full[j]) - 8);
+
+                    most = Math.max(most, blocks[j]);
+                } else {
+                    lanes[j] = null;
+                    full[j] = blocks[j] = 0;
+                }
+                for (int w = 0; w < 8; w++) {
+                    state[LANES * w + j] = iv[w];
+                }
+            }
+
+            for (long b = 0; b < most; b++) {
+                for (int j = 0; j < LANES; j++) {
+                    active[j] = b < blocks[j];
+                    if (b < full[j]) {
+                        for (int w = 0; w < 16; w++) {
+                            schedule[LANES * w + j] = lanes[j].get(LAYOUT, 64 * b + 4 * w);
+                        }
+                    } else if (active[j]) {
+                        int base = 128 * j + 64 * (int) (b - full[j]);
+                        for (int w = 0; w < 16; w++) {
+                            schedule[LANES * w + j] = Tools.load32BE(tails, base + 4 * w);
+                        }
+                    }
+                }
+                compress(state, schedule, VectorMask.fromArray(SPECIES, active, 0));
+            }
+
+            for (int j = 0; j < LANES && g + j < n; j++) {
+                long offset = 4L * words * (int) order[g + j];
+                for (int w = 0; w < words; w++) {
+                    output.set(LAYOUT, offset + 4 * w, state[LANES * w + j]);
+                }
+            }
+        }
+    }
+
+    /**
+     * compresses one block per lane, the words of the blocks are in the first
+     * 16 rows of {@code schedule}. Only the lanes set in {@code active} are
+     * updated
+     */
+    private static void compress(int[] state, int[] schedule, VectorMask<Integer> active) {
+        for (int t = 16; t < 64; t++) {
+            gamma1(IntVector.fromArray(SPECIES, schedule, LANES * (t - 2)))
+                    .add(IntVector.fromArray(SPECIES, schedule, LANES * (t - 7)))
+                    .add(gamma0(IntVector.fromArray(SPECIES, schedule, LANES * (t - 15))))
+                    .add(IntVector.fromArray(SPECIES, schedule, LANES * (t - 16)))
+                    .intoArray(schedule, LANES * t);
+        }
+
+        var a = IntVector.fromArray(SPECIES, state, 0);
+        var b = IntVector.fromArray(SPECIES, state, LANES);
+        var c = IntVector.fromArray(SPECIES, state, 2 * LANES);
+        var d = IntVector.fromArray(SPECIES, state, 3 * LANES);
+        var e = IntVector.fromArray(SPECIES, state, 4 * LANES);
+        var f = IntVector.fromArray(SPECIES, state, 5 * LANES);
+        var g = IntVector.fromArray(SPECIES, state, 6 * LANES);
+        var h = IntVector.fromArray(SPECIES, state, 7 * LANES);
+
+        for (int r = 0; r < 64; r++) {
+            var t0 = h.add(sigma1(e)).add(ch(e, f, g)).add(Sha2.RCON_32[r]).add(IntVector.fromArray(SPECIES, schedule, LANES * r));
+            var t1 = sigma0(a).add(maj(a, b, c));
+            h = g;
+            g = f;
+            f = e;
+            e = d.add(t0);
+            d = c;
+            c = b;
+            b = a;
+            a = t0.add(t1);
+        }
+
+        a.add(IntVector.fromArray(SPECIES, state, 0)).intoArray(state, 0, active);
+        b.add(IntVector.fromArray(SPECIES, state, LANES)).intoArray(state, LANES, active);
+        c.add(IntVector.fromArray(SPECIES, state, 2 * LANES)).intoArray(state, 2 * LANES, active);
+        d.add(IntVector.fromArray(SPECIES, state, 3 * LANES)).intoArray(state, 3 * LANES, active);
+        e.add(IntVector.fromArray(SPECIES, state, 4 * LANES)).intoArray(state, 4 * LANES, active);
+        f.add(IntVector.fromArray(SPECIES, state, 5 * LANES)).intoArray(state, 5 * LANES, active);
+        g.add(IntVector.fromArray(SPECIES, state, 6 * LANES)).intoArray(state, 6 * LANES, active);
+        h.add(IntVector.fromArray(SPECIES, state, 7 * LANES)).intoArray(state, 7 * LANES, active);
+    }
+
+    private static IntVector ch(IntVector x, IntVector y, IntVector z) {
+        return z.lanewise(XOR, x.lanewise(AND, y.lanewise(XOR, z)));
+    }
+
+    private static IntVector maj(IntVector x, IntVector y, IntVector z) {
+        return x.lanewise(OR, y).lanewise(AND, z).lanewise(OR, x.lanewise(AND, y));
+    }
+
+    private static IntVector sigma0(IntVector x) {
+        return x.lanewise(ROR, 2).lanewise(XOR, x.lanewise(ROR, 13)).lanewise(XOR, x.lanewise(ROR, 22));
+    }
+
+    private static IntVector sigma1(IntVector x) {
+        return x.lanewise(ROR, 6).lanewise(XOR, x.lanewise(ROR, 11)).lanewise(XOR, x.lanewise(ROR, 25));
+    }
+
+    private static IntVector gamma0(IntVector x) {
+        return x.lanewise(ROR, 7).lanewise(XOR, x.lanewise(ROR, 18)).lanewise(XOR, x.lanewise(LSHR, 3));
+    }
+
+    private static IntVector gamma1(IntVector x) {
+        return x.lanewise(ROR, 17).lanewise(XOR, x.lanewise(ROR, 19)).lanewise(XOR, x.lanewise(LSHR, 10));
+    }
+
+    private Sha256Vector() {
+    }
+
+}
@@ -6,8 +6,11 @@ package org.asterisk.crypto.hash;
 
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
 import org.asterisk.crypto.Tested;
 import org.asterisk.crypto.helper.AbstractDigestEngine;
+import org.asterisk.crypto.helper.StateReader;
+import org.asterisk.crypto.helper.StateWriter;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.lowlevel.KeccakP;
@@ -22,9 +25,18 @@ public enum Sha3 implements Digest {
     SHA3_256 {
         @Override
         public Engine start() {
+            return engine(new long[25]);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new long[25]).importState(state);
+        }
+
+        private AbstractDigestEngine engine(long[] initialState) {
             return new AbstractDigestEngine(136) {
 
-                private final long[] state = new long[25];
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -61,6 +73,26 @@ public enum Sha3 implements Digest {
                     Tools.store64LE(state[3], dest, offset + 24);
                 }
 
+                @Override
+                protected void resetState() {
+                    Arrays.fill(state, 0);
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putLongs(state, 25);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getLongs(state, 25);
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return Sha3.SHA3_256;
@@ -83,9 +115,18 @@ public enum Sha3 implements Digest {
     SHA3_224 {
         @Override
         public Engine start() {
+            return engine(new long[25]);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new long[25]).importState(state);
+        }
+
+        private AbstractDigestEngine engine(long[] initialState) {
             return new AbstractDigestEngine(144) {
 
-                private final long[] state = new long[25];
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -122,6 +163,26 @@ public enum Sha3 implements Digest {
                     Tools.store32LE((int) state[3], dest, offset + 24);
                 }
 
+                @Override
+                protected void resetState() {
+                    Arrays.fill(state, 0);
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putLongs(state, 25);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getLongs(state, 25);
+                }
+
                 @Override
                 public Digest getAlgorithm() {
                     return Sha3.SHA3_224;
@@ -144,9 +205,18 @@ public enum Sha3 implements Digest {
     SHA3_512 {
         @Override
         public Engine start() {
+            return engine(new long[25]);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new long[25]).importState(state);
+        }
+
+        private AbstractDigestEngine engine(long[] initialState) {
             return new AbstractDigestEngine(72) {
 
-                private final long[] state = new long[25];
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -187,9 +257,29 @@ public enum Sha3 implements Digest {
                     Tools.store64LE(state[7], dest, offset + 56);
                 }
 
+                @Override
+                protected void resetState() {
+                    Arrays.fill(state, 0);
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putLongs(state, 25);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getLongs(state, 25);
+                }
+
                 @Override
                 public Digest getAlgorithm() {
-                    return Sha3.SHA3_256;
+                    return Sha3.SHA3_512;
                 }
 
             };
@@ -209,9 +299,18 @@ public enum Sha3 implements Digest {
     SHA3_384 {
         @Override
         public Engine start() {
+            return engine(new long[25]);
+        }
+
+        @Override
+        public Engine resume(byte[] state) {
+            return engine(new long[25]).importState(state);
+        }
+
+        private AbstractDigestEngine engine(long[] initialState) {
             return new AbstractDigestEngine(104) {
 
-                private final long[] state = new long[25];
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -250,9 +349,29 @@ public enum Sha3 implements Digest {
                     Tools.store64LE(state[5], dest, offset + 40);
                 }
 
+                @Override
+                protected void resetState() {
+                    Arrays.fill(state, 0);
+                }
+
+                @Override
+                public Digest.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
+                @Override
+                protected void writeState(StateWriter out) {
+                    out.putLongs(state, 25);
+                }
+
+                @Override
+                protected void readState(StateReader in) {
+                    in.getLongs(state, 25);
+                }
+
                 @Override
                 public Digest getAlgorithm() {
-                    return Sha3.SHA3_256;
+                    return Sha3.SHA3_384;
                 }
 
             };
@@ -6,6 +6,7 @@ package org.asterisk.crypto.hash;
 
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
 import org.asterisk.crypto.helper.AbstractXofEngine;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Xof;
@@ -20,9 +21,13 @@ public enum Shake implements Xof {
     SHAKE_128 {
         @Override
         public Engine start() {
+            return engine(new long[25]);
+        }
+
+        private AbstractXofEngine engine(long[] initialState) {
             return new AbstractXofEngine(168, 168) {
 
-                private final long[] state = new long[25];
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -61,6 +66,16 @@ public enum Shake implements Xof {
                     }
                 }
 
+                @Override
+                protected void resetState() {
+                    Arrays.fill(state, 0);
+                }
+
+                @Override
+                public Xof.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
                 @Override
                 public Xof getAlgorithm() {
                     return Shake.SHAKE_128;
@@ -82,9 +97,13 @@ public enum Shake implements Xof {
     }, SHAKE_256 {
         @Override
         public Engine start() {
+            return engine(new long[25]);
+        }
+
+        private AbstractXofEngine engine(long[] initialState) {
             return new AbstractXofEngine(136, 136) {
 
-                private final long[] state = new long[25];
+                private final long[] state = initialState;
 
                 @Override
                 protected void ingestOneBlock(MemorySegment input, long offset) {
@@ -123,6 +142,16 @@ public enum Shake implements Xof {
                     }
                 }
 
+                @Override
+                protected void resetState() {
+                    Arrays.fill(state, 0);
+                }
+
+                @Override
+                public Xof.Engine copy() {
+                    return copyBufferTo(engine(state.clone()));
+                }
+
                 @Override
                 public Xof getAlgorithm() {
                     return Shake.SHAKE_256;
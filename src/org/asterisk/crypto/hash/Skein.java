@@ -18,9 +18,10 @@
 package org.asterisk.crypto.hash;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
 import org.asterisk.crypto.helper.AbstractDigestEngine;
+import org.asterisk.crypto.helper.AbstractMacEngine;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.Mac;
@@ -513,6 +514,17 @@ public class Skein implements Digest, Mac {
         return state;
     }
 
+    private long[] precomputed() {
+        return switch (type) {
+            case SKEIN_256 ->
+                precomputed256();
+            case SKEIN_512 ->
+                precomputed512();
+            case SKEIN_1024 ->
+                precomputed1024();
+        };
+    }
+
     private void cfgUbi256(long[] state, long[] data, long[] tweak) {
         data[0] = CFG;
         data[1] = outputLength;
@@ -543,47 +555,25 @@ public class Skein implements Digest, Mac {
         state[1] ^= data[1];
     }
 
-    @Override
-    public Digest.Engine start() {
-        var internal = switch (type) {
+    private SkeinEngine newEngine(long[] iv) {
+        return switch (type) {
             case SKEIN_256 ->
-                new Skein256Engine(precomputed256(), new long[21]);
+                new Skein256Engine(iv);
             case SKEIN_512 ->
-                new Skein512Engine(precomputed512(), new long[21]);
+                new Skein512Engine(iv);
             case SKEIN_1024 ->
-                new Skein1024Engine(precomputed1024(), new long[23]);
-        };
-        return new AbstractDigestEngine(type.blockSize()) {
-
-            @Override
-            protected void ingestOneBlock(MemorySegment input, long offset) {
-                internal.ingestOneBlock(input, offset);
-            }
-
-            @Override
-            protected void ingestLastBlock(MemorySegment input, int length) {
-                internal.ingestLastBlock(input, length);
-            }
-
-            @Override
-            protected void getDigest(byte[] dest, int offset) {
-                internal.output(dest, offset, outputLength);
-            }
-
-            @Override
-            public Digest getAlgorithm() {
-                return Skein.this;
-            }
+                new Skein1024Engine(iv);
         };
     }
 
-    @Override
-    public Mac.Engine start(byte[] key) {
-
-        SkeinEngine internal = switch (type) {
+    private void keyedState(byte[] key, long[] state, long[] data, long[] tweak) {
+        if (key.length < keyLength()) {
+            throw new IllegalArgumentException(this + " requires a " + keyLength() + " byte key, " + key.length + " bytes provided");
+        }
+        Arrays.fill(state, 0);
+        Arrays.fill(data, 0);
+        switch (type) {
             case SKEIN_256 -> {
-                long[] state = new long[23], data = new long[8], tweak = new long[21];
-
                 tweak[0] = 32;
                 tweak[1] = FIRST | LAST;
 
@@ -600,12 +590,8 @@ public class Skein implements Digest, Mac {
                 state[3] ^= data[3];
 
                 cfgUbi256(state, data, tweak);
-
-                yield new Skein256Engine(state, tweak);
             }
             case SKEIN_512 -> {
-                long[] state = new long[27], data = new long[8], tweak = new long[21];
-
                 tweak[0] = 64;
                 tweak[1] = FIRST | LAST;
 
@@ -630,12 +616,8 @@ public class Skein implements Digest, Mac {
                 state[7] ^= data[7];
 
                 cfgUbi512(state, data, tweak);
-
-                yield new Skein512Engine(state, tweak);
             }
             case SKEIN_1024 -> {
-                long[] state = new long[37], data = new long[16], tweak = new long[23];
-
                 tweak[0] = 64;
                 tweak[1] = FIRST | LAST;
 
@@ -676,49 +658,90 @@ public class Skein implements Digest, Mac {
                 state[15] ^= data[15];
 
                 cfgUbi1024(state, data, tweak);
+            }
+        }
+    }
+
+    @Override
+    public Digest.Engine start() {
+        return digestEngine(newEngine(precomputed()));
+    }
+
+    private AbstractDigestEngine digestEngine(SkeinEngine internal) {
+        return new AbstractDigestEngine(type.blockSize()) {
+
+            @Override
+            protected void ingestOneBlock(MemorySegment input, long offset) {
+                internal.ingestOneBlock(input, offset);
+            }
+
+            @Override
+            protected void ingestLastBlock(MemorySegment input, int length) {
+                internal.ingestLastBlock(input, length);
+            }
+
+            @Override
+            protected void getDigest(byte[] dest, int offset) {
+                internal.output(dest, offset, outputLength);
+            }
+
+            @Override
+            protected void resetState() {
+                internal.reset(precomputed());
+            }
 
-                yield new Skein1024Engine(state, tweak);
+            @Override
+            public Digest.Engine copy() {
+                return copyBufferTo(digestEngine(internal.copy()));
+            }
+
+            @Override
+            public Digest getAlgorithm() {
+                return Skein.this;
             }
         };
+    }
+
+    @Override
+    public Mac.Engine start(byte[] key) {
+        long[] keyed = new long[37], data = new long[16], tweak = new long[23];
+        keyedState(key, keyed, data, tweak);
 
-        return new Mac.Engine() {
+        return macEngine(keyed, data, tweak, newEngine(keyed));
+    }
 
-            private final int blockSize = type.blockSize();
-            private final MemorySegment buffer = Arena.ofAuto().allocate(blockSize);
-            private int position = 0;
+    private AbstractMacEngine macEngine(long[] keyed, long[] data, long[] tweak, SkeinEngine internal) {
+        return new AbstractMacEngine(type.blockSize()) {
 
             @Override
-            public final void ingest(MemorySegment input) {
-                long offset = 0, length = input.byteSize();
-                if (position > 0) {
-                    int take = (int) Math.min(length, blockSize - position);
-                    MemorySegment.copy(input, offset, buffer, position, take);
-                    offset += take;
-                    length -= take;
-                    position += take;
-                    if (position == blockSize && length > 0) {
-                        internal.ingestOneBlock(buffer, 0);
-                        position = 0;
-                    }
-                }
-                while (length > blockSize) {
-                    internal.ingestOneBlock(input, offset);
-                    offset += blockSize;
-                    length -= blockSize;
-                }
-                if (length > 0) {
-                    MemorySegment.copy(input, offset, buffer, 0, length);
-                    position = (int) length;
-                }
+            protected void ingestOneBlock(MemorySegment input, long offset) {
+                internal.ingestOneBlock(input, offset);
             }
 
             @Override
-            public void authenticateTo(byte[] tag, int offset, int length) {
-                if (length != outputLength) {
-                    throw new IllegalArgumentException(length + " bytes requested from " + getAlgorithm());
-                }
-                internal.ingestLastBlock(buffer, position);
-                internal.output(tag, offset, length);
+            protected void ingestLastBlock(MemorySegment input, int length) {
+                internal.ingestLastBlock(input, length);
+            }
+
+            @Override
+            protected void getTag(byte[] dest, int offset) {
+                internal.output(dest, offset, outputLength);
+            }
+
+            @Override
+            protected void resetState() {
+                internal.reset(keyed);
+            }
+
+            @Override
+            protected void resetState(byte[] key) {
+                keyedState(key, keyed, data, tweak);
+                resetState();
+            }
+
+            @Override
+            public Mac.Engine copy() {
+                return copyBufferTo(macEngine(keyed.clone(), data.clone(), tweak.clone(), internal.copy()));
             }
 
             @Override
@@ -760,15 +783,35 @@ public class Skein implements Digest, Mac {
         void ingestLastBlock(MemorySegment input, int length);
 
         void output(byte[] output, int offset, int length);
+
+        void reset(long[] iv);
+
+        SkeinEngine copy();
     }
 
     private static class Skein256Engine implements SkeinEngine {
 
         private final long[] state, data = new long[4], tweak;
 
-        private Skein256Engine(long[] state, long[] tweak) {
-            this.state = state;
-            this.tweak = tweak;
+        private Skein256Engine(long[] iv) {
+            state = new long[23];
+            tweak = new long[21];
+            reset(iv);
+        }
+
+        private Skein256Engine(Skein256Engine src) {
+            state = src.state.clone();
+            tweak = src.tweak.clone();
+        }
+
+        @Override
+        public SkeinEngine copy() {
+            return new Skein256Engine(this);
+        }
+
+        @Override
+        public void reset(long[] iv) {
+            System.arraycopy(iv, 0, state, 0, 4);
             tweak[0] = 0;
             tweak[1] = T_MSG | FIRST;
         }
@@ -849,9 +892,25 @@ public class Skein implements Digest, Mac {
 
         private final long[] state, data = new long[8], tweak;
 
-        private Skein512Engine(long[] state, long[] tweak) {
-            this.state = state;
-            this.tweak = tweak;
+        private Skein512Engine(long[] iv) {
+            state = new long[27];
+            tweak = new long[21];
+            reset(iv);
+        }
+
+        private Skein512Engine(Skein512Engine src) {
+            state = src.state.clone();
+            tweak = src.tweak.clone();
+        }
+
+        @Override
+        public SkeinEngine copy() {
+            return new Skein512Engine(this);
+        }
+
+        @Override
+        public void reset(long[] iv) {
+            System.arraycopy(iv, 0, state, 0, 8);
             tweak[0] = 0;
             tweak[1] = T_MSG | FIRST;
         }
@@ -956,9 +1015,25 @@ public class Skein implements Digest, Mac {
 
         private final long[] state, data = new long[16], tweak;
 
-        private Skein1024Engine(long[] state, long[] tweak) {
-            this.state = state;
-            this.tweak = tweak;
+        private Skein1024Engine(long[] iv) {
+            state = new long[37];
+            tweak = new long[23];
+            reset(iv);
+        }
+
+        private Skein1024Engine(Skein1024Engine src) {
+            state = src.state.clone();
+            tweak = src.tweak.clone();
+        }
+
+        @Override
+        public SkeinEngine copy() {
+            return new Skein1024Engine(this);
+        }
+
+        @Override
+        public void reset(long[] iv) {
+            System.arraycopy(iv, 0, state, 0, 16);
             tweak[0] = 0;
             tweak[1] = T_MSG | FIRST;
         }
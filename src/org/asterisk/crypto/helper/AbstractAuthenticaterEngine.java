@@ -5,7 +5,7 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import org.asterisk.crypto.AuthenticatedCipher;
 
@@ -22,24 +22,50 @@ public abstract class AbstractAuthenticaterEngine implements AuthenticatedCipher
 
     private boolean ingestingAAD = true;
 
+    private byte[] tagBuffer;
+
     public AbstractAuthenticaterEngine(int blockSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.msgBlockSize = blockSize;
         this.aadBlockSize = blockSize;
     }
 
     public AbstractAuthenticaterEngine(int msgBlockSize, int aadBlockSize) {
-        buffer = Arena.ofAuto().allocate(Math.max(msgBlockSize, aadBlockSize));
+        buffer = Tools.allocate(Math.max(msgBlockSize, aadBlockSize));
         this.msgBlockSize = msgBlockSize;
         this.aadBlockSize = aadBlockSize;
     }
 
     protected abstract void ingestOneBlock(MemorySegment aad, long offset);
 
+    /**
+     * ingests {@code blocks} consecutive whole blocks of associated data, by
+     * default one by one
+     */
+    protected void ingestBlocks(MemorySegment aad, long offset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            ingestOneBlock(aad, offset);
+            offset += aadBlockSize;
+        }
+    }
+
     protected abstract void ingestLastBlock(MemorySegment aad, int length);
 
     protected abstract void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset);
 
+    /**
+     * encrypts {@code blocks} consecutive whole message blocks. Engines that
+     * can process several blocks at once override this, by default the blocks
+     * are encrypted one by one
+     */
+    protected void encryptBlocks(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            encryptOneBlock(plaintext, pOffset, ciphertext, cOffset);
+            pOffset += msgBlockSize;
+            cOffset += msgBlockSize;
+        }
+    }
+
     protected abstract int encryptLastBlock(MemorySegment buffer, int length, MemorySegment ciphertext);
 
     protected abstract void finalizeState();
@@ -63,10 +89,11 @@ public abstract class AbstractAuthenticaterEngine implements AuthenticatedCipher
                 position = 0;
             }
         }
-        while (length > aadBlockSize) {
-            ingestOneBlock(input, offset);
-            offset += aadBlockSize;
-            length -= aadBlockSize;
+        long blocks = (length - 1) / aadBlockSize;
+        if (blocks > 0) {
+            ingestBlocks(input, offset, blocks);
+            offset += blocks * aadBlockSize;
+            length -= blocks * aadBlockSize;
         }
         if (length > 0) {
             MemorySegment.copy(input, offset, buffer, 0, length);
@@ -94,11 +121,12 @@ public abstract class AbstractAuthenticaterEngine implements AuthenticatedCipher
                 position = 0;
             }
         }
-        while (length > msgBlockSize) {
-            encryptOneBlock(plaintext, pOffset, ciphertext, cOffset);
-            pOffset += msgBlockSize;
-            length -= msgBlockSize;
-            cOffset += msgBlockSize;
+        long blocks = (length - 1) / msgBlockSize;
+        if (blocks > 0) {
+            encryptBlocks(plaintext, pOffset, ciphertext, cOffset, blocks);
+            pOffset += blocks * msgBlockSize;
+            cOffset += blocks * msgBlockSize;
+            length -= blocks * msgBlockSize;
         }
         if (length > 0) {
             MemorySegment.copy(plaintext, pOffset, buffer, 0, length);
@@ -127,9 +155,25 @@ public abstract class AbstractAuthenticaterEngine implements AuthenticatedCipher
         if (length > maxTagLen) {
             throw new IllegalArgumentException(this + " can only generate tags upto " + maxTagLen + " bytes, requested " + length + " bytes");
         }
-        byte[] temp = new byte[maxTagLen];
-        generateTag(temp);
-        System.arraycopy(temp, 0, tag, offset, length);
+        if (offset == 0 && length == tag.length && length == maxTagLen) {
+            generateTag(tag);
+        } else {
+            System.arraycopy(tagBuffer(), 0, tag, offset, length);
+        }
+    }
+
+    @Override
+    public void authenticate(MemorySegment tag) {
+        int length = (int) Math.min(getAlgorithm().tagLength(), tag.byteSize());
+        MemorySegment.copy(tagBuffer(), 0, tag, ValueLayout.JAVA_BYTE, 0, length);
+    }
+
+    private byte[] tagBuffer() {
+        if (tagBuffer == null) {
+            tagBuffer = new byte[getAlgorithm().tagLength()];
+        }
+        generateTag(tagBuffer);
+        return tagBuffer;
     }
 
     protected void enableAad(boolean enable) {
@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.helper;
+
+import java.lang.foreign.MemorySegment;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import org.asterisk.crypto.StreamCipher;
+
+/**
+ * a stream encrypter whose blocks are numbered by a counter, starting at
+ * {@code initialCounter} for the first block of the message. As every block
+ * only depends on its number, seeking only moves the counter, and with a pool
+ * long runs of blocks are split in ranges encrypted on several threads.
+ * Ciphers whose counter would run into the nonce or wrap around give the
+ * number of blocks a message may have, and seeking or encrypting past them is
+ * refused rather than reusing keystream
+ *
+ * @author Sayantan Chakraborty
+ */
+public abstract class AbstractCounterEncrypter extends AbstractStreamEncrypter implements StreamCipher.SeekableEngine {
+
+    /**
+     * with a pool, runs of at least {@code PARALLEL_BYTES} bytes are split in
+     * ranges of at most {@code TASK_BYTES} bytes
+     */
+    private static final long PARALLEL_BYTES = 1 << 20, TASK_BYTES = 1 << 18;
+
+    private final int blockSize;
+    private final long initialCounter, maxBlocks;
+    private final ForkJoinPool pool;
+
+    protected long counter;
+
+    public AbstractCounterEncrypter(int blockSize, long initialCounter) {
+        this(blockSize, initialCounter, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param pool the pool to encrypt long messages on, or {@code null} to
+     *             always encrypt on the calling thread
+     */
+    public AbstractCounterEncrypter(int blockSize, long initialCounter, ForkJoinPool pool) {
+        this(blockSize, initialCounter, Long.MAX_VALUE, pool);
+    }
+
+    /**
+     * @param maxBlocks the number of blocks numbered from
+     *                  {@code initialCounter} before the counter runs out,
+     *                  {@code Long.MAX_VALUE} if it can't
+     * @param pool      the pool to encrypt long messages on, or {@code null}
+     *                  to always encrypt on the calling thread
+     */
+    public AbstractCounterEncrypter(int blockSize, long initialCounter, long maxBlocks, ForkJoinPool pool) {
+        super(blockSize);
+        this.blockSize = blockSize;
+        this.initialCounter = initialCounter;
+        this.maxBlocks = maxBlocks;
+        this.counter = initialCounter;
+        this.pool = pool;
+    }
+
+    /**
+     * encrypts {@code blocks} whole blocks, the first of which is block
+     * {@code counter}. Only called on the thread using the engine, so the
+     * scratch space of the engine can be used
+     */
+    protected abstract void keystreamBlocks(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks);
+
+    /**
+     * encrypts blocks like {@link #keystreamBlocks}, but is called on the
+     * threads of the pool for disjoint ranges at once, so it must not modify
+     * anything of the engine
+     */
+    protected abstract void keystreamRange(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks);
+
+    @Override
+    protected final void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset) {
+        checkCounter(1);
+        keystreamBlocks(counter, plaintext, pOffset, ciphertext, cOffset, 1);
+        counter++;
+    }
+
+    @Override
+    protected final void encryptBlocks(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+        checkCounter(blocks);
+        if (pool != null && blocks * blockSize >= PARALLEL_BYTES && Tools.isShared(plaintext) && Tools.isShared(ciphertext)) {
+            pool.invoke(new RangeTask(this, counter, plaintext, pOffset, ciphertext, cOffset, blocks));
+        } else {
+            keystreamBlocks(counter, plaintext, pOffset, ciphertext, cOffset, blocks);
+        }
+        counter += blocks;
+    }
+
+    private void checkCounter(long blocks) {
+        if (blocks > maxBlocks - (counter - initialCounter)) {
+            throw new IllegalArgumentException("The keystream of " + getAlgorithm() + " ends after " + maxBlocks + " blocks of " + blockSize + " bytes");
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code offset} is negative or lies
+     *                                  beyond the blocks the counter can
+     *                                  number
+     */
+    @Override
+    public void seek(long offset) {
+        if (offset / blockSize >= maxBlocks) {
+            throw new IllegalArgumentException("Cannot seek past the end of the keystream of " + getAlgorithm() + ", offset " + offset + " requested");
+        }
+        counter = initialCounter + seekBlock(offset);
+    }
+
+    @SuppressWarnings("serial")
+    private static class RangeTask extends RecursiveAction {
+
+        private final AbstractCounterEncrypter engine;
+        private final long counter, pOffset, cOffset, blocks;
+        private final MemorySegment plaintext, ciphertext;
+
+        private RangeTask(AbstractCounterEncrypter engine, long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+            this.engine = engine;
+            this.counter = counter;
+            this.plaintext = plaintext;
+            this.pOffset = pOffset;
+            this.ciphertext = ciphertext;
+            this.cOffset = cOffset;
+            this.blocks = blocks;
+        }
+
+        @Override
+        protected void compute() {
+            if (blocks * engine.blockSize <= TASK_BYTES) {
+                engine.keystreamRange(counter, plaintext, pOffset, ciphertext, cOffset, blocks);
+            } else {
+                long half = blocks / 2, bytes = half * engine.blockSize;
+                invokeAll(new RangeTask(engine, counter, plaintext, pOffset, ciphertext, cOffset, half),
+                        new RangeTask(engine, counter + half, plaintext, pOffset + bytes, ciphertext, cOffset + bytes, blocks - half));
+            }
+        }
+    }
+
+}
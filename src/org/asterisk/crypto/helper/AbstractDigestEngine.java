@@ -5,7 +5,7 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import org.asterisk.crypto.Digest;
 
@@ -20,8 +20,10 @@ public abstract class AbstractDigestEngine implements Digest.Engine {
 
     private final int blockSize;
 
+    private byte[] digestBuffer;
+
     public AbstractDigestEngine(int blockSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.blockSize = blockSize;
     }
 
@@ -31,6 +33,11 @@ public abstract class AbstractDigestEngine implements Digest.Engine {
 
     protected abstract void getDigest(byte[] dest, int offset);
 
+    /**
+     * restores the state to what it was right after construction
+     */
+    protected abstract void resetState();
+
     @Override
     public final void ingest(MemorySegment input) {
         long offset = 0, length = input.byteSize();
@@ -62,7 +69,77 @@ public abstract class AbstractDigestEngine implements Digest.Engine {
         ingestLastBlock(buffer, position);
         getDigest(dest, offset);
     }
+
+    @Override
+    public final void digestTo(MemorySegment dest) {
+        int digestSize = getAlgorithm().digestSize();
+        Objects.checkFromIndexSize(0, digestSize, dest.byteSize());
+        if (digestBuffer == null) {
+            digestBuffer = new byte[digestSize];
+        }
+        ingestLastBlock(buffer, position);
+        getDigest(digestBuffer, 0);
+        MemorySegment.copy(digestBuffer, 0, dest, ValueLayout.JAVA_BYTE, 0, digestSize);
+    }
     
+    /**
+     * subclasses implement this by creating a new engine with a copy of their
+     * state and passing it through {@link #copyBufferTo(AbstractDigestEngine)}
+     */
+    @Override
+    public abstract Digest.Engine copy();
+
+    /**
+     * copies the buffered, not yet processed input of this engine into
+     * {@code copy}, which must be an engine of the same algorithm
+     */
+    protected final Digest.Engine copyBufferTo(AbstractDigestEngine copy) {
+        MemorySegment.copy(buffer, 0, copy.buffer, 0, blockSize);
+        copy.position = position;
+        return copy;
+    }
+
+    @Override
+    public final byte[] exportState() {
+        var out = new StateWriter(getAlgorithm()).putBytes(buffer, position);
+        writeState(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * writes the state of the subclass, everything except the buffered input.
+     * Subclasses that can be resumed override this and
+     * {@link #readState(StateReader)}
+     */
+    protected void writeState(StateWriter out) {
+        throw new UnsupportedOperationException(getAlgorithm() + " engines can't export their state");
+    }
+
+    /**
+     * reads back what {@link #writeState(StateWriter)} wrote
+     */
+    protected void readState(StateReader in) {
+        throw new UnsupportedOperationException(getAlgorithm() + " engines can't be resumed");
+    }
+
+    /**
+     * loads a state written by {@link #exportState()} into this engine, which
+     * must have just been constructed
+     */
+    public final AbstractDigestEngine importState(byte[] state) {
+        var in = new StateReader(state, getAlgorithm());
+        position = in.getBytes(buffer, 0, blockSize);
+        readState(in);
+        in.finish();
+        return this;
+    }
+
+    @Override
+    public final void reset() {
+        position = 0;
+        resetState();
+    }
+
     protected void setBufferPosition(int position) {
         this.position = Objects.checkFromIndexSize(position, 0, blockSize);
     }
@@ -5,7 +5,6 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import org.asterisk.crypto.Cipher;
 
 /**
@@ -20,7 +19,7 @@ public abstract class AbstractEncryptEngine implements Cipher.EncryptEngine {
     private final int blockSize;
 
     public AbstractEncryptEngine(int blockSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.blockSize = blockSize;
     }
 
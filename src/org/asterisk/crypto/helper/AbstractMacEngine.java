@@ -5,7 +5,7 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import org.asterisk.crypto.Mac;
 
@@ -20,17 +20,43 @@ public abstract class AbstractMacEngine implements Mac.Engine {
 
     private final int blockSize;
 
+    private byte[] tagBuffer;
+
     public AbstractMacEngine(int blockSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.blockSize = blockSize;
     }
 
     protected abstract void ingestOneBlock(MemorySegment input, long offset);
 
+    /**
+     * ingests {@code blocks} consecutive whole blocks. Engines that can
+     * process several blocks at once override this, by default the blocks are
+     * ingested one by one
+     */
+    protected void ingestBlocks(MemorySegment input, long offset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            ingestOneBlock(input, offset);
+            offset += blockSize;
+        }
+    }
+
     protected abstract void ingestLastBlock(MemorySegment input, int length);
 
     protected abstract void getTag(byte[] buffer, int offset);
 
+    /**
+     * restores the state to what it was right after keying with the current
+     * key
+     */
+    protected abstract void resetState();
+
+    /**
+     * re-keys the state with a new key. Implementations must validate the key
+     * before touching the state
+     */
+    protected abstract void resetState(byte[] key);
+
     @Override
     public final void ingest(MemorySegment input) {
         long offset = 0, length = input.byteSize();
@@ -45,10 +71,11 @@ public abstract class AbstractMacEngine implements Mac.Engine {
                 position = 0;
             }
         }
-        while (length > blockSize) {
-            ingestOneBlock(input, offset);
-            offset += blockSize;
-            length -= blockSize;
+        long blocks = (length - 1) / blockSize;
+        if (blocks > 0) {
+            ingestBlocks(input, offset, blocks);
+            offset += blocks * blockSize;
+            length -= blocks * blockSize;
         }
         if (length > 0) {
             MemorySegment.copy(input, offset, buffer, 0, length);
@@ -58,19 +85,77 @@ public abstract class AbstractMacEngine implements Mac.Engine {
 
     @Override
     public void authenticateTo(byte[] tag, int offset, int length) {
+        checkTagLength(length);
+        Objects.checkFromIndexSize(offset, length, tag.length);
+        if (getAlgorithm().tagLength() > length) {
+            System.arraycopy(generateTag(), 0, tag, offset, length);
+        } else {
+            ingestLastBlock(buffer, position);
+            getTag(tag, offset);
+        }
+    }
+
+    @Override
+    public void authenticateTo(MemorySegment tag) {
+        int length = (int) Math.min(getAlgorithm().tagLength(), tag.byteSize());
+        MemorySegment.copy(generateTag(), 0, tag, ValueLayout.JAVA_BYTE, 0, length);
+    }
+
+    @Override
+    public boolean verify(byte[] tag, int offset, int length) {
+        checkTagLength(length);
+        Objects.checkFromIndexSize(offset, length, tag.length);
+        return Tools.equals(generateTag(), 0, tag, offset, length);
+    }
+
+    @Override
+    public boolean verify(MemorySegment tag) {
+        int length = (int) Math.min(getAlgorithm().tagLength(), tag.byteSize());
+        return Tools.equals(generateTag(), 0, tag, 0, length);
+    }
+
+    private void checkTagLength(int length) {
         int tagLength = getAlgorithm().tagLength();
         if (tagLength < length) {
             throw new IllegalArgumentException(getAlgorithm() + " can produce tags of up to " + tagLength + " bytes, " + length + " bytes requested");
         }
-        Objects.checkFromIndexSize(offset, length, tag.length);
-        ingestLastBlock(buffer, position);
-        if (tagLength > length) {
-            byte[] dest = new byte[tagLength];
-            getTag(dest, 0);
-            System.arraycopy(dest, 0, tag, offset, length);
-        } else {
-            getTag(tag, offset);
+    }
+
+    /**
+     * finishes the message and writes the full tag into a buffer owned by this
+     * engine, so that partial tags and verification don't need a fresh array
+     */
+    private byte[] generateTag() {
+        if (tagBuffer == null) {
+            tagBuffer = new byte[getAlgorithm().tagLength()];
         }
+        ingestLastBlock(buffer, position);
+        getTag(tagBuffer, 0);
+        return tagBuffer;
+    }
+
+    /**
+     * copies the buffered, not yet processed input of this engine into
+     * {@code copy}, which must be an engine of the same algorithm. Subclasses
+     * that support {@link #copy()} create a new engine with a copy of their
+     * state and pass it through this
+     */
+    protected final Mac.Engine copyBufferTo(AbstractMacEngine copy) {
+        MemorySegment.copy(buffer, 0, copy.buffer, 0, blockSize);
+        copy.position = position;
+        return copy;
+    }
+
+    @Override
+    public final void reset() {
+        position = 0;
+        resetState();
+    }
+
+    @Override
+    public final void reset(byte[] key) {
+        position = 0;
+        resetState(key);
     }
 
     protected void setBufferPosition(int position) {
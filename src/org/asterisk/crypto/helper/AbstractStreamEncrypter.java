@@ -5,7 +5,6 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import org.asterisk.crypto.Cipher;
 
 /**
@@ -15,17 +14,30 @@ import org.asterisk.crypto.Cipher;
 public abstract class AbstractStreamEncrypter implements Cipher.EncryptEngine {
 
     private final MemorySegment buffer;
-    private int position = 0;
+    private int position = 0, skip = 0;
 
     private final int blockSize;
 
     public AbstractStreamEncrypter(int blockSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.blockSize = blockSize;
     }
 
     protected abstract void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset);
 
+    /**
+     * encrypts {@code blocks} consecutive whole blocks. Engines that can
+     * compute several blocks at once override this, by default the blocks are
+     * encrypted one by one
+     */
+    protected void encryptBlocks(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            encryptOneBlock(plaintext, pOffset, ciphertext, cOffset);
+            pOffset += blockSize;
+            cOffset += blockSize;
+        }
+    }
+
     @Override
     public long encrypt(MemorySegment plaintext, MemorySegment ciphertext) {
         long pOffset = 0, length = plaintext.byteSize(), cOffset = 0;
@@ -36,16 +48,24 @@ public abstract class AbstractStreamEncrypter implements Cipher.EncryptEngine {
             length -= take;
             position += take;
             if (position == blockSize) {
-                encryptOneBlock(buffer, 0, ciphertext, cOffset);
-                cOffset += blockSize;
+                if (skip > 0) {
+                    encryptOneBlock(buffer, 0, buffer, 0);
+                    MemorySegment.copy(buffer, skip, ciphertext, cOffset, blockSize - skip);
+                    cOffset += blockSize - skip;
+                    skip = 0;
+                } else {
+                    encryptOneBlock(buffer, 0, ciphertext, cOffset);
+                    cOffset += blockSize;
+                }
                 position = 0;
             }
         }
-        while (length >= blockSize) {
-            encryptOneBlock(plaintext, pOffset, ciphertext, cOffset);
-            pOffset += blockSize;
-            length -= blockSize;
-            cOffset += blockSize;
+        long blocks = length / blockSize;
+        if (blocks > 0) {
+            encryptBlocks(plaintext, pOffset, ciphertext, cOffset, blocks);
+            pOffset += blocks * blockSize;
+            length -= blocks * blockSize;
+            cOffset += blocks * blockSize;
         }
         if (length > 0) {
             MemorySegment.copy(plaintext, pOffset, buffer, 0, length);
@@ -56,9 +76,27 @@ public abstract class AbstractStreamEncrypter implements Cipher.EncryptEngine {
 
     @Override
     public int finish(MemorySegment ciphertext) {
+        if (position == skip) {
+            return 0;
+        }
         encryptOneBlock(buffer, 0, buffer, 0);
-        MemorySegment.copy(buffer, 0, ciphertext, 0, position);
-        return position;
+        MemorySegment.copy(buffer, skip, ciphertext, 0, position - skip);
+        return position - skip;
+    }
+
+    /**
+     * drops any input held back for an incomplete block and moves to byte
+     * {@code offset} of the keystream, counting from the start of the message
+     *
+     * @return the index of the block holding that byte, which the subclass
+     *         must encrypt next
+     */
+    protected long seekBlock(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Cannot seek to a negative offset, " + offset + " requested");
+        }
+        position = skip = (int) (offset % blockSize);
+        return offset / blockSize;
     }
 
 }
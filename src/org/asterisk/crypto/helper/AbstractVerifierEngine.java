@@ -5,7 +5,7 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
+import java.util.Objects;
 import org.asterisk.crypto.AuthenticatedCipher;
 
 /**
@@ -21,24 +21,50 @@ public abstract class AbstractVerifierEngine implements AuthenticatedCipher.Decr
 
     private boolean ingestingAAD = true;
 
+    private byte[] tagBuffer;
+
     public AbstractVerifierEngine(int blockSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.msgBlockSize = blockSize;
         this.aadBlockSize = blockSize;
     }
 
     public AbstractVerifierEngine(int msgBlockSize, int aadBlockSize) {
-        buffer = Arena.ofAuto().allocate(Math.max(msgBlockSize, aadBlockSize));
+        buffer = Tools.allocate(Math.max(msgBlockSize, aadBlockSize));
         this.msgBlockSize = msgBlockSize;
         this.aadBlockSize = aadBlockSize;
     }
 
     protected abstract void ingestOneBlock(MemorySegment aad, long offset);
 
+    /**
+     * ingests {@code blocks} consecutive whole blocks of associated data, by
+     * default one by one
+     */
+    protected void ingestBlocks(MemorySegment aad, long offset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            ingestOneBlock(aad, offset);
+            offset += aadBlockSize;
+        }
+    }
+
     protected abstract void ingestLastBlock(MemorySegment aad, int length);
 
     protected abstract void decryptOneBlock(MemorySegment ciphertext, long cOffset, MemorySegment plaintext, long pOffset);
 
+    /**
+     * decrypts {@code blocks} consecutive whole message blocks. Engines that
+     * can process several blocks at once override this, by default the blocks
+     * are decrypted one by one
+     */
+    protected void decryptBlocks(MemorySegment ciphertext, long cOffset, MemorySegment plaintext, long pOffset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            decryptOneBlock(ciphertext, cOffset, plaintext, pOffset);
+            cOffset += msgBlockSize;
+            pOffset += msgBlockSize;
+        }
+    }
+
     protected abstract int decryptLastBlock(MemorySegment input, int length, MemorySegment plaintext);
 
     protected abstract void finalizeState();
@@ -62,10 +88,11 @@ public abstract class AbstractVerifierEngine implements AuthenticatedCipher.Decr
                 position = 0;
             }
         }
-        while (length > aadBlockSize) {
-            ingestOneBlock(input, offset);
-            offset += aadBlockSize;
-            length -= aadBlockSize;
+        long blocks = (length - 1) / aadBlockSize;
+        if (blocks > 0) {
+            ingestBlocks(input, offset, blocks);
+            offset += blocks * aadBlockSize;
+            length -= blocks * aadBlockSize;
         }
         if (length > 0) {
             MemorySegment.copy(input, offset, buffer, 0, length);
@@ -93,17 +120,18 @@ public abstract class AbstractVerifierEngine implements AuthenticatedCipher.Decr
                 position = 0;
             }
         }
-        while (length > msgBlockSize) {
-            decryptOneBlock(ciphertext, cOffset, plaintext, pOffset);
-            cOffset += msgBlockSize;
-            length -= msgBlockSize;
-            pOffset += msgBlockSize;
+        long blocks = (length - 1) / msgBlockSize;
+        if (blocks > 0) {
+            decryptBlocks(ciphertext, cOffset, plaintext, pOffset, blocks);
+            cOffset += blocks * msgBlockSize;
+            pOffset += blocks * msgBlockSize;
+            length -= blocks * msgBlockSize;
         }
         if (length > 0) {
             MemorySegment.copy(ciphertext, cOffset, buffer, 0, length);
             position = (int) length;
         }
-        return cOffset;
+        return pOffset;
     }
 
     @Override
@@ -121,9 +149,22 @@ public abstract class AbstractVerifierEngine implements AuthenticatedCipher.Decr
 
     @Override
     public boolean verify(byte[] tag, int offset, int length) {
-        byte[] temp = new byte[getAlgorithm().tagLength()];
-        generateTag(temp);
-        return Tools.equals(temp, 0, tag, offset, length);
+        Objects.checkFromIndexSize(offset, length, tag.length);
+        return Tools.equals(tagBuffer(), 0, tag, offset, length);
+    }
+
+    @Override
+    public boolean verify(MemorySegment tag) {
+        int length = (int) Math.min(getAlgorithm().tagLength(), tag.byteSize());
+        return Tools.equals(tagBuffer(), 0, tag, 0, length);
+    }
+
+    private byte[] tagBuffer() {
+        if (tagBuffer == null) {
+            tagBuffer = new byte[getAlgorithm().tagLength()];
+        }
+        generateTag(tagBuffer);
+        return tagBuffer;
     }
 
     protected void enableAad(boolean enable) {
@@ -5,7 +5,7 @@
 package org.asterisk.crypto.helper;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
+import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import org.asterisk.crypto.Xof;
 
@@ -22,7 +22,7 @@ public abstract class AbstractXofEngine implements Xof.Engine {
     private final int blockSize, digestSize;
 
     public AbstractXofEngine(int blockSize, int digestSize) {
-        buffer = Arena.ofAuto().allocate(blockSize);
+        buffer = Tools.allocate(blockSize);
         this.blockSize = blockSize;
         this.digestBuffer = new byte[digestSize];
         this.digestSize = digestSize;
@@ -34,6 +34,11 @@ public abstract class AbstractXofEngine implements Xof.Engine {
 
     protected abstract void digestOneBlock(byte[] dest, int offset);
 
+    /**
+     * restores the state to what it was right after construction
+     */
+    protected abstract void resetState();
+
     @Override
     public final void ingest(MemorySegment input) {
         long offset = 0, length = input.byteSize();
@@ -90,4 +95,52 @@ public abstract class AbstractXofEngine implements Xof.Engine {
         }
     }
 
+    @Override
+    public void continueDigesting(MemorySegment dest) {
+        long offset = 0, length = dest.byteSize();
+        if (position > 0) {
+            int give = (int) Math.min(digestSize - position, length);
+            MemorySegment.copy(digestBuffer, position, dest, ValueLayout.JAVA_BYTE, offset, give);
+            position += give;
+            offset += give;
+            length -= give;
+            if (position == digestSize) {
+                position = 0;
+            }
+        }
+        while (length > 0) {
+            int give = (int) Math.min(digestSize, length);
+            digestOneBlock(digestBuffer, 0);
+            MemorySegment.copy(digestBuffer, 0, dest, ValueLayout.JAVA_BYTE, offset, give);
+            offset += give;
+            length -= give;
+            position = give % digestSize;
+        }
+    }
+
+    /**
+     * subclasses implement this by creating a new engine with a copy of their
+     * state and passing it through {@link #copyBufferTo(AbstractXofEngine)}
+     */
+    @Override
+    public abstract Xof.Engine copy();
+
+    /**
+     * copies the buffered input, or the unread output if squeezing has started,
+     * of this engine into {@code copy}, which must be an engine of the same
+     * algorithm
+     */
+    protected final Xof.Engine copyBufferTo(AbstractXofEngine copy) {
+        MemorySegment.copy(buffer, 0, copy.buffer, 0, blockSize);
+        System.arraycopy(digestBuffer, 0, copy.digestBuffer, 0, digestSize);
+        copy.position = position;
+        return copy;
+    }
+
+    @Override
+    public final void reset() {
+        position = 0;
+        resetState();
+    }
+
 }
@@ -30,14 +30,15 @@ public class GfHelper {
         src[0] = (src[0] << 1) | (src[1] >>> 31);
         src[1] = (src[1] << 1) | (src[2] >>> 31);
         src[2] = (src[2] << 1) | (src[3] >>> 31);
-        src[3] = (src[3] << 1) | (x & POLY);
+        src[3] = (src[3] << 1) ^ (x & POLY);
     }
 
     public static void x2(int[] src, int[] dst) {
+        int x = src[0] >> 31;
         dst[0] = (src[0] << 1) | (src[1] >>> 31);
         dst[1] = (src[1] << 1) | (src[2] >>> 31);
         dst[2] = (src[2] << 1) | (src[3] >>> 31);
-        dst[3] = (src[3] << 1) | (src[0] & POLY);
+        dst[3] = (src[3] << 1) ^ (x & POLY);
     }
 
     public static void x3(int[] src, int[] dst) {
@@ -45,38 +46,26 @@ public class GfHelper {
         dst[0] = ((src[0] << 1) | (src[1] >>> 31)) ^ src[0];
         dst[1] = ((src[1] << 1) | (src[2] >>> 31)) ^ src[1];
         dst[2] = ((src[2] << 1) | (src[3] >>> 31)) ^ src[2];
-        dst[3] = ((src[3] << 1) | (x & POLY)) ^ src[3];
+        dst[3] = ((src[3] << 1) ^ (x & POLY)) ^ src[3];
     }
 
     public static void x7(int[] src) {
-
-        final int src0 = src[0], src1 = src[1], src2 = src[2], src3 = src[3];
-
-        //7=3*2+1
-        src[0] = (src0 << 1) | (src1 >>> 31);
-        src[1] = (src1 << 1) | (src2 >>> 31);
-        src[2] = (src2 << 1) | (src3 >>> 31);
-        src[3] = (src3 << 1) | ((src0 >> 31) & POLY);
-
-        src[0] ^= ((src[0] << 1) | (src[1] >>> 31)) ^ src0;
-        src[1] ^= ((src[1] << 1) | (src[2] >>> 31)) ^ src1;
-        src[2] ^= ((src[2] << 1) | (src[3] >>> 31)) ^ src2;
-        src[3] ^= ((src[3] << 1) | ((src[0] >> 31) & POLY)) ^ src3;
-
+        x7(src, src);
     }
 
     public static void x7(int[] src, int[] dst) {
-        //7=3*2+1
-        dst[0] = (src[0] << 1) | (src[1] >>> 31);
-        dst[1] = (src[1] << 1) | (src[2] >>> 31);
-        dst[2] = (src[2] << 1) | (src[3] >>> 31);
-        dst[3] = (src[3] << 1) | ((src[0] >> 31) & POLY);
+        final int src0 = src[0], src1 = src[1], src2 = src[2], src3 = src[3];
 
-        dst[0] ^= ((dst[0] << 1) | (dst[1] >>> 31)) ^ src[0];
-        dst[1] ^= ((dst[1] << 1) | (dst[2] >>> 31)) ^ src[1];
-        dst[2] ^= ((dst[2] << 1) | (dst[3] >>> 31)) ^ src[2];
-        dst[3] ^= ((dst[3] << 1) | ((dst[0] >> 31) & POLY)) ^ src[3];
+        //7=4+2+1
+        final int d0 = (src0 << 1) | (src1 >>> 31);
+        final int d1 = (src1 << 1) | (src2 >>> 31);
+        final int d2 = (src2 << 1) | (src3 >>> 31);
+        final int d3 = (src3 << 1) ^ ((src0 >> 31) & POLY);
 
+        dst[0] = ((d0 << 1) | (d1 >>> 31)) ^ d0 ^ src0;
+        dst[1] = ((d1 << 1) | (d2 >>> 31)) ^ d1 ^ src1;
+        dst[2] = ((d2 << 1) | (d3 >>> 31)) ^ d2 ^ src2;
+        dst[3] = ((d3 << 1) ^ ((d0 >> 31) & POLY)) ^ d3 ^ src3;
     }
 
     private GfHelper() {
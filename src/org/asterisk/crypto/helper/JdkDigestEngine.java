@@ -0,0 +1,163 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.helper;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.security.DigestException;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Objects;
+import org.asterisk.crypto.Digest;
+
+/**
+ * a digest engine that hands the compression to a {@link MessageDigest} of the
+ * JDK's own {@code SUN} provider, whose compression functions HotSpot
+ * replaces with intrinsics using the SHA extensions of the cpu when it has
+ * them. The state of a {@code MessageDigest} can't be read, so these engines
+ * can be copied but not exported
+ *
+ * @author Sayantan Chakraborty
+ */
+public final class JdkDigestEngine implements Digest.Engine {
+
+    /**
+     * set the system property {@code org.asterisk.crypto.jdkDigests} to
+     * {@code false} to always use the Java implementations, for example to
+     * export their states
+     */
+    private static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("org.asterisk.crypto.jdkDigests"));
+
+    /**
+     * the size of the pieces segments that can't be viewed as a
+     * {@code ByteBuffer} are copied in
+     */
+    private static final int CHUNK_SIZE = 8192;
+
+    /**
+     * returns a fresh {@code MessageDigest} of the {@code SUN} provider for
+     * {@code name} to clone engines from, or {@code null} if there is none
+     * or it can't be cloned, in which case the Java implementation should be
+     * used
+     */
+    public static MessageDigest prototype(String name) {
+        if (!ENABLED) {
+            return null;
+        }
+        try {
+            var digest = MessageDigest.getInstance(name, "SUN");
+            digest.clone();
+            return digest;
+        } catch (GeneralSecurityException | CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    private static MessageDigest clone(MessageDigest digest) {
+        try {
+            return (MessageDigest) digest.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError("prototypes are checked to be cloneable", e);
+        }
+    }
+
+    private final Digest algorithm;
+    private final MessageDigest digest;
+
+    private byte[] chunk, digestBuffer;
+
+    /**
+     * starts an engine for {@code algorithm} in the state of
+     * {@code prototype}, which is not modified
+     */
+    public JdkDigestEngine(Digest algorithm, MessageDigest prototype) {
+        this.algorithm = algorithm;
+        this.digest = clone(prototype);
+    }
+
+    @Override
+    public void ingest(MemorySegment input) {
+        if (input.isNative() || input.heapBase().orElse(null) instanceof byte[]) {
+            for (long offset = 0, length = input.byteSize(); length > 0;) {
+                int take = (int) Math.min(length, Integer.MAX_VALUE);
+                digest.update(input.asSlice(offset, take).asByteBuffer());
+                offset += take;
+                length -= take;
+            }
+        } else {
+            if (chunk == null) {
+                chunk = new byte[CHUNK_SIZE];
+            }
+            for (long offset = 0, length = input.byteSize(); length > 0;) {
+                int take = (int) Math.min(length, CHUNK_SIZE);
+                MemorySegment.copy(input, ValueLayout.JAVA_BYTE, offset, chunk, 0, take);
+                digest.update(chunk, 0, take);
+                offset += take;
+                length -= take;
+            }
+        }
+    }
+
+    @Override
+    public void ingest(byte[] input, int offset, int length) {
+        digest.update(input, offset, length);
+    }
+
+    @Override
+    public void digestTo(byte[] dest, int offset) {
+        int digestSize = algorithm.digestSize();
+        Objects.checkFromIndexSize(offset, digestSize, dest.length);
+        try {
+            digest.digest(dest, offset, digestSize);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public void digestTo(MemorySegment dest) {
+        int digestSize = algorithm.digestSize();
+        Objects.checkFromIndexSize(0, digestSize, dest.byteSize());
+        if (digestBuffer == null) {
+            digestBuffer = new byte[digestSize];
+        }
+        digestTo(digestBuffer, 0);
+        MemorySegment.copy(digestBuffer, 0, dest, ValueLayout.JAVA_BYTE, 0, digestSize);
+    }
+
+    @Override
+    public void reset() {
+        digest.reset();
+    }
+
+    @Override
+    public Digest.Engine copy() {
+        return new JdkDigestEngine(algorithm, digest);
+    }
+
+    @Override
+    public byte[] exportState() {
+        throw new UnsupportedOperationException(algorithm + " engines backed by the JDK can't export their state");
+    }
+
+    @Override
+    public Digest getAlgorithm() {
+        return algorithm;
+    }
+
+}
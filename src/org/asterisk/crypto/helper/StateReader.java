@@ -0,0 +1,140 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.helper;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * reads states written by {@link StateWriter}. Every malformed state, whether
+ * truncated, of another version or of another algorithm, is reported with an
+ * {@link IllegalArgumentException}
+ *
+ * @author Sayantan Chakraborty
+ */
+public final class StateReader {
+
+    private final byte[] bytes;
+    private int position = 0;
+
+    public StateReader(byte[] state, Object algorithm) {
+        this.bytes = state;
+        int version = getByte();
+        if (version != StateWriter.VERSION) {
+            throw new IllegalArgumentException("Unsupported state version " + version + ", expected " + StateWriter.VERSION);
+        }
+        int length = getInt();
+        require(length);
+        var name = new String(bytes, position, length, StandardCharsets.UTF_8);
+        position += length;
+        if (!name.equals(algorithm.toString())) {
+            throw new IllegalArgumentException("State of " + name + " can't be imported into " + algorithm);
+        }
+    }
+
+    private void require(int length) {
+        if (length < 0 || bytes.length - position < length) {
+            throw new IllegalArgumentException("Truncated state");
+        }
+    }
+
+    public int getByte() {
+        require(1);
+        return bytes[position++] & 0xff;
+    }
+
+    public int getInt() {
+        require(4);
+        int ret = Tools.load32BE(bytes, position);
+        position += 4;
+        return ret;
+    }
+
+    public long getLong() {
+        require(8);
+        long ret = Tools.load64BE(bytes, position);
+        position += 8;
+        return ret;
+    }
+
+    /**
+     * reads an int and checks that it lies in {@code [0, max]}
+     */
+    public int getInt(int max) {
+        int ret = getInt();
+        if (ret < 0 || ret > max) {
+            throw new IllegalArgumentException("Corrupt state, " + ret + " is out of range [0, " + max + "]");
+        }
+        return ret;
+    }
+
+    /**
+     * reads a long and checks that it is not negative
+     */
+    public long getCounter() {
+        long ret = getLong();
+        if (ret < 0) {
+            throw new IllegalArgumentException("Corrupt state, negative counter " + ret);
+        }
+        return ret;
+    }
+
+    public void getInts(int[] dest, int length) {
+        for (int i = 0; i < length; i++) {
+            dest[i] = getInt();
+        }
+    }
+
+    public void getLongs(long[] dest, int length) {
+        for (int i = 0; i < length; i++) {
+            dest[i] = getLong();
+        }
+    }
+
+    public void getBytes(byte[] dest) {
+        getBytes(MemorySegment.ofArray(dest), dest.length, dest.length);
+    }
+
+    /**
+     * reads a run of bytes of at least {@code min} and at most {@code max}
+     * bytes into {@code dest}
+     *
+     * @return the length of the run
+     */
+    public int getBytes(MemorySegment dest, int min, int max) {
+        int length = getInt();
+        if (length < min || length > max) {
+            throw new IllegalArgumentException("Corrupt state, " + length + " bytes is out of range [" + min + ", " + max + "]");
+        }
+        require(length);
+        MemorySegment.copy(bytes, position, dest, ValueLayout.JAVA_BYTE, 0, length);
+        position += length;
+        return length;
+    }
+
+    /**
+     * checks that the whole state was read
+     */
+    public void finish() {
+        if (position != bytes.length) {
+            throw new IllegalArgumentException("Corrupt state, " + (bytes.length - position) + " trailing bytes");
+        }
+    }
+
+}
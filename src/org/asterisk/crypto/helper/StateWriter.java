@@ -0,0 +1,101 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.helper;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * writes the format read by {@link StateReader}. A state starts with a
+ * version byte and the name of the algorithm, followed by the fields of the
+ * engine in the order they were put, all big endian. Byte runs are prefixed
+ * with their length
+ *
+ * @author Sayantan Chakraborty
+ */
+public final class StateWriter {
+
+    public static final int VERSION = 1;
+
+    private byte[] bytes = new byte[256];
+    private int position = 0;
+
+    public StateWriter(Object algorithm) {
+        putByte(VERSION);
+        putBytes(algorithm.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void ensure(int length) {
+        if (bytes.length - position < length) {
+            bytes = Arrays.copyOf(bytes, Math.max(2 * bytes.length, position + length));
+        }
+    }
+
+    public StateWriter putByte(int b) {
+        ensure(1);
+        bytes[position++] = (byte) b;
+        return this;
+    }
+
+    public StateWriter putInt(int i) {
+        ensure(4);
+        Tools.store32BE(i, bytes, position);
+        position += 4;
+        return this;
+    }
+
+    public StateWriter putLong(long l) {
+        ensure(8);
+        Tools.store64BE(l, bytes, position);
+        position += 8;
+        return this;
+    }
+
+    public StateWriter putInts(int[] src, int length) {
+        for (int i = 0; i < length; i++) {
+            putInt(src[i]);
+        }
+        return this;
+    }
+
+    public StateWriter putLongs(long[] src, int length) {
+        for (int i = 0; i < length; i++) {
+            putLong(src[i]);
+        }
+        return this;
+    }
+
+    public StateWriter putBytes(byte[] src) {
+        return putBytes(MemorySegment.ofArray(src), src.length);
+    }
+
+    public StateWriter putBytes(MemorySegment src, int length) {
+        putInt(length);
+        ensure(length);
+        MemorySegment.copy(src, ValueLayout.JAVA_BYTE, 0, bytes, position, length);
+        position += length;
+        return this;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, position);
+    }
+
+}
@@ -4,9 +4,11 @@
  */
 package org.asterisk.crypto.helper;
 
+import java.lang.foreign.Arena;
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
 import java.util.Objects;
+import java.util.function.Supplier;
 
 import static java.nio.ByteOrder.BIG_ENDIAN;
 import static java.nio.ByteOrder.LITTLE_ENDIAN;
@@ -25,6 +27,66 @@ public class Tools {
 
     public static final ValueLayout.OfLong LITTLE_ENDIAN_64_BIT = ValueLayout.JAVA_LONG.withByteAlignment(1).withOrder(LITTLE_ENDIAN);
 
+    /**
+     * whether the optional {@code jdk.incubator.vector} module is present.
+     * Classes using the vector api must only be loaded if it is
+     */
+    public static final boolean VECTOR_API = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private static final ThreadLocal<Arena> ARENA = new ThreadLocal<>();
+
+    /**
+     * never started, so no confined segment is accessible by it
+     */
+    private static final Thread OTHER_THREAD = Thread.ofPlatform().unstarted(() -> {
+    });
+
+    /**
+     * returns the arena passed to the innermost enclosing
+     * {@link #inArena(Arena, Supplier) inArena} call on this thread, or a new
+     * automatic arena if there is none
+     */
+    public static Arena arena() {
+        var arena = ARENA.get();
+        return arena == null ? Arena.ofAuto() : arena;
+    }
+
+    /**
+     * allocates an engine buffer in the current {@link #arena() arena}
+     */
+    public static MemorySegment allocate(long size) {
+        return arena().allocate(size);
+    }
+
+    /**
+     * runs {@code action} with {@code arena} as the current arena of this
+     * thread, so that all buffers allocated by engines started in it live in
+     * {@code arena}
+     */
+    public static <T> T inArena(Arena arena, Supplier<T> action) {
+        Objects.requireNonNull(arena);
+        var previous = ARENA.get();
+        ARENA.set(arena);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                ARENA.remove();
+            } else {
+                ARENA.set(previous);
+            }
+        }
+    }
+
+    /**
+     * checks if {@code segment} can be read by threads other than its owner,
+     * which is true for all segments except those of confined arenas. Engines
+     * check this before handing a segment to worker threads
+     */
+    public static boolean isShared(MemorySegment segment) {
+        return segment.isAccessibleBy(OTHER_THREAD);
+    }
+
     public static boolean equals(byte[] arr1, int off1, byte[] arr2, int off2, int len) {
         Objects.checkFromIndexSize(off1, len, arr1.length);
         Objects.checkFromIndexSize(off2, len, arr2.length);
@@ -35,6 +97,16 @@ public class Tools {
         return result == 0;
     }
 
+    public static boolean equals(byte[] arr, int offset, MemorySegment segment, long sOffset, int len) {
+        Objects.checkFromIndexSize(offset, len, arr.length);
+        Objects.checkFromIndexSize(sOffset, len, segment.byteSize());
+        int result = 0;
+        for (int i = 0; i < len; i++) {
+            result |= arr[offset + i] ^ segment.get(ValueLayout.JAVA_BYTE, sOffset + i);
+        }
+        return result == 0;
+    }
+
     public static int load32BE(byte[] src, int offset) {
         return (src[offset + 0]) << 24
                 | (src[offset + 1] & 0xff) << 16
@@ -0,0 +1,493 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.lowlevel;
+
+import org.asterisk.crypto.helper.Tools;
+
+import static org.asterisk.crypto.helper.Tools.load32LE;
+
+/**
+ * bitsliced AES, after the {@code ct64} implementation of BearSSL. Four
+ * blocks are spread over 8 longs, one long per bit of every byte, so the
+ * S-box becomes a fixed boolean circuit (the one of Boyar and Peralta) and
+ * nothing is ever looked up with a secret index. The same key schedule serves
+ * both directions. With the vector module present, runs of blocks go through
+ * {@link AesBitslicedVector}, one such state per long lane
+ *
+ * @author Sayantan Chakraborty
+ */
+final class AesBitsliced {
+
+    /**
+     * the number of blocks processed by one pass
+     */
+    static final int BLOCKS = 4;
+
+    static final boolean VECTORIZED = Tools.VECTOR_API && AesBitslicedVector.LANES >= 2;
+
+    /**
+     * the number of longs of scratch space {@link #encrypt} and
+     * {@link #decrypt} need for the state
+     */
+    static final int STATE_LONGS = VECTORIZED ? 8 * AesBitslicedVector.LANES : 8;
+
+    private static final int[] RCON = {
+        0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36
+    };
+
+    /**
+     * returns the number of rounds of a key of {@code length} bytes
+     */
+    static int rounds(int length) {
+        return length / 4 + 6;
+    }
+
+    /**
+     * expands the first {@code length} bytes of {@code key} into
+     * {@code 8 * (rounds(length) + 1)} bitsliced round key words
+     */
+    static long[] keySchedule(byte[] key, int length) {
+        int nk = length / 4, nkf = 4 * (rounds(length) + 1);
+        int[] w = new int[nkf];
+        for (int i = 0; i < nk; i++) {
+            w[i] = load32LE(key, 4 * i);
+        }
+        int tmp = w[nk - 1];
+        for (int i = nk, j = 0, k = 0; i < nkf; i++) {
+            if (j == 0) {
+                tmp = subWord(Integer.rotateRight(tmp, 8)) ^ RCON[k];
+            } else if (nk > 6 && j == 4) {
+                tmp = subWord(tmp);
+            }
+            tmp ^= w[i - nk];
+            w[i] = tmp;
+            if (++j == nk) {
+                j = 0;
+                k++;
+            }
+        }
+
+        long[] skey = new long[2 * nkf], q = new long[8];
+        for (int i = 0; i < nkf; i += 4) {
+            interleaveIn(q, 0, 4, w, i);
+            q[1] = q[2] = q[3] = q[0];
+            q[5] = q[6] = q[7] = q[4];
+            ortho(q);
+            //keep one copy of every bit and spread it over the 4 blocks
+            for (int h = 0; h < 2; h++) {
+                long x = (q[4 * h] & 0x1111111111111111L)
+                        | (q[4 * h + 1] & 0x2222222222222222L)
+                        | (q[4 * h + 2] & 0x4444444444444444L)
+                        | (q[4 * h + 3] & 0x8888888888888888L);
+                for (int b = 0; b < 4; b++) {
+                    long y = (x >>> b) & 0x1111111111111111L;
+                    skey[2 * i + 4 * h + b] = (y << 4) - y;
+                }
+            }
+        }
+        return skey;
+    }
+
+    private static int subWord(int x) {
+        long[] q = new long[8];
+        q[0] = x & 0xffffffffL;
+        ortho(q);
+        sbox(q);
+        ortho(q);
+        return (int) q[0];
+    }
+
+    /**
+     * encrypts {@code blocks} blocks of 4 big endian words, using
+     * {@code q} and {@code w} ({@link #STATE_LONGS} longs and 16 ints) as
+     * scratch space
+     */
+    static void encrypt(long[] skey, int rounds, int[] plaintext, int pOffset, int[] ciphertext, int cOffset, int blocks, long[] q, int[] w) {
+        if (VECTORIZED && blocks >= AesBitslicedVector.BLOCKS) {
+            int passes = blocks / AesBitslicedVector.BLOCKS;
+            AesBitslicedVector.encrypt(skey, rounds, plaintext, pOffset, ciphertext, cOffset, passes, q, w);
+            pOffset += 4 * AesBitslicedVector.BLOCKS * passes;
+            cOffset += 4 * AesBitslicedVector.BLOCKS * passes;
+            blocks -= AesBitslicedVector.BLOCKS * passes;
+        }
+        while (blocks > 0) {
+            int n = Math.min(blocks, BLOCKS);
+            load(plaintext, pOffset, n, q, w);
+
+            addRoundKey(q, skey, 0);
+            for (int r = 1; r < rounds; r++) {
+                sbox(q);
+                shiftRows(q);
+                mixColumns(q);
+                addRoundKey(q, skey, 8 * r);
+            }
+            sbox(q);
+            shiftRows(q);
+            addRoundKey(q, skey, 8 * rounds);
+
+            store(q, w, ciphertext, cOffset, n);
+            pOffset += 4 * n;
+            cOffset += 4 * n;
+            blocks -= n;
+        }
+    }
+
+    /**
+     * decrypts {@code blocks} blocks of 4 big endian words, using
+     * {@code q} and {@code w} ({@link #STATE_LONGS} longs and 16 ints) as
+     * scratch space
+     */
+    static void decrypt(long[] skey, int rounds, int[] ciphertext, int cOffset, int[] plaintext, int pOffset, int blocks, long[] q, int[] w) {
+        if (VECTORIZED && blocks >= AesBitslicedVector.BLOCKS) {
+            int passes = blocks / AesBitslicedVector.BLOCKS;
+            AesBitslicedVector.decrypt(skey, rounds, ciphertext, cOffset, plaintext, pOffset, passes, q, w);
+            cOffset += 4 * AesBitslicedVector.BLOCKS * passes;
+            pOffset += 4 * AesBitslicedVector.BLOCKS * passes;
+            blocks -= AesBitslicedVector.BLOCKS * passes;
+        }
+        while (blocks > 0) {
+            int n = Math.min(blocks, BLOCKS);
+            load(ciphertext, cOffset, n, q, w);
+
+            addRoundKey(q, skey, 8 * rounds);
+            for (int r = rounds - 1; r > 0; r--) {
+                invShiftRows(q);
+                invSbox(q);
+                addRoundKey(q, skey, 8 * r);
+                invMixColumns(q);
+            }
+            invShiftRows(q);
+            invSbox(q);
+            addRoundKey(q, skey, 0);
+
+            store(q, w, plaintext, pOffset, n);
+            cOffset += 4 * n;
+            pOffset += 4 * n;
+            blocks -= n;
+        }
+    }
+
+    /**
+     * bitslices {@code n} blocks, the missing ones are taken as zero
+     */
+    private static void load(int[] src, int offset, int n, long[] q, int[] w) {
+        for (int i = 0; i < 4 * n; i++) {
+            w[i] = Integer.reverseBytes(src[offset + i]);
+        }
+        for (int i = 4 * n; i < 16; i++) {
+            w[i] = 0;
+        }
+        for (int i = 0; i < 4; i++) {
+            interleaveIn(q, i, i + 4, w, 4 * i);
+        }
+        ortho(q);
+    }
+
+    private static void store(long[] q, int[] w, int[] dest, int offset, int n) {
+        ortho(q);
+        for (int i = 0; i < 4; i++) {
+            interleaveOut(w, 4 * i, q[i], q[i + 4]);
+        }
+        for (int i = 0; i < 4 * n; i++) {
+            dest[offset + i] = Integer.reverseBytes(w[i]);
+        }
+    }
+
+    /**
+     * spreads the block {@code w[offset..offset+3]} over the even and odd
+     * bits of the bytes of {@code q[i0]} and {@code q[i1]}
+     */
+    static void interleaveIn(long[] q, int i0, int i1, int[] w, int offset) {
+        long x0 = w[offset] & 0xffffffffL, x1 = w[offset + 1] & 0xffffffffL,
+                x2 = w[offset + 2] & 0xffffffffL, x3 = w[offset + 3] & 0xffffffffL;
+        x0 = (x0 | (x0 << 16)) & 0x0000ffff0000ffffL;
+        x1 = (x1 | (x1 << 16)) & 0x0000ffff0000ffffL;
+        x2 = (x2 | (x2 << 16)) & 0x0000ffff0000ffffL;
+        x3 = (x3 | (x3 << 16)) & 0x0000ffff0000ffffL;
+        x0 = (x0 | (x0 << 8)) & 0x00ff00ff00ff00ffL;
+        x1 = (x1 | (x1 << 8)) & 0x00ff00ff00ff00ffL;
+        x2 = (x2 | (x2 << 8)) & 0x00ff00ff00ff00ffL;
+        x3 = (x3 | (x3 << 8)) & 0x00ff00ff00ff00ffL;
+        q[i0] = x0 | (x2 << 8);
+        q[i1] = x1 | (x3 << 8);
+    }
+
+    static void interleaveOut(int[] w, int offset, long q0, long q1) {
+        long x0 = q0 & 0x00ff00ff00ff00ffL, x1 = q1 & 0x00ff00ff00ff00ffL,
+                x2 = (q0 >>> 8) & 0x00ff00ff00ff00ffL, x3 = (q1 >>> 8) & 0x00ff00ff00ff00ffL;
+        x0 = (x0 | (x0 >>> 8)) & 0x0000ffff0000ffffL;
+        x1 = (x1 | (x1 >>> 8)) & 0x0000ffff0000ffffL;
+        x2 = (x2 | (x2 >>> 8)) & 0x0000ffff0000ffffL;
+        x3 = (x3 | (x3 >>> 8)) & 0x0000ffff0000ffffL;
+        w[offset] = (int) x0 | (int) (x0 >>> 16);
+        w[offset + 1] = (int) x1 | (int) (x1 >>> 16);
+        w[offset + 2] = (int) x2 | (int) (x2 >>> 16);
+        w[offset + 3] = (int) x3 | (int) (x3 >>> 16);
+    }
+
+    /**
+     * transposes the bits of the 8 words so that word {@code i} holds bit
+     * {@code i} of every byte, and back again
+     */
+    private static void ortho(long[] q) {
+        swap(q, 0, 1, 0x5555555555555555L, 1);
+        swap(q, 2, 3, 0x5555555555555555L, 1);
+        swap(q, 4, 5, 0x5555555555555555L, 1);
+        swap(q, 6, 7, 0x5555555555555555L, 1);
+
+        swap(q, 0, 2, 0x3333333333333333L, 2);
+        swap(q, 1, 3, 0x3333333333333333L, 2);
+        swap(q, 4, 6, 0x3333333333333333L, 2);
+        swap(q, 5, 7, 0x3333333333333333L, 2);
+
+        swap(q, 0, 4, 0x0f0f0f0f0f0f0f0fL, 4);
+        swap(q, 1, 5, 0x0f0f0f0f0f0f0f0fL, 4);
+        swap(q, 2, 6, 0x0f0f0f0f0f0f0f0fL, 4);
+        swap(q, 3, 7, 0x0f0f0f0f0f0f0f0fL, 4);
+    }
+
+    private static void swap(long[] q, int x, int y, long mask, int shift) {
+        long a = q[x], b = q[y];
+        q[x] = (a & mask) | ((b & mask) << shift);
+        q[y] = ((a & ~mask) >>> shift) | (b & ~mask);
+    }
+
+    private static void addRoundKey(long[] q, long[] skey, int offset) {
+        for (int i = 0; i < 8; i++) {
+            q[i] ^= skey[offset + i];
+        }
+    }
+
+    private static void sbox(long[] q) {
+        long x0 = q[7], x1 = q[6], x2 = q[5], x3 = q[4], x4 = q[3], x5 = q[2], x6 = q[1], x7 = q[0];
+
+        //top linear transformation
+        long y14 = x3 ^ x5;
+        long y13 = x0 ^ x6;
+        long y9 = x0 ^ x3;
+        long y8 = x0 ^ x5;
+        long t0 = x1 ^ x2;
+        long y1 = t0 ^ x7;
+        long y4 = y1 ^ x3;
+        long y12 = y13 ^ y14;
+        long y2 = y1 ^ x0;
+        long y5 = y1 ^ x6;
+        long y3 = y5 ^ y8;
+        long t1 = x4 ^ y12;
+        long y15 = t1 ^ x5;
+        long y20 = t1 ^ x1;
+        long y6 = y15 ^ x7;
+        long y10 = y15 ^ t0;
+        long y11 = y20 ^ y9;
+        long y7 = x7 ^ y11;
+        long y17 = y10 ^ y11;
+        long y19 = y10 ^ y8;
+        long y16 = t0 ^ y11;
+        long y21 = y13 ^ y16;
+        long y18 = x0 ^ y16;
+
+        //non-linear section
+        long t2 = y12 & y15;
+        long t3 = y3 & y6;
+        long t4 = t3 ^ t2;
+        long t5 = y4 & x7;
+        long t6 = t5 ^ t2;
+        long t7 = y13 & y16;
+        long t8 = y5 & y1;
+        long t9 = t8 ^ t7;
+        long t10 = y2 & y7;
+        long t11 = t10 ^ t7;
+        long t12 = y9 & y11;
+        long t13 = y14 & y17;
+        long t14 = t13 ^ t12;
+        long t15 = y8 & y10;
+        long t16 = t15 ^ t12;
+        long t17 = t4 ^ t14;
+        long t18 = t6 ^ t16;
+        long t19 = t9 ^ t14;
+        long t20 = t11 ^ t16;
+        long t21 = t17 ^ y20;
+        long t22 = t18 ^ y19;
+        long t23 = t19 ^ y21;
+        long t24 = t20 ^ y18;
+
+        long t25 = t21 ^ t22;
+        long t26 = t21 & t23;
+        long t27 = t24 ^ t26;
+        long t28 = t25 & t27;
+        long t29 = t28 ^ t22;
+        long t30 = t23 ^ t24;
+        long t31 = t22 ^ t26;
+        long t32 = t31 & t30;
+        long t33 = t32 ^ t24;
+        long t34 = t23 ^ t33;
+        long t35 = t27 ^ t33;
+        long t36 = t24 & t35;
+        long t37 = t36 ^ t34;
+        long t38 = t27 ^ t36;
+        long t39 = t29 & t38;
+        long t40 = t25 ^ t39;
+
+        long t41 = t40 ^ t37;
+        long t42 = t29 ^ t33;
+        long t43 = t29 ^ t40;
+        long t44 = t33 ^ t37;
+        long t45 = t42 ^ t41;
+        long z0 = t44 & y15;
+        long z1 = t37 & y6;
+        long z2 = t33 & x7;
+        long z3 = t43 & y16;
+        long z4 = t40 & y1;
+        long z5 = t29 & y7;
+        long z6 = t42 & y11;
+        long z7 = t45 & y17;
+        long z8 = t41 & y10;
+        long z9 = t44 & y12;
+        long z10 = t37 & y3;
+        long z11 = t33 & y4;
+        long z12 = t43 & y13;
+        long z13 = t40 & y5;
+        long z14 = t29 & y2;
+        long z15 = t42 & y9;
+        long z16 = t45 & y14;
+        long z17 = t41 & y8;
+
+        //bottom linear transformation
+        long t46 = z15 ^ z16;
+        long t47 = z10 ^ z11;
+        long t48 = z5 ^ z13;
+        long t49 = z9 ^ z10;
+        long t50 = z2 ^ z12;
+        long t51 = z2 ^ z5;
+        long t52 = z7 ^ z8;
+        long t53 = z0 ^ z3;
+        long t54 = z6 ^ z7;
+        long t55 = z16 ^ z17;
+        long t56 = z12 ^ t48;
+        long t57 = t50 ^ t53;
+        long t58 = z4 ^ t46;
+        long t59 = z3 ^ t54;
+        long t60 = t46 ^ t57;
+        long t61 = z14 ^ t57;
+        long t62 = t52 ^ t58;
+        long t63 = t49 ^ t58;
+        long t64 = z4 ^ t59;
+        long t65 = t61 ^ t62;
+        long t66 = z1 ^ t63;
+        long s0 = t59 ^ t63;
+        long s6 = t56 ^ ~t62;
+        long s7 = t48 ^ ~t60;
+        long t67 = t64 ^ t65;
+        long s3 = t53 ^ t66;
+        long s4 = t51 ^ t66;
+        long s5 = t47 ^ t65;
+        long s1 = t64 ^ ~s3;
+        long s2 = t55 ^ ~t67;
+
+        q[7] = s0;
+        q[6] = s1;
+        q[5] = s2;
+        q[4] = s3;
+        q[3] = s4;
+        q[2] = s5;
+        q[1] = s6;
+        q[0] = s7;
+    }
+
+    /**
+     * the inverse S-box is the forward one between two copies of the inverse
+     * of its affine transformation
+     */
+    private static void invSbox(long[] q) {
+        invAffine(q);
+        sbox(q);
+        invAffine(q);
+    }
+
+    private static void invAffine(long[] q) {
+        long q0 = ~q[0], q1 = ~q[1], q2 = q[2], q3 = q[3], q4 = q[4], q5 = ~q[5], q6 = ~q[6], q7 = q[7];
+        q[7] = q1 ^ q4 ^ q6;
+        q[6] = q0 ^ q3 ^ q5;
+        q[5] = q7 ^ q2 ^ q4;
+        q[4] = q6 ^ q1 ^ q3;
+        q[3] = q5 ^ q0 ^ q2;
+        q[2] = q4 ^ q7 ^ q1;
+        q[1] = q3 ^ q6 ^ q0;
+        q[0] = q2 ^ q5 ^ q7;
+    }
+
+    private static void shiftRows(long[] q) {
+        for (int i = 0; i < 8; i++) {
+            long x = q[i];
+            q[i] = (x & 0x000000000000ffffL)
+                    | ((x & 0x00000000fff00000L) >>> 4)
+                    | ((x & 0x00000000000f0000L) << 12)
+                    | ((x & 0x0000ff0000000000L) >>> 8)
+                    | ((x & 0x000000ff00000000L) << 8)
+                    | ((x & 0xf000000000000000L) >>> 12)
+                    | ((x & 0x0fff000000000000L) << 4);
+        }
+    }
+
+    private static void invShiftRows(long[] q) {
+        for (int i = 0; i < 8; i++) {
+            long x = q[i];
+            q[i] = (x & 0x000000000000ffffL)
+                    | ((x & 0x000000000fff0000L) << 4)
+                    | ((x & 0x00000000f0000000L) >>> 12)
+                    | ((x & 0x000000ff00000000L) << 8)
+                    | ((x & 0x0000ff0000000000L) >>> 8)
+                    | ((x & 0x000f000000000000L) << 12)
+                    | ((x & 0xfff0000000000000L) >>> 4);
+        }
+    }
+
+    private static void mixColumns(long[] q) {
+        long q0 = q[0], q1 = q[1], q2 = q[2], q3 = q[3], q4 = q[4], q5 = q[5], q6 = q[6], q7 = q[7];
+        long r0 = Long.rotateRight(q0, 16), r1 = Long.rotateRight(q1, 16), r2 = Long.rotateRight(q2, 16), r3 = Long.rotateRight(q3, 16),
+                r4 = Long.rotateRight(q4, 16), r5 = Long.rotateRight(q5, 16), r6 = Long.rotateRight(q6, 16), r7 = Long.rotateRight(q7, 16);
+
+        q[0] = q7 ^ r7 ^ r0 ^ Long.rotateRight(q0 ^ r0, 32);
+        q[1] = q0 ^ r0 ^ q7 ^ r7 ^ r1 ^ Long.rotateRight(q1 ^ r1, 32);
+        q[2] = q1 ^ r1 ^ r2 ^ Long.rotateRight(q2 ^ r2, 32);
+        q[3] = q2 ^ r2 ^ q7 ^ r7 ^ r3 ^ Long.rotateRight(q3 ^ r3, 32);
+        q[4] = q3 ^ r3 ^ q7 ^ r7 ^ r4 ^ Long.rotateRight(q4 ^ r4, 32);
+        q[5] = q4 ^ r4 ^ r5 ^ Long.rotateRight(q5 ^ r5, 32);
+        q[6] = q5 ^ r5 ^ r6 ^ Long.rotateRight(q6 ^ r6, 32);
+        q[7] = q6 ^ r6 ^ r7 ^ Long.rotateRight(q7 ^ r7, 32);
+    }
+
+    private static void invMixColumns(long[] q) {
+        long q0 = q[0], q1 = q[1], q2 = q[2], q3 = q[3], q4 = q[4], q5 = q[5], q6 = q[6], q7 = q[7];
+        long r0 = Long.rotateRight(q0, 16), r1 = Long.rotateRight(q1, 16), r2 = Long.rotateRight(q2, 16), r3 = Long.rotateRight(q3, 16),
+                r4 = Long.rotateRight(q4, 16), r5 = Long.rotateRight(q5, 16), r6 = Long.rotateRight(q6, 16), r7 = Long.rotateRight(q7, 16);
+
+        q[0] = q5 ^ q6 ^ q7 ^ r0 ^ r5 ^ r7 ^ Long.rotateRight(q0 ^ q5 ^ q6 ^ r0 ^ r5, 32);
+        q[1] = q0 ^ q5 ^ r0 ^ r1 ^ r5 ^ r6 ^ r7 ^ Long.rotateRight(q1 ^ q5 ^ q7 ^ r1 ^ r5 ^ r6, 32);
+        q[2] = q0 ^ q1 ^ q6 ^ r1 ^ r2 ^ r6 ^ r7 ^ Long.rotateRight(q0 ^ q2 ^ q6 ^ r2 ^ r6 ^ r7, 32);
+        q[3] = q0 ^ q1 ^ q2 ^ q5 ^ q6 ^ r0 ^ r2 ^ r3 ^ r5 ^ Long.rotateRight(q0 ^ q1 ^ q3 ^ q5 ^ q6 ^ q7 ^ r0 ^ r3 ^ r5 ^ r7, 32);
+        q[4] = q1 ^ q2 ^ q3 ^ q5 ^ r1 ^ r3 ^ r4 ^ r5 ^ r6 ^ r7 ^ Long.rotateRight(q1 ^ q2 ^ q4 ^ q5 ^ q7 ^ r1 ^ r4 ^ r5 ^ r6, 32);
+        q[5] = q2 ^ q3 ^ q4 ^ q6 ^ r2 ^ r4 ^ r5 ^ r6 ^ r7 ^ Long.rotateRight(q2 ^ q3 ^ q5 ^ q6 ^ r2 ^ r5 ^ r6 ^ r7, 32);
+        q[6] = q3 ^ q4 ^ q5 ^ q7 ^ r3 ^ r5 ^ r6 ^ r7 ^ Long.rotateRight(q3 ^ q4 ^ q6 ^ q7 ^ r3 ^ r6 ^ r7, 32);
+        q[7] = q4 ^ q5 ^ q6 ^ r4 ^ r6 ^ r7 ^ Long.rotateRight(q4 ^ q5 ^ q7 ^ r4 ^ r7, 32);
+    }
+
+    private AesBitsliced() {
+    }
+
+}
@@ -0,0 +1,439 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.lowlevel;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.AND;
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.NOT;
+import static jdk.incubator.vector.VectorOperators.OR;
+import static jdk.incubator.vector.VectorOperators.ROR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * {@link AesBitsliced} with one bitsliced state per long lane, so a pass
+ * covers {@link #BLOCKS} blocks. Word {@code i} of the state in lane
+ * {@code j} is kept at {@code LANES * i + j}
+ * <p>
+ * This class must only be touched when the {@code jdk.incubator.vector}
+ * module is present, see {@link AesBitsliced#VECTORIZED}
+ *
+ * @author Sayantan Chakraborty
+ */
+final class AesBitslicedVector {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    static final int LANES = SPECIES.length();
+
+    static final int BLOCKS = AesBitsliced.BLOCKS * LANES;
+
+    /**
+     * encrypts {@code passes * BLOCKS} blocks, {@code state} must have space
+     * for {@code 8 * LANES} longs
+     */
+    static void encrypt(long[] skey, int rounds, int[] plaintext, int pOffset, int[] ciphertext, int cOffset, int passes, long[] state, int[] w) {
+        for (int p = 0; p < passes; p++) {
+            load(plaintext, pOffset + 4 * BLOCKS * p, state, w);
+
+            addRoundKey(state, skey, 0);
+            for (int r = 1; r < rounds; r++) {
+                sbox(state);
+                shiftRows(state);
+                mixColumns(state);
+                addRoundKey(state, skey, 8 * r);
+            }
+            sbox(state);
+            shiftRows(state);
+            addRoundKey(state, skey, 8 * rounds);
+
+            store(state, w, ciphertext, cOffset + 4 * BLOCKS * p);
+        }
+    }
+
+    /**
+     * decrypts {@code passes * BLOCKS} blocks, {@code state} must have space
+     * for {@code 8 * LANES} longs
+     */
+    static void decrypt(long[] skey, int rounds, int[] ciphertext, int cOffset, int[] plaintext, int pOffset, int passes, long[] state, int[] w) {
+        for (int p = 0; p < passes; p++) {
+            load(ciphertext, cOffset + 4 * BLOCKS * p, state, w);
+
+            addRoundKey(state, skey, 8 * rounds);
+            for (int r = rounds - 1; r > 0; r--) {
+                invShiftRows(state);
+                invSbox(state);
+                addRoundKey(state, skey, 8 * r);
+                invMixColumns(state);
+            }
+            invShiftRows(state);
+            invSbox(state);
+            addRoundKey(state, skey, 0);
+
+            store(state, w, plaintext, pOffset + 4 * BLOCKS * p);
+        }
+    }
+
+    private static void load(int[] src, int offset, long[] state, int[] w) {
+        for (int j = 0; j < LANES; j++) {
+            for (int i = 0; i < 16; i++) {
+                w[i] = Integer.reverseBytes(src[offset + 16 * j + i]);
+            }
+            for (int i = 0; i < 4; i++) {
+                AesBitsliced.interleaveIn(state, LANES * i + j, LANES * (i + 4) + j, w, 4 * i);
+            }
+        }
+        ortho(state);
+    }
+
+    private static void store(long[] state, int[] w, int[] dest, int offset) {
+        ortho(state);
+        for (int j = 0; j < LANES; j++) {
+            for (int i = 0; i < 4; i++) {
+                AesBitsliced.interleaveOut(w, 4 * i, state[LANES * i + j], state[LANES * (i + 4) + j]);
+            }
+            for (int i = 0; i < 16; i++) {
+                dest[offset + 16 * j + i] = Integer.reverseBytes(w[i]);
+            }
+        }
+    }
+
+    private static LongVector row(long[] state, int i) {
+        return LongVector.fromArray(SPECIES, state, LANES * i);
+    }
+
+    private static void ortho(long[] state) {
+        swap(state, 0, 1, 0x5555555555555555L, 1);
+        swap(state, 2, 3, 0x5555555555555555L, 1);
+        swap(state, 4, 5, 0x5555555555555555L, 1);
+        swap(state, 6, 7, 0x5555555555555555L, 1);
+
+        swap(state, 0, 2, 0x3333333333333333L, 2);
+        swap(state, 1, 3, 0x3333333333333333L, 2);
+        swap(state, 4, 6, 0x3333333333333333L, 2);
+        swap(state, 5, 7, 0x3333333333333333L, 2);
+
+        swap(state, 0, 4, 0x0f0f0f0f0f0f0f0fL, 4);
+        swap(state, 1, 5, 0x0f0f0f0f0f0f0f0fL, 4);
+        swap(state, 2, 6, 0x0f0f0f0f0f0f0f0fL, 4);
+        swap(state, 3, 7, 0x0f0f0f0f0f0f0f0fL, 4);
+    }
+
+    private static void swap(long[] state, int x, int y, long mask, int shift) {
+        var a = row(state, x);
+        var b = row(state, y);
+        a.lanewise(AND, mask).lanewise(OR, b.lanewise(AND, mask).lanewise(LSHL, shift)).intoArray(state, LANES * x);
+        a.lanewise(AND, ~mask).lanewise(LSHR, shift).lanewise(OR, b.lanewise(AND, ~mask)).intoArray(state, LANES * y);
+    }
+
+    private static void addRoundKey(long[] state, long[] skey, int offset) {
+        for (int i = 0; i < 8; i++) {
+            row(state, i).lanewise(XOR, skey[offset + i]).intoArray(state, LANES * i);
+        }
+    }
+
+    private static void sbox(long[] state) {
+        var x0 = row(state, 7);
+        var x1 = row(state, 6);
+        var x2 = row(state, 5);
+        var x3 = row(state, 4);
+        var x4 = row(state, 3);
+        var x5 = row(state, 2);
+        var x6 = row(state, 1);
+        var x7 = row(state, 0);
+
+        //top linear transformation
+        var y14 = x3.lanewise(XOR, x5);
+        var y13 = x0.lanewise(XOR, x6);
+        var y9 = x0.lanewise(XOR, x3);
+        var y8 = x0.lanewise(XOR, x5);
+        var t0 = x1.lanewise(XOR, x2);
+        var y1 = t0.lanewise(XOR, x7);
+        var y4 = y1.lanewise(XOR, x3);
+        var y12 = y13.lanewise(XOR, y14);
+        var y2 = y1.lanewise(XOR, x0);
+        var y5 = y1.lanewise(XOR, x6);
+        var y3 = y5.lanewise(XOR, y8);
+        var t1 = x4.lanewise(XOR, y12);
+        var y15 = t1.lanewise(XOR, x5);
+        var y20 = t1.lanewise(XOR, x1);
+        var y6 = y15.lanewise(XOR, x7);
+        var y10 = y15.lanewise(XOR, t0);
+        var y11 = y20.lanewise(XOR, y9);
+        var y7 = x7.lanewise(XOR, y11);
+        var y17 = y10.lanewise(XOR, y11);
+        var y19 = y10.lanewise(XOR, y8);
+        var y16 = t0.lanewise(XOR, y11);
+        var y21 = y13.lanewise(XOR, y16);
+        var y18 = x0.lanewise(XOR, y16);
+
+        //non-linear section
+        var t2 = y12.lanewise(AND, y15);
+        var t3 = y3.lanewise(AND, y6);
+        var t4 = t3.lanewise(XOR, t2);
+        var t5 = y4.lanewise(AND, x7);
+        var t6 = t5.lanewise(XOR, t2);
+        var t7 = y13.lanewise(AND, y16);
+        var t8 = y5.lanewise(AND, y1);
+        var t9 = t8.lanewise(XOR, t7);
+        var t10 = y2.lanewise(AND, y7);
+        var t11 = t10.lanewise(XOR, t7);
+        var t12 = y9.lanewise(AND, y11);
+        var t13 = y14.lanewise(AND, y17);
+        var t14 = t13.lanewise(XOR, t12);
+        var t15 = y8.lanewise(AND, y10);
+        var t16 = t15.lanewise(XOR, t12);
+        var t17 = t4.lanewise(XOR, t14);
+        var t18 = t6.lanewise(XOR, t16);
+        var t19 = t9.lanewise(XOR, t14);
+        var t20 = t11.lanewise(XOR, t16);
+        var t21 = t17.lanewise(XOR, y20);
+        var t22 = t18.lanewise(XOR, y19);
+        var t23 = t19.lanewise(XOR, y21);
+        var t24 = t20.lanewise(XOR, y18);
+
+        var t25 = t21.lanewise(XOR, t22);
+        var t26 = t21.lanewise(AND, t23);
+        var t27 = t24.lanewise(XOR, t26);
+        var t28 = t25.lanewise(AND, t27);
+        var t29 = t28.lanewise(XOR, t22);
+        var t30 = t23.lanewise(XOR, t24);
+        var t31 = t22.lanewise(XOR, t26);
+        var t32 = t31.lanewise(AND, t30);
+        var t33 = t32.lanewise(XOR, t24);
+        var t34 = t23.lanewise(XOR, t33);
+        var t35 = t27.lanewise(XOR, t33);
+        var t36 = t24.lanewise(AND, t35);
+        var t37 = t36.lanewise(XOR, t34);
+        var t38 = t27.lanewise(XOR, t36);
+        var t39 = t29.lanewise(AND, t38);
+        var t40 = t25.lanewise(XOR, t39);
+
+        var t41 = t40.lanewise(XOR, t37);
+        var t42 = t29.lanewise(XOR, t33);
+        var t43 = t29.lanewise(XOR, t40);
+        var t44 = t33.lanewise(XOR, t37);
+        var t45 = t42.lanewise(XOR, t41);
+        var z0 = t44.lanewise(AND, y15);
+        var z1 = t37.lanewise(AND, y6);
+        var z2 = t33.lanewise(AND, x7);
+        var z3 = t43.lanewise(AND, y16);
+        var z4 = t40.lanewise(AND, y1);
+        var z5 = t29.lanewise(AND, y7);
+        var z6 = t42.lanewise(AND, y11);
+        var z7 = t45.lanewise(AND, y17);
+        var z8 = t41.lanewise(AND, y10);
+        var z9 = t44.lanewise(AND, y12);
+        var z10 = t37.lanewise(AND, y3);
+        var z11 = t33.lanewise(AND, y4);
+        var z12 = t43.lanewise(AND, y13);
+        var z13 = t40.lanewise(AND, y5);
+        var z14 = t29.lanewise(AND, y2);
+        var z15 = t42.lanewise(AND, y9);
+        var z16 = t45.lanewise(AND, y14);
+        var z17 = t41.lanewise(AND, y8);
+
+        //bottom linear transformation
+        var t46 = z15.lanewise(XOR, z16);
+        var t47 = z10.lanewise(XOR, z11);
+        var t48 = z5.lanewise(XOR, z13);
+        var t49 = z9.lanewise(XOR, z10);
+        var t50 = z2.lanewise(XOR, z12);
+        var t51 = z2.lanewise(XOR, z5);
+        var t52 = z7.lanewise(XOR, z8);
+        var t53 = z0.lanewise(XOR, z3);
+        var t54 = z6.lanewise(XOR, z7);
+        var t55 = z16.lanewise(XOR, z17);
+        var t56 = z12.lanewise(XOR, t48);
+        var t57 = t50.lanewise(XOR, t53);
+        var t58 = z4.lanewise(XOR, t46);
+        var t59 = z3.lanewise(XOR, t54);
+        var t60 = t46.lanewise(XOR, t57);
+        var t61 = z14.lanewise(XOR, t57);
+        var t62 = t52.lanewise(XOR, t58);
+        var t63 = t49.lanewise(XOR, t58);
+        var t64 = z4.lanewise(XOR, t59);
+        var t65 = t61.lanewise(XOR, t62);
+        var t66 = z1.lanewise(XOR, t63);
+        var s0 = t59.lanewise(XOR, t63);
+        var s6 = t56.lanewise(XOR, t62).lanewise(NOT);
+        var s7 = t48.lanewise(XOR, t60).lanewise(NOT);
+        var t67 = t64.lanewise(XOR, t65);
+        var s3 = t53.lanewise(XOR, t66);
+        var s4 = t51.lanewise(XOR, t66);
+        var s5 = t47.lanewise(XOR, t65);
+        var s1 = t64.lanewise(XOR, s3).lanewise(NOT);
+        var s2 = t55.lanewise(XOR, t67).lanewise(NOT);
+        s0.intoArray(state, 7 * LANES);
+        s1.intoArray(state, 6 * LANES);
+        s2.intoArray(state, 5 * LANES);
+        s3.intoArray(state, 4 * LANES);
+        s4.intoArray(state, 3 * LANES);
+        s5.intoArray(state, 2 * LANES);
+        s6.intoArray(state, LANES);
+        s7.intoArray(state, 0);
+    }
+
+    private static void invSbox(long[] state) {
+        invAffine(state);
+        sbox(state);
+        invAffine(state);
+    }
+
+    private static void invAffine(long[] state) {
+        var q0 = row(state, 0).lanewise(NOT);
+        var q1 = row(state, 1).lanewise(NOT);
+        var q2 = row(state, 2);
+        var q3 = row(state, 3);
+        var q4 = row(state, 4);
+        var q5 = row(state, 5).lanewise(NOT);
+        var q6 = row(state, 6).lanewise(NOT);
+        var q7 = row(state, 7);
+        q1.lanewise(XOR, q4).lanewise(XOR, q6).intoArray(state, 7 * LANES);
+        q0.lanewise(XOR, q3).lanewise(XOR, q5).intoArray(state, 6 * LANES);
+        q7.lanewise(XOR, q2).lanewise(XOR, q4).intoArray(state, 5 * LANES);
+        q6.lanewise(XOR, q1).lanewise(XOR, q3).intoArray(state, 4 * LANES);
+        q5.lanewise(XOR, q0).lanewise(XOR, q2).intoArray(state, 3 * LANES);
+        q4.lanewise(XOR, q7).lanewise(XOR, q1).intoArray(state, 2 * LANES);
+        q3.lanewise(XOR, q6).lanewise(XOR, q0).intoArray(state, LANES);
+        q2.lanewise(XOR, q5).lanewise(XOR, q7).intoArray(state, 0);
+    }
+
+    private static void shiftRows(long[] state) {
+        for (int i = 0; i < 8; i++) {
+            var x = row(state, i);
+            x.lanewise(AND, 0x000000000000ffffL)
+                    .lanewise(OR, x.lanewise(AND, 0x00000000fff00000L).lanewise(LSHR, 4))
+                    .lanewise(OR, x.lanewise(AND, 0x00000000000f0000L).lanewise(LSHL, 12))
+                    .lanewise(OR, x.lanewise(AND, 0x0000ff0000000000L).lanewise(LSHR, 8))
+                    .lanewise(OR, x.lanewise(AND, 0x000000ff00000000L).lanewise(LSHL, 8))
+                    .lanewise(OR, x.lanewise(AND, 0xf000000000000000L).lanewise(LSHR, 12))
+                    .lanewise(OR, x.lanewise(AND, 0x0fff000000000000L).lanewise(LSHL, 4))
+                    .intoArray(state, LANES * i);
+        }
+    }
+
+    private static void invShiftRows(long[] state) {
+        for (int i = 0; i < 8; i++) {
+            var x = row(state, i);
+            x.lanewise(AND, 0x000000000000ffffL)
+                    .lanewise(OR, x.lanewise(AND, 0x000000000fff0000L).lanewise(LSHL, 4))
+                    .lanewise(OR, x.lanewise(AND, 0x00000000f0000000L).lanewise(LSHR, 12))
+                    .lanewise(OR, x.lanewise(AND, 0x000000ff00000000L).lanewise(LSHL, 8))
+                    .lanewise(OR, x.lanewise(AND, 0x0000ff0000000000L).lanewise(LSHR, 8))
+                    .lanewise(OR, x.lanewise(AND, 0x000f000000000000L).lanewise(LSHL, 12))
+                    .lanewise(OR, x.lanewise(AND, 0xfff0000000000000L).lanewise(LSHR, 4))
+                    .intoArray(state, LANES * i);
+        }
+    }
+
+    private static void mixColumns(long[] state) {
+        var q0 = row(state, 0);
+        var q1 = row(state, 1);
+        var q2 = row(state, 2);
+        var q3 = row(state, 3);
+        var q4 = row(state, 4);
+        var q5 = row(state, 5);
+        var q6 = row(state, 6);
+        var q7 = row(state, 7);
+        var r0 = q0.lanewise(ROR, 16);
+        var r1 = q1.lanewise(ROR, 16);
+        var r2 = q2.lanewise(ROR, 16);
+        var r3 = q3.lanewise(ROR, 16);
+        var r4 = q4.lanewise(ROR, 16);
+        var r5 = q5.lanewise(ROR, 16);
+        var r6 = q6.lanewise(ROR, 16);
+        var r7 = q7.lanewise(ROR, 16);
+
+        q7.lanewise(XOR, r7).lanewise(XOR, r0)
+                .lanewise(XOR, q0.lanewise(XOR, r0).lanewise(ROR, 32))
+                .intoArray(state, 0);
+        q0.lanewise(XOR, r0).lanewise(XOR, q7).lanewise(XOR, r7).lanewise(XOR, r1)
+                .lanewise(XOR, q1.lanewise(XOR, r1).lanewise(ROR, 32))
+                .intoArray(state, LANES);
+        q1.lanewise(XOR, r1).lanewise(XOR, r2)
+                .lanewise(XOR, q2.lanewise(XOR, r2).lanewise(ROR, 32))
+                .intoArray(state, LANES * 2);
+        q2.lanewise(XOR, r2).lanewise(XOR, q7).lanewise(XOR, r7).lanewise(XOR, r3)
+                .lanewise(XOR, q3.lanewise(XOR, r3).lanewise(ROR, 32))
+                .intoArray(state, LANES * 3);
+        q3.lanewise(XOR, r3).lanewise(XOR, q7).lanewise(XOR, r7).lanewise(XOR, r4)
+                .lanewise(XOR, q4.lanewise(XOR, r4).lanewise(ROR, 32))
+                .intoArray(state, LANES * 4);
+        q4.lanewise(XOR, r4).lanewise(XOR, r5)
+                .lanewise(XOR, q5.lanewise(XOR, r5).lanewise(ROR, 32))
+                .intoArray(state, LANES * 5);
+        q5.lanewise(XOR, r5).lanewise(XOR, r6)
+                .lanewise(XOR, q6.lanewise(XOR, r6).lanewise(ROR, 32))
+                .intoArray(state, LANES * 6);
+        q6.lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q7.lanewise(XOR, r7).lanewise(ROR, 32))
+                .intoArray(state, LANES * 7);
+    }
+
+    private static void invMixColumns(long[] state) {
+        var q0 = row(state, 0);
+        var q1 = row(state, 1);
+        var q2 = row(state, 2);
+        var q3 = row(state, 3);
+        var q4 = row(state, 4);
+        var q5 = row(state, 5);
+        var q6 = row(state, 6);
+        var q7 = row(state, 7);
+        var r0 = q0.lanewise(ROR, 16);
+        var r1 = q1.lanewise(ROR, 16);
+        var r2 = q2.lanewise(ROR, 16);
+        var r3 = q3.lanewise(ROR, 16);
+        var r4 = q4.lanewise(ROR, 16);
+        var r5 = q5.lanewise(ROR, 16);
+        var r6 = q6.lanewise(ROR, 16);
+        var r7 = q7.lanewise(ROR, 16);
+
+        q5.lanewise(XOR, q6).lanewise(XOR, q7).lanewise(XOR, r0).lanewise(XOR, r5).lanewise(XOR, r7)
+                .lanewise(XOR, q0.lanewise(XOR, q5).lanewise(XOR, q6).lanewise(XOR, r0).lanewise(XOR, r5).lanewise(ROR, 32))
+                .intoArray(state, 0);
+        q0.lanewise(XOR, q5).lanewise(XOR, r0).lanewise(XOR, r1).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q1.lanewise(XOR, q5).lanewise(XOR, q7).lanewise(XOR, r1).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(ROR, 32))
+                .intoArray(state, LANES);
+        q0.lanewise(XOR, q1).lanewise(XOR, q6).lanewise(XOR, r1).lanewise(XOR, r2).lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q0.lanewise(XOR, q2).lanewise(XOR, q6).lanewise(XOR, r2).lanewise(XOR, r6).lanewise(XOR, r7).lanewise(ROR, 32))
+                .intoArray(state, LANES * 2);
+        q0.lanewise(XOR, q1).lanewise(XOR, q2).lanewise(XOR, q5).lanewise(XOR, q6).lanewise(XOR, r0).lanewise(XOR, r2).lanewise(XOR, r3).lanewise(XOR, r5)
+                .lanewise(XOR, q0.lanewise(XOR, q1).lanewise(XOR, q3).lanewise(XOR, q5).lanewise(XOR, q6).lanewise(XOR, q7).lanewise(XOR, r0).lanewise(XOR, r3).lanewise(XOR, r5).lanewise(XOR, r7).lanewise(ROR, 32))
+                .intoArray(state, LANES * 3);
+        q1.lanewise(XOR, q2).lanewise(XOR, q3).lanewise(XOR, q5).lanewise(XOR, r1).lanewise(XOR, r3).lanewise(XOR, r4).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q1.lanewise(XOR, q2).lanewise(XOR, q4).lanewise(XOR, q5).lanewise(XOR, q7).lanewise(XOR, r1).lanewise(XOR, r4).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(ROR, 32))
+                .intoArray(state, LANES * 4);
+        q2.lanewise(XOR, q3).lanewise(XOR, q4).lanewise(XOR, q6).lanewise(XOR, r2).lanewise(XOR, r4).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q2.lanewise(XOR, q3).lanewise(XOR, q5).lanewise(XOR, q6).lanewise(XOR, r2).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(XOR, r7).lanewise(ROR, 32))
+                .intoArray(state, LANES * 5);
+        q3.lanewise(XOR, q4).lanewise(XOR, q5).lanewise(XOR, q7).lanewise(XOR, r3).lanewise(XOR, r5).lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q3.lanewise(XOR, q4).lanewise(XOR, q6).lanewise(XOR, q7).lanewise(XOR, r3).lanewise(XOR, r6).lanewise(XOR, r7).lanewise(ROR, 32))
+                .intoArray(state, LANES * 6);
+        q4.lanewise(XOR, q5).lanewise(XOR, q6).lanewise(XOR, r4).lanewise(XOR, r6).lanewise(XOR, r7)
+                .lanewise(XOR, q4.lanewise(XOR, q5).lanewise(XOR, q7).lanewise(XOR, r4).lanewise(XOR, r7).lanewise(ROR, 32))
+                .intoArray(state, LANES * 7);
+    }
+
+    private AesBitslicedVector() {
+    }
+
+}
@@ -4,6 +4,8 @@
  */
 package org.asterisk.crypto.lowlevel;
 
+import javax.crypto.spec.SecretKeySpec;
+
 import static org.asterisk.crypto.lowlevel.AesPermutation.invAesRound;
 import static org.asterisk.crypto.lowlevel.AesPermutation.invAesRoundLast;
 import static org.asterisk.crypto.lowlevel.AesPermutation.invMixColumns;
@@ -16,11 +18,28 @@ public abstract sealed class AesDecApi {
 
     public abstract void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset);
 
+    /**
+     * decrypts {@code blocks} consecutive blocks of 4 words each, by default
+     * one by one
+     */
+    public void decryptBlocks(int[] ciphertext, int cOffset, int[] plaintext, int pOffset, int blocks) {
+        for (int i = 0; i < blocks; i++) {
+            decryptBlock(ciphertext, cOffset + 4 * i, plaintext, pOffset + 4 * i);
+        }
+    }
+
+    /**
+     * returns an instance sharing this key schedule but with its own scratch
+     * space, so that the two can be used from different threads
+     */
+    public abstract AesDecApi copy();
+
     public static final class Aes128DecApi extends AesDecApi {
 
-        private final int[] drk = new int[44], data = new int[8];
+        private final int[] drk, data = new int[8];
 
         Aes128DecApi(int[] rk) {
+            drk = new int[44];
             System.arraycopy(rk, 40, drk, 0, 4);
 
             for (int off = 4; off < 40; off += 4) {
@@ -33,6 +52,10 @@ public abstract sealed class AesDecApi {
             System.arraycopy(rk, 0, drk, 40, 4);
         }
 
+        private Aes128DecApi(Aes128DecApi other) {
+            drk = other.drk;
+        }
+
         @Override
         public void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset) {
             invAesRound(ciphertext[cOffset + 0] ^ drk[0], ciphertext[cOffset + 1] ^ drk[1], ciphertext[cOffset + 2] ^ drk[2], ciphertext[cOffset + 3] ^ drk[3], data, 4, drk, 4);
@@ -47,13 +70,19 @@ public abstract sealed class AesDecApi {
             invAesRoundLast(data, 4, plaintext, pOffset, drk, 40);
         }
 
+        @Override
+        public Aes128DecApi copy() {
+            return new Aes128DecApi(this);
+        }
+
     }
 
     public static final class Aes192DecApi extends AesDecApi {
 
-        private final int[] drk = new int[52], data = new int[8];
+        private final int[] drk, data = new int[8];
 
         Aes192DecApi(int[] rk) {
+            drk = new int[52];
             System.arraycopy(rk, 48, drk, 0, 4);
 
             for (int off = 4; off < 48; off += 4) {
@@ -66,6 +95,10 @@ public abstract sealed class AesDecApi {
             System.arraycopy(rk, 0, drk, 48, 4);
         }
 
+        private Aes192DecApi(Aes192DecApi other) {
+            drk = other.drk;
+        }
+
         @Override
         public void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset) {
             invAesRound(ciphertext[cOffset + 0] ^ drk[0], ciphertext[cOffset + 1] ^ drk[1], ciphertext[cOffset + 2] ^ drk[2], ciphertext[cOffset + 3] ^ drk[3], data, 4, drk, 4);
@@ -79,16 +112,22 @@ public abstract sealed class AesDecApi {
             invAesRound(data, 0, data, 4, drk, 36);
             invAesRound(data, 4, data, 0, drk, 40);
             invAesRound(data, 0, data, 4, drk, 44);
-            invAesRoundLast(data, 4, plaintext, pOffset, drk, 44);
+            invAesRoundLast(data, 4, plaintext, pOffset, drk, 48);
+        }
+
+        @Override
+        public Aes192DecApi copy() {
+            return new Aes192DecApi(this);
         }
 
     }
 
     public static final class Aes256DecApi extends AesDecApi {
 
-        private final int[] drk = new int[60], data = new int[8];
+        private final int[] drk, data = new int[8];
 
         Aes256DecApi(int[] rk) {
+            drk = new int[60];
             System.arraycopy(rk, 56, drk, 0, 4);
 
             for (int off = 4; off < 56; off += 4) {
@@ -101,6 +140,10 @@ public abstract sealed class AesDecApi {
             System.arraycopy(rk, 0, drk, 56, 4);
         }
 
+        private Aes256DecApi(Aes256DecApi other) {
+            drk = other.drk;
+        }
+
         @Override
         public void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset) {
             invAesRound(ciphertext[cOffset + 0] ^ drk[0], ciphertext[cOffset + 1] ^ drk[1], ciphertext[cOffset + 2] ^ drk[2], ciphertext[cOffset + 3] ^ drk[3], data, 4, drk, 4);
@@ -119,6 +162,103 @@ public abstract sealed class AesDecApi {
             invAesRoundLast(data, 4, plaintext, pOffset, drk, 56);
         }
 
+        @Override
+        public Aes256DecApi copy() {
+            return new Aes256DecApi(this);
+        }
+
+    }
+
+    /**
+     * the inverse of {@link AesEncApi.BitslicedAesEncApi}, on the same key
+     * schedule
+     */
+    public static final class BitslicedAesDecApi extends AesDecApi {
+
+        private final long[] skey, q = new long[AesBitsliced.STATE_LONGS];
+        private final int[] w = new int[16];
+        private final int rounds;
+
+        BitslicedAesDecApi(long[] skey, int rounds) {
+            this.skey = skey;
+            this.rounds = rounds;
+        }
+
+        @Override
+        public void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset) {
+            AesBitsliced.decrypt(skey, rounds, ciphertext, cOffset, plaintext, pOffset, 1, q, w);
+        }
+
+        @Override
+        public void decryptBlocks(int[] ciphertext, int cOffset, int[] plaintext, int pOffset, int blocks) {
+            AesBitsliced.decrypt(skey, rounds, ciphertext, cOffset, plaintext, pOffset, blocks, q, w);
+        }
+
+        @Override
+        public BitslicedAesDecApi copy() {
+            return new BitslicedAesDecApi(skey, rounds);
+        }
+
+    }
+
+    /**
+     * the inverse of {@link AesEncApi.FallbackAesEncApi}, with the same split
+     * between single blocks and batches
+     */
+    public static final class FallbackAesDecApi extends AesDecApi {
+
+        private final AesDecApi table;
+        private final BitslicedAesDecApi bitsliced;
+
+        FallbackAesDecApi(AesDecApi table, BitslicedAesDecApi bitsliced) {
+            this.table = table;
+            this.bitsliced = bitsliced;
+        }
+
+        @Override
+        public void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset) {
+            table.decryptBlock(ciphertext, cOffset, plaintext, pOffset);
+        }
+
+        @Override
+        public void decryptBlocks(int[] ciphertext, int cOffset, int[] plaintext, int pOffset, int blocks) {
+            if (blocks < AesBitsliced.BLOCKS) {
+                table.decryptBlocks(ciphertext, cOffset, plaintext, pOffset, blocks);
+            } else {
+                bitsliced.decryptBlocks(ciphertext, cOffset, plaintext, pOffset, blocks);
+            }
+        }
+
+        @Override
+        public FallbackAesDecApi copy() {
+            return new FallbackAesDecApi(table.copy(), bitsliced.copy());
+        }
+
+    }
+
+    public static final class JdkAesDecApi extends AesDecApi {
+
+        private final JdkAes cipher;
+
+        JdkAesDecApi(SecretKeySpec key) {
+            this.cipher = JdkAes.decrypter(key);
+        }
+
+        @Override
+        public void decryptBlock(int[] ciphertext, int cOffset, int[] plaintext, int pOffset) {
+            cipher.crypt(ciphertext, cOffset, plaintext, pOffset, 1);
+        }
+
+        @Override
+        public void decryptBlocks(int[] ciphertext, int cOffset, int[] plaintext, int pOffset, int blocks) {
+            cipher.crypt(ciphertext, cOffset, plaintext, pOffset, blocks);
+        }
+
+        @Override
+        public JdkAesDecApi copy() {
+            return this;
+        }
+
     }
 
 }
@@ -4,6 +4,9 @@
  */
 package org.asterisk.crypto.lowlevel;
 
+import java.util.Arrays;
+import javax.crypto.spec.SecretKeySpec;
+
 import static org.asterisk.crypto.helper.Tools.load32BE;
 import static org.asterisk.crypto.lowlevel.AesPermutation.aesRound;
 import static org.asterisk.crypto.lowlevel.AesPermutation.aesRoundLast;
@@ -20,15 +23,68 @@ public abstract sealed class AesEncApi {
         0x1B000000, 0x36000000, 0x6c000000, 0xd8000000, 0xab000000, 0x4d000000
     };
 
+    /**
+     * returns an AES-128 implementation keyed with the first 16 bytes of
+     * {@code key}, backed by the JDK's intrinsified AES when it is available
+     * and by {@link FallbackAesEncApi} otherwise
+     */
+    public static AesEncApi aes128(byte[] key) {
+        return JdkAes.AVAILABLE ? new JdkAesEncApi(key, 16) : new FallbackAesEncApi(key, 16);
+    }
+
+    /**
+     * returns an AES-192 implementation keyed with the first 24 bytes of
+     * {@code key}, backed by the JDK's intrinsified AES when it is available
+     * and by {@link FallbackAesEncApi} otherwise
+     */
+    public static AesEncApi aes192(byte[] key) {
+        return JdkAes.AVAILABLE ? new JdkAesEncApi(key, 24) : new FallbackAesEncApi(key, 24);
+    }
+
+    /**
+     * returns an AES-256 implementation keyed with the first 32 bytes of
+     * {@code key}, backed by the JDK's intrinsified AES when it is available
+     * and by {@link FallbackAesEncApi} otherwise
+     */
+    public static AesEncApi aes256(byte[] key) {
+        return JdkAes.AVAILABLE ? new JdkAesEncApi(key, 32) : new FallbackAesEncApi(key, 32);
+    }
+
+    private static byte[] checkKey(byte[] key, int length) {
+        if (key.length < length) {
+            throw new IllegalArgumentException("AES-" + 8 * length + " requires a " + length + " byte key, " + key.length + " bytes provided");
+        }
+        return key;
+    }
+
     public abstract void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset);
 
+    /**
+     * encrypts {@code blocks} consecutive blocks of 4 words each. Modes with
+     * independent blocks should submit them through this, so that
+     * implementations with a cost per call can spread it. By default the
+     * blocks are encrypted one by one
+     */
+    public void encryptBlocks(int[] plaintext, int pOffset, int[] ciphertext, int cOffset, int blocks) {
+        for (int i = 0; i < blocks; i++) {
+            encryptBlock(plaintext, pOffset + 4 * i, ciphertext, cOffset + 4 * i);
+        }
+    }
+
     public abstract AesDecApi decrypter();
 
+    /**
+     * returns an instance sharing this key schedule but with its own scratch
+     * space, so that the two can be used from different threads
+     */
+    public abstract AesEncApi copy();
+
     public static final class Aes128EncApi extends AesEncApi {
 
-        private final int[] rk = new int[44], data = new int[8];
+        private final int[] rk, data = new int[8];
 
         public Aes128EncApi(byte[] key) {
+            rk = new int[44];
             rk[0] = load32BE(key, 0);
             rk[1] = load32BE(key, 4);
             rk[2] = load32BE(key, 8);
@@ -43,6 +99,7 @@ public abstract sealed class AesEncApi {
         }
 
         public Aes128EncApi(int[] key, int offset) {
+            rk = new int[44];
             System.arraycopy(key, offset, rk, 0, 4);
 
             for (int i = 0, j = 0; j < 10; i += 4, j++) {
@@ -53,6 +110,10 @@ public abstract sealed class AesEncApi {
             }
         }
 
+        private Aes128EncApi(Aes128EncApi other) {
+            rk = other.rk;
+        }
+
         @Override
         public void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset) {
             aesRound(plaintext[pOffset + 0] ^ rk[0], plaintext[pOffset + 1] ^ rk[1], plaintext[pOffset + 2] ^ rk[2], plaintext[pOffset + 3] ^ rk[3], data, 4, rk, 4);
@@ -67,6 +128,11 @@ public abstract sealed class AesEncApi {
             aesRoundLast(data, 4, ciphertext, cOffset, rk, 40);
         }
 
+        @Override
+        public Aes128EncApi copy() {
+            return new Aes128EncApi(this);
+        }
+
         @Override
         public AesDecApi.Aes128DecApi decrypter() {
             return new AesDecApi.Aes128DecApi(rk);
@@ -76,9 +142,10 @@ public abstract sealed class AesEncApi {
 
     public static final class Aes192EncApi extends AesEncApi {
 
-        private final int[] rk = new int[52], data = new int[8];
+        private final int[] rk, data = new int[8];
 
         public Aes192EncApi(byte[] key) {
+            rk = new int[52];
             rk[0] = load32BE(key, 0);
             rk[1] = load32BE(key, 4);
             rk[2] = load32BE(key, 8);
@@ -86,7 +153,7 @@ public abstract sealed class AesEncApi {
             rk[4] = load32BE(key, 16);
             rk[5] = load32BE(key, 20);
 
-            for (int i = 0, j = 0; j < 7; j++, i += 7) {
+            for (int i = 0, j = 0; j < 7; j++, i += 6) {
                 rk[i + 6] = rk[i] ^ shiftSub(rk[i + 5]) ^ RCON[j];
                 rk[i + 7] = rk[i + 1] ^ rk[i + 6];
                 rk[i + 8] = rk[i + 2] ^ rk[i + 7];
@@ -101,9 +168,10 @@ public abstract sealed class AesEncApi {
         }
 
         public Aes192EncApi(int[] key, int offset) {
+            rk = new int[52];
             System.arraycopy(key, offset, rk, 0, 6);
 
-            for (int i = 0, j = 0; j < 7; j++, i += 7) {
+            for (int i = 0, j = 0; j < 7; j++, i += 6) {
                 rk[i + 6] = rk[i] ^ shiftSub(rk[i + 5]) ^ RCON[j];
                 rk[i + 7] = rk[i + 1] ^ rk[i + 6];
                 rk[i + 8] = rk[i + 2] ^ rk[i + 7];
@@ -117,6 +185,10 @@ public abstract sealed class AesEncApi {
             rk[51] = rk[45] ^ rk[50];
         }
 
+        private Aes192EncApi(Aes192EncApi other) {
+            rk = other.rk;
+        }
+
         @Override
         public void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset) {
             aesRound(plaintext[pOffset + 0] ^ rk[0], plaintext[pOffset + 1] ^ rk[1], plaintext[pOffset + 2] ^ rk[2], plaintext[pOffset + 3] ^ rk[3], data, 4, rk, 4);
@@ -133,6 +205,11 @@ public abstract sealed class AesEncApi {
             aesRoundLast(data, 4, ciphertext, cOffset, rk, 48);
         }
 
+        @Override
+        public Aes192EncApi copy() {
+            return new Aes192EncApi(this);
+        }
+
         @Override
         public AesDecApi.Aes192DecApi decrypter() {
             return new AesDecApi.Aes192DecApi(rk);
@@ -142,9 +219,10 @@ public abstract sealed class AesEncApi {
 
     public static final class Aes256EncApi extends AesEncApi {
 
-        private final int[] rk = new int[60], data = new int[8];
+        private final int[] rk, data = new int[8];
 
         public Aes256EncApi(byte[] key) {
+            rk = new int[60];
             rk[0] = load32BE(key, 0);
             rk[1] = load32BE(key, 4);
             rk[2] = load32BE(key, 8);
@@ -171,6 +249,7 @@ public abstract sealed class AesEncApi {
         }
 
         public Aes256EncApi(int[] key, int offset) {
+            rk = new int[60];
             System.arraycopy(key, offset, rk, 0, 8);
 
             for (int i = 0, j = 0; j < 6; i += 8, j++) {
@@ -189,6 +268,10 @@ public abstract sealed class AesEncApi {
             rk[59] = rk[51] ^ rk[58];
         }
 
+        private Aes256EncApi(Aes256EncApi other) {
+            rk = other.rk;
+        }
+
         @Override
         public void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset) {
             aesRound(plaintext[pOffset + 0] ^ rk[0], plaintext[pOffset + 1] ^ rk[1], plaintext[pOffset + 2] ^ rk[2], plaintext[pOffset + 3] ^ rk[3], data, 4, rk, 4);
@@ -207,6 +290,11 @@ public abstract sealed class AesEncApi {
             aesRoundLast(data, 4, ciphertext, cOffset, rk, 56);
         }
 
+        @Override
+        public Aes256EncApi copy() {
+            return new Aes256EncApi(this);
+        }
+
         @Override
         public AesDecApi.Aes256DecApi decrypter() {
             return new AesDecApi.Aes256DecApi(rk);
@@ -214,4 +302,155 @@ public abstract sealed class AesEncApi {
 
     }
 
+    /**
+     * AES of any key size on {@link AesBitsliced}, which never indexes memory
+     * with secret data, unlike the tables of the classes above. It always
+     * works on 4 blocks at once, so {@link #encryptBlocks} is where it is fast
+     */
+    public static final class BitslicedAesEncApi extends AesEncApi {
+
+        private final long[] skey, q = new long[AesBitsliced.STATE_LONGS];
+        private final int[] w = new int[16];
+        private final int rounds;
+
+        /**
+         * keys AES-128, AES-192 or AES-256 depending on the length of
+         * {@code key}
+         *
+         * @throws IllegalArgumentException if {@code key} is not 16, 24 or 32
+         *                                  bytes long
+         */
+        public BitslicedAesEncApi(byte[] key) {
+            this(key, switch (key.length) {
+                case 16, 24, 32 ->
+                    key.length;
+                default ->
+                    throw new IllegalArgumentException("AES requires a 16, 24 or 32 byte key, " + key.length + " bytes provided");
+            });
+        }
+
+        private BitslicedAesEncApi(byte[] key, int length) {
+            this.skey = AesBitsliced.keySchedule(checkKey(key, length), length);
+            this.rounds = AesBitsliced.rounds(length);
+        }
+
+        private BitslicedAesEncApi(BitslicedAesEncApi other) {
+            this.skey = other.skey;
+            this.rounds = other.rounds;
+        }
+
+        @Override
+        public void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset) {
+            AesBitsliced.encrypt(skey, rounds, plaintext, pOffset, ciphertext, cOffset, 1, q, w);
+        }
+
+        @Override
+        public void encryptBlocks(int[] plaintext, int pOffset, int[] ciphertext, int cOffset, int blocks) {
+            AesBitsliced.encrypt(skey, rounds, plaintext, pOffset, ciphertext, cOffset, blocks, q, w);
+        }
+
+        @Override
+        public BitslicedAesEncApi copy() {
+            return new BitslicedAesEncApi(this);
+        }
+
+        @Override
+        public AesDecApi.BitslicedAesDecApi decrypter() {
+            return new AesDecApi.BitslicedAesDecApi(skey, rounds);
+        }
+
+    }
+
+    /**
+     * AES for when {@link JdkAes} is not available. Single blocks, as in
+     * CMAC or JAMBU, go through the tables, where the bitsliced code would
+     * pay for a whole pass of {@link AesBitsliced#BLOCKS} blocks; batches of
+     * at least that many, as in CTR, OCB or GCM, go through
+     * {@link BitslicedAesEncApi}. Only the batches are constant time, use
+     * {@link BitslicedAesEncApi} directly when every block must be
+     */
+    public static final class FallbackAesEncApi extends AesEncApi {
+
+        private final AesEncApi table;
+        private final BitslicedAesEncApi bitsliced;
+
+        private FallbackAesEncApi(byte[] key, int length) {
+            this(switch (length) {
+                case 16 ->
+                    new Aes128EncApi(checkKey(key, 16));
+                case 24 ->
+                    new Aes192EncApi(checkKey(key, 24));
+                default ->
+                    new Aes256EncApi(checkKey(key, 32));
+            }, new BitslicedAesEncApi(key, length));
+        }
+
+        private FallbackAesEncApi(AesEncApi table, BitslicedAesEncApi bitsliced) {
+            this.table = table;
+            this.bitsliced = bitsliced;
+        }
+
+        @Override
+        public void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset) {
+            table.encryptBlock(plaintext, pOffset, ciphertext, cOffset);
+        }
+
+        @Override
+        public void encryptBlocks(int[] plaintext, int pOffset, int[] ciphertext, int cOffset, int blocks) {
+            if (blocks < AesBitsliced.BLOCKS) {
+                table.encryptBlocks(plaintext, pOffset, ciphertext, cOffset, blocks);
+            } else {
+                bitsliced.encryptBlocks(plaintext, pOffset, ciphertext, cOffset, blocks);
+            }
+        }
+
+        @Override
+        public FallbackAesEncApi copy() {
+            return new FallbackAesEncApi(table.copy(), bitsliced.copy());
+        }
+
+        @Override
+        public AesDecApi.FallbackAesDecApi decrypter() {
+            return new AesDecApi.FallbackAesDecApi(table.decrypter(), bitsliced.decrypter());
+        }
+
+    }
+
+    /**
+     * AES of any key size through {@link JdkAes}, whose intrinsics beat the
+     * tables even for single blocks. The keyed ciphers belong to the threads
+     * using them, so instances can be shared and copies are free
+     */
+    public static final class JdkAesEncApi extends AesEncApi {
+
+        private final SecretKeySpec key;
+        private final JdkAes cipher;
+
+        private JdkAesEncApi(byte[] key, int length) {
+            this.key = JdkAes.key(Arrays.copyOf(checkKey(key, length), length));
+            this.cipher = JdkAes.encrypter(this.key);
+        }
+
+        @Override
+        public void encryptBlock(int[] plaintext, int pOffset, int[] ciphertext, int cOffset) {
+            cipher.crypt(plaintext, pOffset, ciphertext, cOffset, 1);
+        }
+
+        @Override
+        public void encryptBlocks(int[] plaintext, int pOffset, int[] ciphertext, int cOffset, int blocks) {
+            cipher.crypt(plaintext, pOffset, ciphertext, cOffset, blocks);
+        }
+
+        @Override
+        public JdkAesEncApi copy() {
+            return this;
+        }
+
+        @Override
+        public AesDecApi.JdkAesDecApi decrypter() {
+            return new AesDecApi.JdkAesDecApi(key);
+        }
+
+    }
+
 }
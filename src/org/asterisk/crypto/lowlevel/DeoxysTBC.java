@@ -68,6 +68,12 @@ public sealed abstract class DeoxysTBC {
 
     public abstract void setTweak(int[] tweak);
 
+    /**
+     * returns an independent instance with the same key and tweak, which is
+     * cheaper than running the key schedule again
+     */
+    public abstract DeoxysTBC copy();
+
     public static final class DeoxysTBC_256 extends DeoxysTBC {
 
         private final int[] tweakeys = new int[120], data = new int[8];
@@ -102,6 +108,11 @@ public sealed abstract class DeoxysTBC {
             }
         }
 
+        @Override
+        public DeoxysTBC_256 copy() {
+            return new DeoxysTBC_256(this);
+        }
+
         @Override
         public void setTweak(int[] tweak) {
             System.arraycopy(tweak, 0, tweakeys, 4, 4);
@@ -534,6 +545,11 @@ public sealed abstract class DeoxysTBC {
             }
         }
 
+        @Override
+        public DeoxysTBC_256_128 copy() {
+            return new DeoxysTBC_256_128(this);
+        }
+
         @Override
         public void setTweak(int[] tweak) {
             System.arraycopy(tweak, 0, tweakeys, 8, 4);
@@ -640,6 +656,11 @@ public sealed abstract class DeoxysTBC {
             }
         }
 
+        @Override
+        public DeoxysTBC_128_256 copy() {
+            return new DeoxysTBC_128_256(this);
+        }
+
         @Override
         public void setTweak(int[] tweak) {
             System.arraycopy(tweak, 0, tweakeys, 4, 8);
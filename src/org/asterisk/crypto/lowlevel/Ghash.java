@@ -0,0 +1,115 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.lowlevel;
+
+import java.lang.foreign.MemorySegment;
+
+import static org.asterisk.crypto.helper.Tools.BIG_ENDIAN_64_BIT;
+
+/**
+ * the GHASH universal hash of GCM, multiplying by {@code H} with Shoup's 8-bit
+ * table: the 256 multiples of {@code H} by a byte, 4 KiB per key, and a
+ * shared table for the bits that fall off in each shift. Like all table
+ * driven GHASH the lookups depend on the data being hashed. The table is
+ * never modified after construction and can be shared between threads, the
+ * state of a hash is a {@code long[2]} of the caller
+ * <p>
+ * Elements are kept as two big endian longs, the first holding bytes 0 to 7
+ *
+ * @author Sayantan Chakraborty
+ */
+public final class Ghash {
+
+    /**
+     * the reduction of the 8 bits shifted out of the bottom, computed as
+     * {@code r * 0x1c2} without carries
+     */
+    private static final long[] REM_8BIT = new long[256];
+
+    static {
+        for (int r = 0; r < 256; r++) {
+            long rem = 0;
+            for (int b = 0; b < 8; b++) {
+                rem ^= (0x1c2L << b) & -(r >>> b & 1);
+            }
+            REM_8BIT[r] = rem << 48;
+        }
+    }
+
+    private final long[] high = new long[256], low = new long[256];
+
+    /**
+     * precomputes the table for the hash key {@code H = h0 || h1}
+     */
+    public Ghash(long h0, long h1) {
+        high[128] = h0;
+        low[128] = h1;
+        for (int i = 64; i > 0; i >>= 1) {
+            long t = 0xe100000000000000L & -(h1 & 1);
+            h1 = (h0 << 63) | (h1 >>> 1);
+            h0 = (h0 >>> 1) ^ t;
+            high[i] = h0;
+            low[i] = h1;
+        }
+        for (int i = 2; i < 256; i <<= 1) {
+            for (int j = 1; j < i; j++) {
+                high[i + j] = high[i] ^ high[j];
+                low[i + j] = low[i] ^ low[j];
+            }
+        }
+    }
+
+    /**
+     * absorbs the block {@code x0 || x1} into {@code state}
+     */
+    public void ingest(long[] state, long x0, long x1) {
+        x0 ^= state[0];
+        x1 ^= state[1];
+
+        //the bytes from last to first, shifting right once per byte
+        int n = (int) x1 & 255;
+        long z0 = high[n], z1 = low[n];
+        for (int i = 8; i < 64; i += 8) {
+            n = (int) (x1 >>> i) & 255;
+            int rem = (int) z1 & 255;
+            z1 = ((z0 << 56) | (z1 >>> 8)) ^ low[n];
+            z0 = (z0 >>> 8) ^ REM_8BIT[rem] ^ high[n];
+        }
+        for (int i = 0; i < 64; i += 8) {
+            n = (int) (x0 >>> i) & 255;
+            int rem = (int) z1 & 255;
+            z1 = ((z0 << 56) | (z1 >>> 8)) ^ low[n];
+            z0 = (z0 >>> 8) ^ REM_8BIT[rem] ^ high[n];
+        }
+
+        state[0] = z0;
+        state[1] = z1;
+    }
+
+    /**
+     * absorbs {@code blocks} consecutive blocks of {@code input} starting at
+     * {@code offset} into {@code state}
+     */
+    public void ingest(long[] state, MemorySegment input, long offset, long blocks) {
+        for (long i = 0; i < blocks; i++) {
+            ingest(state, input.get(BIG_ENDIAN_64_BIT, offset), input.get(BIG_ENDIAN_64_BIT, offset + 8));
+            offset += 16;
+        }
+    }
+
+}
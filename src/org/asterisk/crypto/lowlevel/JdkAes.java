@@ -0,0 +1,129 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.lowlevel;
+
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+
+import static org.asterisk.crypto.helper.Tools.load32BE;
+import static org.asterisk.crypto.helper.Tools.store32BE;
+
+/**
+ * AES/ECB of the JDK's own {@code SunJCE} provider, whose block functions
+ * HotSpot replaces with AES-NI or ARMv8 crypto intrinsics. Those run in
+ * constant time and, even for single blocks, well ahead of the tables of
+ * {@link AesPermutation}
+ * <p>
+ * Creating and keying a cipher costs microseconds, about as much as 40
+ * blocks, so an instance keys one cipher per thread that uses it, the first
+ * time it does, and keeps it as long as the instance is reachable. Instances
+ * hold no other state and can be shared between threads
+ *
+ * @author Sayantan Chakraborty
+ */
+final class JdkAes {
+
+    /**
+     * whether {@code SunJCE} provides AES/ECB/NoPadding, checked once at
+     * startup. Without it, or with the system property
+     * {@code org.asterisk.crypto.jdkAes} set to {@code false}, the bitsliced
+     * implementation is used
+     */
+    static final boolean AVAILABLE = available();
+
+    /**
+     * the number of blocks converted to bytes and passed to the cipher at a
+     * time
+     */
+    private static final int CHUNK_BLOCKS = 64;
+
+    private static boolean available() {
+        if ("false".equalsIgnoreCase(System.getProperty("org.asterisk.crypto.jdkAes"))) {
+            return false;
+        }
+        try {
+            Cipher.getInstance("AES/ECB/NoPadding", "SunJCE");
+            return true;
+        } catch (GeneralSecurityException e) {
+            return false;
+        }
+    }
+
+    static SecretKeySpec key(byte[] key) {
+        return new SecretKeySpec(key, "AES");
+    }
+
+    static JdkAes encrypter(SecretKeySpec key) {
+        return new JdkAes(Cipher.ENCRYPT_MODE, key);
+    }
+
+    static JdkAes decrypter(SecretKeySpec key) {
+        return new JdkAes(Cipher.DECRYPT_MODE, key);
+    }
+
+    private final ThreadLocal<Slot> slots;
+
+    private JdkAes(int mode, SecretKeySpec key) {
+        this.slots = ThreadLocal.withInitial(() -> new Slot(mode, key));
+    }
+
+    /**
+     * runs {@code blocks} blocks of big endian words through the cipher of
+     * the calling thread
+     */
+    void crypt(int[] input, int iOffset, int[] output, int oOffset, int blocks) {
+        var slot = slots.get();
+        var cipher = slot.cipher;
+        var buffer = slot.buffer;
+        while (blocks > 0) {
+            int n = Math.min(blocks, CHUNK_BLOCKS);
+            for (int i = 0; i < 4 * n; i++) {
+                store32BE(input[iOffset + i], buffer, 4 * i);
+            }
+            try {
+                cipher.update(buffer, 0, 16 * n, buffer, 0);
+            } catch (ShortBufferException e) {
+                throw new AssertionError("ECB output is as long as its input", e);
+            }
+            for (int i = 0; i < 4 * n; i++) {
+                output[oOffset + i] = load32BE(buffer, 4 * i);
+            }
+            iOffset += 4 * n;
+            oOffset += 4 * n;
+            blocks -= n;
+        }
+    }
+
+    private static final class Slot {
+
+        private final Cipher cipher;
+        private final byte[] buffer = new byte[16 * CHUNK_BLOCKS];
+
+        private Slot(int mode, SecretKeySpec key) {
+            try {
+                cipher = Cipher.getInstance("AES/ECB/NoPadding", "SunJCE");
+                cipher.init(mode, key);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+}
@@ -4,13 +4,15 @@
  */
 package org.asterisk.crypto.lowlevel;
 
+import org.asterisk.crypto.helper.Tools;
+
 /**
  *
  * @author Sayantan Chakraborty
  */
 public class KeccakP {
 
-    private static final long[] RNDC_1600 = {
+    static final long[] RNDC_1600 = {
         0x0000000000000001L, 0x0000000000008082L, 0x800000000000808aL,
         0x8000000080008000L, 0x000000000000808bL, 0x0000000080000001L,
         0x8000000080008081L, 0x8000000000008009L, 0x000000000000008aL,
@@ -32,6 +34,45 @@ public class KeccakP {
         0x00008080
     };
 
+    /**
+     * the number of states {@link #keccak_p1600(long[], int, int)} permutes
+     * at once in vector lanes: 2, 4 or 8 depending on the vector size of the
+     * hardware when the {@code jdk.incubator.vector} module is present, and 1
+     * without it. Constructions with independent states batch them in groups
+     * of this size
+     */
+    public static final int WAYS = Tools.VECTOR_API && KeccakPVector.LANES >= 2 ? Math.min(KeccakPVector.LANES, 8) : 1;
+
+    /**
+     * performs {@code rounds} rounds of Keccak-p[1600] on each of
+     * {@code ways} interleaved states, where word {@code i} of state
+     * {@code j} is {@code states[ways * i + j]}. When {@code ways} is a
+     * multiple of {@link #WAYS} the states are permuted side by side in
+     * vector lanes, otherwise one after the other
+     *
+     * @param states the interleaved states, {@code 25 * ways} words
+     * @param ways   the number of states
+     * @param rounds the number of rounds
+     */
+    public static void keccak_p1600(long[] states, int ways, int rounds) {
+        if (WAYS > 1 && ways % WAYS == 0) {
+            for (int lane = 0; lane < ways; lane += WAYS) {
+                KeccakPVector.keccak_p1600(states, ways, lane, rounds);
+            }
+        } else {
+            long[] state = new long[25];
+            for (int j = 0; j < ways; j++) {
+                for (int i = 0; i < 25; i++) {
+                    state[i] = states[ways * i + j];
+                }
+                keccak_p1600(state, rounds);
+                for (int i = 0; i < 25; i++) {
+                    states[ways * i + j] = state[i];
+                }
+            }
+        }
+    }
+
     /**
      * performs the 24-round Keccak-f[1600] permutation on the state
      *
@@ -0,0 +1,240 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.lowlevel;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.AND_NOT;
+import static jdk.incubator.vector.VectorOperators.ROL;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * Keccak-p[1600] on as many states as the preferred species has long lanes,
+ * the same steps as {@link KeccakP#keccak_p1600(long[], int)} with every
+ * word a vector.
+ * <p>
+ * This class must only be touched when the {@code jdk.incubator.vector}
+ * module is present, see {@link KeccakP#WAYS}
+ *
+ * @author Sayantan Chakraborty
+ */
+final class KeccakPVector {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    static final int LANES = SPECIES.length();
+
+    /**
+     * permutes the {@link #LANES} states starting at lane {@code lane} of
+     * the {@code ways} states interleaved in {@code states}
+     */
+    static void keccak_p1600(long[] states, int ways, int lane, int rounds) {
+        LongVector temp, bc0, bc1, bc2, bc3, bc4;
+
+        var state0 = LongVector.fromArray(SPECIES, states, lane);
+        var state1 = LongVector.fromArray(SPECIES, states, 1 * ways + lane);
+        var state2 = LongVector.fromArray(SPECIES, states, 2 * ways + lane);
+        var state3 = LongVector.fromArray(SPECIES, states, 3 * ways + lane);
+        var state4 = LongVector.fromArray(SPECIES, states, 4 * ways + lane);
+        var state5 = LongVector.fromArray(SPECIES, states, 5 * ways + lane);
+        var state6 = LongVector.fromArray(SPECIES, states, 6 * ways + lane);
+        var state7 = LongVector.fromArray(SPECIES, states, 7 * ways + lane);
+        var state8 = LongVector.fromArray(SPECIES, states, 8 * ways + lane);
+        var state9 = LongVector.fromArray(SPECIES, states, 9 * ways + lane);
+        var state10 = LongVector.fromArray(SPECIES, states, 10 * ways + lane);
+        var state11 = LongVector.fromArray(SPECIES, states, 11 * ways + lane);
+        var state12 = LongVector.fromArray(SPECIES, states, 12 * ways + lane);
+        var state13 = LongVector.fromArray(SPECIES, states, 13 * ways + lane);
+        var state14 = LongVector.fromArray(SPECIES, states, 14 * ways + lane);
+        var state15 = LongVector.fromArray(SPECIES, states, 15 * ways + lane);
+        var state16 = LongVector.fromArray(SPECIES, states, 16 * ways + lane);
+        var state17 = LongVector.fromArray(SPECIES, states, 17 * ways + lane);
+        var state18 = LongVector.fromArray(SPECIES, states, 18 * ways + lane);
+        var state19 = LongVector.fromArray(SPECIES, states, 19 * ways + lane);
+        var state20 = LongVector.fromArray(SPECIES, states, 20 * ways + lane);
+        var state21 = LongVector.fromArray(SPECIES, states, 21 * ways + lane);
+        var state22 = LongVector.fromArray(SPECIES, states, 22 * ways + lane);
+        var state23 = LongVector.fromArray(SPECIES, states, 23 * ways + lane);
+        var state24 = LongVector.fromArray(SPECIES, states, 24 * ways + lane);
+
+        for (int r = 24 - rounds; r < 24; r++) {
+
+            bc0 = state0.lanewise(XOR, state5).lanewise(XOR, state10).lanewise(XOR, state15).lanewise(XOR, state20);
+            bc1 = state1.lanewise(XOR, state6).lanewise(XOR, state11).lanewise(XOR, state16).lanewise(XOR, state21);
+            bc2 = state2.lanewise(XOR, state7).lanewise(XOR, state12).lanewise(XOR, state17).lanewise(XOR, state22);
+            bc3 = state3.lanewise(XOR, state8).lanewise(XOR, state13).lanewise(XOR, state18).lanewise(XOR, state23);
+            bc4 = state4.lanewise(XOR, state9).lanewise(XOR, state14).lanewise(XOR, state19).lanewise(XOR, state24);
+
+            temp = bc4.lanewise(XOR, bc1.lanewise(ROL, 1));
+            state0 = state0.lanewise(XOR, temp);
+            state5 = state5.lanewise(XOR, temp);
+            state10 = state10.lanewise(XOR, temp);
+            state15 = state15.lanewise(XOR, temp);
+            state20 = state20.lanewise(XOR, temp);
+
+            temp = bc0.lanewise(XOR, bc2.lanewise(ROL, 1));
+            state1 = state1.lanewise(XOR, temp);
+            state6 = state6.lanewise(XOR, temp);
+            state11 = state11.lanewise(XOR, temp);
+            state16 = state16.lanewise(XOR, temp);
+            state21 = state21.lanewise(XOR, temp);
+
+            temp = bc1.lanewise(XOR, bc3.lanewise(ROL, 1));
+            state2 = state2.lanewise(XOR, temp);
+            state7 = state7.lanewise(XOR, temp);
+            state12 = state12.lanewise(XOR, temp);
+            state17 = state17.lanewise(XOR, temp);
+            state22 = state22.lanewise(XOR, temp);
+
+            temp = bc2.lanewise(XOR, bc4.lanewise(ROL, 1));
+            state3 = state3.lanewise(XOR, temp);
+            state8 = state8.lanewise(XOR, temp);
+            state13 = state13.lanewise(XOR, temp);
+            state18 = state18.lanewise(XOR, temp);
+            state23 = state23.lanewise(XOR, temp);
+
+            temp = bc3.lanewise(XOR, bc0.lanewise(ROL, 1));
+            state4 = state4.lanewise(XOR, temp);
+            state9 = state9.lanewise(XOR, temp);
+            state14 = state14.lanewise(XOR, temp);
+            state19 = state19.lanewise(XOR, temp);
+            state24 = state24.lanewise(XOR, temp);
+
+            temp = state1;
+            state1 = state6.lanewise(ROL, 44);
+            state6 = state9.lanewise(ROL, 20);
+            state9 = state22.lanewise(ROL, 61);
+            state22 = state14.lanewise(ROL, 39);
+            state14 = state20.lanewise(ROL, 18);
+            state20 = state2.lanewise(ROL, 62);
+            state2 = state12.lanewise(ROL, 43);
+            state12 = state13.lanewise(ROL, 25);
+            state13 = state19.lanewise(ROL, 8);
+            state19 = state23.lanewise(ROL, 56);
+            state23 = state15.lanewise(ROL, 41);
+            state15 = state4.lanewise(ROL, 27);
+            state4 = state24.lanewise(ROL, 14);
+            state24 = state21.lanewise(ROL, 2);
+            state21 = state8.lanewise(ROL, 55);
+            state8 = state16.lanewise(ROL, 45);
+            state16 = state5.lanewise(ROL, 36);
+            state5 = state3.lanewise(ROL, 28);
+            state3 = state18.lanewise(ROL, 21);
+            state18 = state17.lanewise(ROL, 15);
+            state17 = state11.lanewise(ROL, 10);
+            state11 = state7.lanewise(ROL, 6);
+            state7 = state10.lanewise(ROL, 3);
+            state10 = temp.lanewise(ROL, 1);
+
+            bc0 = state0;
+            bc1 = state1;
+            bc2 = state2;
+            bc3 = state3;
+            bc4 = state4;
+
+            state0 = state0.lanewise(XOR, bc2.lanewise(AND_NOT, bc1));
+            state1 = state1.lanewise(XOR, bc3.lanewise(AND_NOT, bc2));
+            state2 = state2.lanewise(XOR, bc4.lanewise(AND_NOT, bc3));
+            state3 = state3.lanewise(XOR, bc0.lanewise(AND_NOT, bc4));
+            state4 = state4.lanewise(XOR, bc1.lanewise(AND_NOT, bc0));
+
+            bc0 = state5;
+            bc1 = state6;
+            bc2 = state7;
+            bc3 = state8;
+            bc4 = state9;
+
+            state5 = state5.lanewise(XOR, bc2.lanewise(AND_NOT, bc1));
+            state6 = state6.lanewise(XOR, bc3.lanewise(AND_NOT, bc2));
+            state7 = state7.lanewise(XOR, bc4.lanewise(AND_NOT, bc3));
+            state8 = state8.lanewise(XOR, bc0.lanewise(AND_NOT, bc4));
+            state9 = state9.lanewise(XOR, bc1.lanewise(AND_NOT, bc0));
+
+            bc0 = state10;
+            bc1 = state11;
+            bc2 = state12;
+            bc3 = state13;
+            bc4 = state14;
+
+            state10 = state10.lanewise(XOR, bc2.lanewise(AND_NOT, bc1));
+            state11 = state11.lanewise(XOR, bc3.lanewise(AND_NOT, bc2));
+            state12 = state12.lanewise(XOR, bc4.lanewise(AND_NOT, bc3));
+            state13 = state13.lanewise(XOR, bc0.lanewise(AND_NOT, bc4));
+            state14 = state14.lanewise(XOR, bc1.lanewise(AND_NOT, bc0));
+
+            bc0 = state15;
+            bc1 = state16;
+            bc2 = state17;
+            bc3 = state18;
+            bc4 = state19;
+
+            state15 = state15.lanewise(XOR, bc2.lanewise(AND_NOT, bc1));
+            state16 = state16.lanewise(XOR, bc3.lanewise(AND_NOT, bc2));
+            state17 = state17.lanewise(XOR, bc4.lanewise(AND_NOT, bc3));
+            state18 = state18.lanewise(XOR, bc0.lanewise(AND_NOT, bc4));
+            state19 = state19.lanewise(XOR, bc1.lanewise(AND_NOT, bc0));
+
+            bc0 = state20;
+            bc1 = state21;
+            bc2 = state22;
+            bc3 = state23;
+            bc4 = state24;
+
+            state20 = state20.lanewise(XOR, bc2.lanewise(AND_NOT, bc1));
+            state21 = state21.lanewise(XOR, bc3.lanewise(AND_NOT, bc2));
+            state22 = state22.lanewise(XOR, bc4.lanewise(AND_NOT, bc3));
+            state23 = state23.lanewise(XOR, bc0.lanewise(AND_NOT, bc4));
+            state24 = state24.lanewise(XOR, bc1.lanewise(AND_NOT, bc0));
+
+            state0 = state0.lanewise(XOR, KeccakP.RNDC_1600[r]);
+
+        }
+
+
+        state0.intoArray(states, lane);
+        state1.intoArray(states, 1 * ways + lane);
+        state2.intoArray(states, 2 * ways + lane);
+        state3.intoArray(states, 3 * ways + lane);
+        state4.intoArray(states, 4 * ways + lane);
+        state5.intoArray(states, 5 * ways + lane);
+        state6.intoArray(states, 6 * ways + lane);
+        state7.intoArray(states, 7 * ways + lane);
+        state8.intoArray(states, 8 * ways + lane);
+        state9.intoArray(states, 9 * ways + lane);
+        state10.intoArray(states, 10 * ways + lane);
+        state11.intoArray(states, 11 * ways + lane);
+        state12.intoArray(states, 12 * ways + lane);
+        state13.intoArray(states, 13 * ways + lane);
+        state14.intoArray(states, 14 * ways + lane);
+        state15.intoArray(states, 15 * ways + lane);
+        state16.intoArray(states, 16 * ways + lane);
+        state17.intoArray(states, 17 * ways + lane);
+        state18.intoArray(states, 18 * ways + lane);
+        state19.intoArray(states, 19 * ways + lane);
+        state20.intoArray(states, 20 * ways + lane);
+        state21.intoArray(states, 21 * ways + lane);
+        state22.intoArray(states, 22 * ways + lane);
+        state23.intoArray(states, 23 * ways + lane);
+        state24.intoArray(states, 24 * ways + lane);
+    }
+
+    private KeccakPVector() {
+    }
+
+}
@@ -18,6 +18,7 @@
 package org.asterisk.crypto.mac;
 
 import java.lang.foreign.MemorySegment;
+import java.util.Arrays;
 import java.util.function.Function;
 import org.asterisk.crypto.helper.AbstractMacEngine;
 import org.asterisk.crypto.helper.GfHelper;
@@ -31,19 +32,19 @@ import org.asterisk.crypto.lowlevel.AesEncApi;
  */
 public enum AesCmac implements Mac {
 
-    AES_128_CMAC(AesEncApi.Aes128EncApi::new) {
+    AES_128_CMAC(AesEncApi::aes128) {
         @Override
         public int keyLength() {
             return 16;
         }
 
-    }, AES_192_CMAC(AesEncApi.Aes192EncApi::new) {
+    }, AES_192_CMAC(AesEncApi::aes192) {
         @Override
         public int keyLength() {
             return 24;
         }
 
-    }, AES_256_CMAC(AesEncApi.Aes256EncApi::new) {
+    }, AES_256_CMAC(AesEncApi::aes256) {
         @Override
         public int keyLength() {
             return 32;
@@ -57,18 +58,58 @@ public enum AesCmac implements Mac {
         this.constructor = constructor;
     }
 
+    private AesEncApi expandKey(byte[] key) {
+        if (key.length < keyLength()) {
+            throw new IllegalArgumentException(this + " requires a " + keyLength() + " byte key, " + key.length + " bytes provided");
+        }
+        return constructor.apply(key);
+    }
+
+    /**
+     * derives the subkey K1 = 2 * E(0) into {@code k1}. K2 is obtained from it
+     * by one more doubling when the last block is partial
+     */
+    private static void subkey(AesEncApi aes, int[] k1) {
+        Arrays.fill(k1, 0);
+        aes.encryptBlock(k1, 0, k1, 0);
+        GfHelper.x2(k1);
+    }
+
     @Override
     public Engine start(byte[] key) {
+        var aes = expandKey(key);
+        var k1 = new int[4];
+        subkey(aes, k1);
+        return engine(aes, k1);
+    }
+
+    @Override
+    public Keyed keyed(byte[] key) {
+        var aes = expandKey(key);
+        var k1 = new int[4];
+        subkey(aes, k1);
+        return new Keyed() {
+            @Override
+            public Engine start() {
+                return engine(aes.copy(), k1.clone());
+            }
+
+            @Override
+            public Mac getAlgorithm() {
+                return AesCmac.this;
+            }
+        };
+    }
+
+    private Engine engine(AesEncApi cipher, int[] k1) {
         return new AbstractMacEngine(16) {
 
-            private final int[] checksum = new int[4], xorKey = {
-                Tools.load32BE(key, 0), Tools.load32BE(key, 4), Tools.load32BE(key, 8), Tools.load32BE(key, 12)
-            };
+            private final int[] checksum = new int[4], xorKey = new int[4];
 
-            private final AesEncApi aes = constructor.apply(key);
+            private AesEncApi aes = cipher;
 
             {
-                GfHelper.x2(xorKey);
+                resetState();
             }
 
             @Override
@@ -107,6 +148,22 @@ public enum AesCmac implements Mac {
 
             }
 
+            @Override
+            protected void resetState() {
+                checksum[0] = 0;
+                checksum[1] = 0;
+                checksum[2] = 0;
+                checksum[3] = 0;
+                System.arraycopy(k1, 0, xorKey, 0, 4);
+            }
+
+            @Override
+            protected void resetState(byte[] key) {
+                aes = expandKey(key);
+                subkey(aes, k1);
+                resetState();
+            }
+
             @Override
             public Mac getAlgorithm() {
                 return AesCmac.this;
@@ -18,9 +18,11 @@
 package org.asterisk.crypto.mac;
 
 import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 import java.nio.ByteBuffer;
 import org.asterisk.crypto.Digest;
 import org.asterisk.crypto.Mac;
+import org.asterisk.crypto.helper.Tools;
 
 /**
  *
@@ -38,48 +40,121 @@ public class Hmac implements Mac {
         this.hash = hash;
     }
 
+    /**
+     * derives the inner and outer padded key blocks. Keys longer than a block
+     * are hashed first, shorter ones are padded with zeroes
+     */
+    private void setKey(byte[] key, byte[] ipad, byte[] opad) {
+        byte[] block = key.length > ipad.length ? hash.digest(key) : key;
+        for (int i = 0; i < ipad.length; i++) {
+            byte b = i < block.length ? block[i] : 0;
+            ipad[i] = (byte) (b ^ 0x36);
+            opad[i] = (byte) (b ^ 0x5c);
+        }
+    }
+
+    private Digest.Engine primed(byte[] pad) {
+        var engine = hash.start();
+        engine.ingest(pad);
+        return engine;
+    }
+
+    private static boolean copyable(Digest.Engine engine) {
+        try {
+            engine.copy();
+            return true;
+        } catch (UnsupportedOperationException ex) {
+            return false;
+        }
+    }
+
     @Override
     public Engine start(byte[] key) {
-        int len = key.length;
-        byte[] k = new byte[hash.blockSize()];
+        byte[] ipad = new byte[hash.blockSize()], opad = new byte[hash.blockSize()];
+        setKey(key, ipad, opad);
+        return engine(ipad, opad, primed(ipad), primed(opad));
+    }
 
-        if (len != k.length) {
-            var eng = hash.start();
-            eng.ingest(key);
-            eng.digestTo(k);
-            len = hash.digestSize();
+    /**
+     * the padded key blocks are absorbed into an inner and an outer hash state
+     * once, and every engine starts from a copy of those states. Hashes whose
+     * engines can't be copied absorb the padded key blocks for every engine
+     */
+    @Override
+    public Keyed keyed(byte[] key) {
+        byte[] ipad = new byte[hash.blockSize()], opad = new byte[hash.blockSize()];
+        setKey(key, ipad, opad);
+        var inner = primed(ipad);
+        var outer = primed(opad);
+        boolean copyable = copyable(inner);
+        return new Keyed() {
+            @Override
+            public Engine start() {
+                return copyable
+                        ? engine(ipad.clone(), opad.clone(), inner.copy(), outer.copy())
+                        : engine(ipad.clone(), opad.clone(), primed(ipad), primed(opad));
+            }
 
-            while (len < k.length) {
-                k[len++] = 0;
+            @Override
+            public Mac getAlgorithm() {
+                return Hmac.this;
             }
-        } else {
-            System.arraycopy(key, 0, k, 0, len);
-        }
+        };
+    }
 
+    /**
+     * {@code inner} and {@code outer} must have absorbed exactly {@code ipad}
+     * and {@code opad} respectively
+     */
+    private Engine engine(byte[] ipad, byte[] opad, Digest.Engine inner, Digest.Engine outer) {
         return new Engine() {
 
-            private final Digest.Engine inner = hash.start();
+            private final byte[] temp = new byte[hash.digestSize()];
 
-            {
-                for (int i = 0; i < k.length; i++) {
-                    k[i] ^= 0x36;
-                }
-                inner.ingest(k);
+            @Override
+            public void authenticateTo(byte[] tag, int offset, int length) {
+                System.arraycopy(tag(), 0, tag, offset, length);
             }
 
             @Override
-            public void authenticateTo(byte[] tag, int offset, int length) {
-                byte[] temp = new byte[hash.digestSize()];
+            public void authenticateTo(MemorySegment tag) {
+                MemorySegment.copy(tag(), 0, tag, ValueLayout.JAVA_BYTE, 0, (int) Math.min(temp.length, tag.byteSize()));
+            }
+
+            @Override
+            public boolean verify(byte[] tag, int offset, int length) {
+                return Tools.equals(tag(), 0, tag, offset, length);
+            }
+
+            @Override
+            public boolean verify(MemorySegment tag) {
+                return Tools.equals(tag(), 0, tag, 0, (int) Math.min(temp.length, tag.byteSize()));
+            }
+
+            private byte[] tag() {
                 inner.digestTo(temp);
-                var outer = hash.start();
-                for (int i = 0; i < k.length; i++) {
-                    k[i] ^= 0x6a;
-                }
-                outer.ingest(k);
                 outer.ingest(temp);
                 outer.digestTo(temp);
+                return temp;
+            }
+
+            @Override
+            public void reset() {
+                inner.reset();
+                inner.ingest(ipad);
+                outer.reset();
+                outer.ingest(opad);
+            }
 
-                System.arraycopy(temp, 0, tag, offset, length);
+            @Override
+            public void reset(byte[] key) {
+                setKey(key, ipad, opad);
+                reset();
+            }
+
+            @Override
+            public Engine copy() {
+                return engine(ipad.clone(), opad.clone(), inner.copy(), outer.copy());
             }
 
             @Override
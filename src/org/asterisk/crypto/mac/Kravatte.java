@@ -6,6 +6,7 @@ package org.asterisk.crypto.mac;
 
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
 import org.asterisk.crypto.helper.AbstractMacEngine;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Mac;
@@ -49,20 +50,51 @@ public enum Kravatte implements Mac {
         state[19] = temp;
     }
 
+    private static void maskKey(byte[] key, long[] maskedKey) {
+        if (key.length < 32) {
+            throw new IllegalArgumentException("Kravatte requires a 32 byte key, " + key.length + " bytes provided");
+        }
+        Arrays.fill(maskedKey, 0);
+        maskedKey[0] = Tools.load64LE(key, 0);
+        maskedKey[1] = Tools.load64LE(key, 8);
+        maskedKey[2] = Tools.load64LE(key, 16);
+        maskedKey[3] = Tools.load64LE(key, 24);
+        maskedKey[4] = 0x01;
+
+        permute(maskedKey);
+    }
+
     @Override
     public Engine start(byte[] key) {
+        var maskedKey = new long[25];
+        maskKey(key, maskedKey);
+        return engine(maskedKey);
+    }
+
+    @Override
+    public Keyed keyed(byte[] key) {
+        var maskedKey = new long[25];
+        maskKey(key, maskedKey);
+        return new Keyed() {
+            @Override
+            public Engine start() {
+                return engine(maskedKey.clone());
+            }
+
+            @Override
+            public Mac getAlgorithm() {
+                return KRAVATTE;
+            }
+        };
+    }
+
+    private Engine engine(long[] maskedKey) {
         return new AbstractMacEngine(200) {
 
             private final long[] rolledKey = new long[25], buffer = new long[25], accumulator = new long[25];
 
             {
-                rolledKey[0] = Tools.load64LE(key, 0);
-                rolledKey[1] = Tools.load64LE(key, 8);
-                rolledKey[2] = Tools.load64LE(key, 16);
-                rolledKey[3] = Tools.load64LE(key, 24);
-                rolledKey[4] = 0x01;
-
-                permute(rolledKey);
+                resetState();
             }
 
             @Override
@@ -77,6 +109,34 @@ public enum Kravatte implements Mac {
                 rollc(rolledKey);
             }
 
+            private long[] states;
+
+            @Override
+            protected void ingestBlocks(MemorySegment input, long offset, long blocks) {
+                int ways = KeccakP.WAYS;
+                if (ways > 1 && blocks >= ways) {
+                    if (states == null) {
+                        states = new long[25 * ways];
+                    }
+                    for (; blocks >= ways; blocks -= ways) {
+                        for (int j = 0; j < ways; j++) {
+                            for (int i = 0; i < 25; i++) {
+                                states[ways * i + j] = input.get(LAYOUT, offset + 8 * i) ^ rolledKey[i];
+                            }
+                            rollc(rolledKey);
+                            offset += 200;
+                        }
+                        KeccakP.keccak_p1600(states, ways, 6);
+                        for (int i = 0; i < 25; i++) {
+                            for (int j = 0; j < ways; j++) {
+                                accumulator[i] ^= states[ways * i + j];
+                            }
+                        }
+                    }
+                }
+                super.ingestBlocks(input, offset, blocks);
+            }
+
             @Override
             protected void ingestLastBlock(MemorySegment input, int length) {
                 if (length == 200) {
@@ -109,6 +169,18 @@ public enum Kravatte implements Mac {
                 Tools.store64LE(buffer[1] ^ rolledKey[1], dest, offset + 8);
             }
 
+            @Override
+            protected void resetState() {
+                System.arraycopy(maskedKey, 0, rolledKey, 0, 25);
+                Arrays.fill(accumulator, 0);
+            }
+
+            @Override
+            protected void resetState(byte[] key) {
+                maskKey(key, maskedKey);
+                resetState();
+            }
+
             @Override
             public Mac getAlgorithm() {
                 return KRAVATTE;
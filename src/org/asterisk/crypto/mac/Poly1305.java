@@ -18,7 +18,6 @@
 package org.asterisk.crypto.mac;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import org.asterisk.crypto.Tested;
@@ -34,16 +33,37 @@ public enum Poly1305 implements Mac {
     @Tested
     POLY1305;
 
-    private static final ValueLayout.OfInt LAYOUT = Tools.LITTLE_ENDIAN_32_BIT;
+    private static final ValueLayout.OfLong LAYOUT = Tools.LITTLE_ENDIAN_64_BIT;
 
-    private static final int MASK = 0x3ffffff;
-    private static final int HIGH = 0x1000000;
+    private static final long MASK_44 = (1L << 44) - 1, MASK_42 = (1L << 42) - 1;
+
+    /**
+     * the 1 appended to every full block, bit 128 sits at bit 40 of the top
+     * limb
+     */
+    private static final long HIBIT = 1L << 40;
 
     @Override
     public Poly1305Engine start(byte[] key) {
         return new Poly1305Engine(key);
     }
 
+    @Override
+    public Keyed keyed(byte[] key) {
+        var keyed = new Poly1305Engine(key);
+        return new Keyed() {
+            @Override
+            public Poly1305Engine start() {
+                return new Poly1305Engine(keyed);
+            }
+
+            @Override
+            public Mac getAlgorithm() {
+                return POLY1305;
+            }
+        };
+    }
+
     @Override
     public int tagLength() {
         return 16;
@@ -54,50 +74,114 @@ public enum Poly1305 implements Mac {
         return 32;
     }
 
+    /**
+     * a Poly1305 engine with the accumulator in three limbs of 44, 44 and 42
+     * bits. Products of limbs are split into their low 44 bits and the rest
+     * with {@link Math#multiplyHigh(long, long)}, so sums of products never
+     * need carries. Runs of 4 blocks are folded with {@code r^4} to
+     * {@code r} and reduced once
+     */
     public static final class Poly1305Engine implements Engine {
 
-        private static long addFull(int a, int b) {
-            return Integer.toUnsignedLong(a) + Integer.toUnsignedLong(b);
+        private static long lo(long a, long b) {
+            return (a * b) & MASK_44;
         }
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(16);
+        /**
+         * {@code a * b >>> 44}, exact while {@code a < 2^57} and
+         * {@code b < 2^49}, which limbs and their multiples of 20 always are
+         */
+        private static long hi(long a, long b) {
+            return Math.multiplyHigh(a << 6, b << 14);
+        }
+
+        private final MemorySegment buffer = Tools.allocate(16);
         private int position = 0;
 
-        private final int[] r, s, pad, h = new int[5];
+        /**
+         * {@code r}, {@code r^2}, {@code r^3} and {@code r^4}, each as its
+         * three limbs followed by {@code 20} times the upper two, as
+         * {@code 2^132 = 20 mod p}
+         */
+        private final long[] powers = new long[20];
+
+        private long h0, h1, h2, pad0, pad1;
+
+        private final byte[] tagBuffer = new byte[16];
 
         public Poly1305Engine(byte[] key) {
-            r = new int[]{
-                Tools.load32LE(key, 0) & MASK,
-                (Tools.load32LE(key, 3) >>> 2) & 0x3ffff03,
-                (Tools.load32LE(key, 6) >>> 4) & 0x3ffc0ff,
-                (Tools.load32LE(key, 9) >>> 6) & 0x3f03fff,
-                (Tools.load32LE(key, 12) >>> 8) & 0x00fffff
-            };
-            s = new int[]{
-                r[1] * 5, r[2] * 5, r[3] * 5, r[4] * 5
-            };
-            pad = new int[]{
-                Tools.load32LE(key, 16),
-                Tools.load32LE(key, 20),
-                Tools.load32LE(key, 24),
-                Tools.load32LE(key, 28)
-            };
+            if (key.length < 32) {
+                throw new IllegalArgumentException("Poly1305 requires a 32 byte key, " + key.length + " bytes provided");
+            }
+            setKey(key);
+        }
+
+        /**
+         * starts a new message with the clamped key of {@code keyed}, without
+         * copying any of its message state
+         */
+        private Poly1305Engine(Poly1305Engine keyed) {
+            System.arraycopy(keyed.powers, 0, powers, 0, 20);
+            pad0 = keyed.pad0;
+            pad1 = keyed.pad1;
         }
 
         public Poly1305Engine(int[] key) {
-            r = new int[]{
-                key[0] & MASK,
-                ((key[0] >>> 26) | ((key[1] << 8) >>> 2)) & 0x3ffff03,
-                ((key[1] >>> 28) | ((key[2] << 8) >>> 4)) & 0x3ffc0ff,
-                ((key[2] >>> 30) | ((key[3] << 8) >>> 6)) & 0x3f03fff,
-                key[4] & 0x00fffff
-            };
-            s = new int[]{
-                r[1] * 5, r[2] * 5, r[3] * 5, r[4] * 5
-            };
-            pad = new int[]{
-                key[4], key[5], key[6], key[7]
-            };
+            setKey(pack(key[0], key[1]), pack(key[2], key[3]), pack(key[4], key[5]), pack(key[6], key[7]));
+        }
+
+        private static long pack(int lo, int hi) {
+            return Integer.toUnsignedLong(lo) | ((long) hi << 32);
+        }
+
+        private void setKey(byte[] key) {
+            setKey(Tools.load64LE(key, 0), Tools.load64LE(key, 8), Tools.load64LE(key, 16), Tools.load64LE(key, 24));
+        }
+
+        private void setKey(long t0, long t1, long pad0, long pad1) {
+            t0 &= 0x0ffffffc0fffffffL;
+            t1 &= 0x0ffffffc0ffffffcL;
+            powers[0] = t0 & MASK_44;
+            powers[1] = ((t0 >>> 44) | (t1 << 20)) & MASK_44;
+            powers[2] = (t1 >>> 24) & MASK_42;
+            powers[3] = 20 * powers[1];
+            powers[4] = 20 * powers[2];
+            for (int i = 5; i < 20; i += 5) {
+                multiply(powers, i - 5, powers, i);
+            }
+            this.pad0 = pad0;
+            this.pad1 = pad1;
+        }
+
+        /**
+         * puts {@code r} times the power at {@code src} in {@code dest},
+         * with its multiples of 20
+         */
+        private static void multiply(long[] powers, int src, long[] dest, int off) {
+            long r0 = powers[0], r1 = powers[1], r2 = powers[2], s1 = powers[3], s2 = powers[4];
+            long x0 = powers[src], x1 = powers[src + 1], x2 = powers[src + 2];
+
+            long d0l = lo(x0, r0) + lo(x1, s2) + lo(x2, s1), d0h = hi(x0, r0) + hi(x1, s2) + hi(x2, s1);
+            long d1l = lo(x0, r1) + lo(x1, r0) + lo(x2, s2), d1h = hi(x0, r1) + hi(x1, r0) + hi(x2, s2);
+            long d2l = lo(x0, r2) + lo(x1, r1) + lo(x2, r0), d2h = hi(x0, r2) + hi(x1, r1) + hi(x2, r0);
+
+            long c = d0h + (d0l >>> 44);
+            x0 = d0l & MASK_44;
+            d1l += c;
+            c = d1h + (d1l >>> 44);
+            x1 = d1l & MASK_44;
+            d2l += c;
+            c = (d2h << 2) + (d2l >>> 42);
+            x2 = d2l & MASK_42;
+            x0 += 5 * c;
+            x1 += x0 >>> 44;
+            x0 &= MASK_44;
+
+            dest[off] = x0;
+            dest[off + 1] = x1;
+            dest[off + 2] = x2;
+            dest[off + 3] = 20 * x1;
+            dest[off + 4] = 20 * x2;
         }
 
         @Override
@@ -110,14 +194,14 @@ public enum Poly1305 implements Mac {
                 length -= take;
                 position += take;
                 if (position == 16) {
-                    processBlock(buffer, 0, HIGH);
+                    processBlocks(buffer, 0, 1, HIBIT);
                     position = 0;
                 }
             }
             if (length >= 16) {
-                var x = processBlocks(input, offset, length);
-                length -= x;
-                offset += x;
+                processBlocks(input, offset, length / 16, HIBIT);
+                offset += length & -16;
+                length &= 15;
             }
             if (length > 0) {
                 MemorySegment.copy(input, offset, buffer, 0, length);
@@ -127,142 +211,179 @@ public enum Poly1305 implements Mac {
 
         @Override
         public void authenticateTo(byte[] tag, int offset, int length) {
-            Objects.checkFromIndexSize(offset, 16, tag.length);
-            if (position > 0) {
-                buffer.set(ValueLayout.JAVA_BYTE, position, (byte) 1);
-                Tools.zeropad(buffer, position + 1);
-                processBlock(buffer, 0, 0);
-            }
-            byte[] dest = new byte[16];
-            getTag(dest);
-            System.arraycopy(dest, 0, tag, offset, length);
+            checkTagLength(length);
+            Objects.checkFromIndexSize(offset, length, tag.length);
+            System.arraycopy(finish(), 0, tag, offset, length);
         }
 
-        private long processBlocks(MemorySegment input, long offset, long length) {
-            long initial = offset;
-
-            int h0 = h[0], h1 = h[1], h2 = h[2], h3 = h[3], h4 = h[4];
+        @Override
+        public void authenticateTo(MemorySegment tag) {
+            MemorySegment.copy(finish(), 0, tag, ValueLayout.JAVA_BYTE, 0, (int) Math.min(16, tag.byteSize()));
+        }
 
-            int r0 = r[0], r1 = r[1], r2 = r[2], r3 = r[3], r4 = r[4];
+        @Override
+        public boolean verify(byte[] tag, int offset, int length) {
+            checkTagLength(length);
+            return Tools.equals(finish(), 0, tag, offset, length);
+        }
 
-            int s1 = s[0], s2 = s[1], s3 = s[2], s4 = s[3];
+        @Override
+        public boolean verify(MemorySegment tag) {
+            return Tools.equals(finish(), 0, tag, 0, (int) Math.min(16, tag.byteSize()));
+        }
 
-            long d0, d1, d2, d3, d4;
+        private static void checkTagLength(int length) {
+            if (length > 16) {
+                throw new IllegalArgumentException("Poly1305 can produce tags of up to 16 bytes, " + length + " bytes requested");
+            }
+        }
 
-            while (length >= 16) {
+        private byte[] finish() {
+            if (position > 0) {
+                buffer.set(ValueLayout.JAVA_BYTE, position, (byte) 1);
+                Tools.zeropad(buffer, position + 1);
+                processBlocks(buffer, 0, 1, 0);
+            }
+            getTag(tagBuffer);
+            return tagBuffer;
+        }
 
-                h0 += (input.get(LAYOUT, offset + 0)) & MASK;
-                h1 += (input.get(LAYOUT, offset + 3) >>> 2) & MASK;
-                h2 += (input.get(LAYOUT, offset + 6) >>> 4) & MASK;
-                h3 += (input.get(LAYOUT, offset + 9) >>> 6) & MASK;
-                h4 += (input.get(LAYOUT, offset + 12) >>> 8) | HIGH;
+        /**
+         * absorbs {@code blocks} blocks of {@code input}, with {@code hibit}
+         * as bit 128 of each
+         */
+        private void processBlocks(MemorySegment input, long offset, long blocks, long hibit) {
+            long a0 = h0, a1 = h1, a2 = h2;
+            long[] p = powers;
+
+            for (; blocks >= 4; blocks -= 4) {
+                long d0l = 0, d0h = 0, d1l = 0, d1h = 0, d2l = 0, d2h = 0;
+                for (int k = 0; k < 4; k++) {
+                    long t0 = input.get(LAYOUT, offset), t1 = input.get(LAYOUT, offset + 8);
+                    long x0 = t0 & MASK_44, x1 = ((t0 >>> 44) | (t1 << 20)) & MASK_44, x2 = (t1 >>> 24) | hibit;
+                    if (k == 0) {
+                        x0 += a0;
+                        x1 += a1;
+                        x2 += a2;
+                    }
+                    int i = 15 - 5 * k;
+                    long r0 = p[i], r1 = p[i + 1], r2 = p[i + 2], s1 = p[i + 3], s2 = p[i + 4];
+
+                    d0l += lo(x0, r0) + lo(x1, s2) + lo(x2, s1);
+                    d0h += hi(x0, r0) + hi(x1, s2) + hi(x2, s1);
+                    d1l += lo(x0, r1) + lo(x1, r0) + lo(x2, s2);
+                    d1h += hi(x0, r1) + hi(x1, r0) + hi(x2, s2);
+                    d2l += lo(x0, r2) + lo(x1, r1) + lo(x2, r0);
+                    d2h += hi(x0, r2) + hi(x1, r1) + hi(x2, r0);
+
+                    offset += 16;
+                }
 
-                d0 = ((long) h0 * r0) + ((long) h1 * s4) + ((long) h2 * s3) + ((long) h3 * s2) + ((long) h4 * s1);
-                d1 = ((long) h0 * r1) + ((long) h1 * r0) + ((long) h2 * s4) + ((long) h3 * s3) + ((long) h4 * s2);
-                d2 = ((long) h0 * r2) + ((long) h1 * r1) + ((long) h2 * r0) + ((long) h3 * s4) + ((long) h4 * s3);
-                d3 = ((long) h0 * r3) + ((long) h1 * r2) + ((long) h2 * r1) + ((long) h3 * r0) + ((long) h4 * s4);
-                d4 = ((long) h0 * r4) + ((long) h1 * r3) + ((long) h2 * r2) + ((long) h3 * r1) + ((long) h4 * r0);
+                long c = d0h + (d0l >>> 44);
+                a0 = d0l & MASK_44;
+                d1l += c;
+                c = d1h + (d1l >>> 44);
+                a1 = d1l & MASK_44;
+                d2l += c;
+                c = (d2h << 2) + (d2l >>> 42);
+                a2 = d2l & MASK_42;
+                a0 += 5 * c;
+                a1 += a0 >>> 44;
+                a0 &= MASK_44;
+            }
 
-                d1 += (int) (d0 >>> 26);
-                h0 = (int) (d0 & MASK);
-                d2 += (int) (d1 >>> 26);
-                h1 = (int) (d1 & MASK);
-                d3 += (int) (d2 >>> 26);
-                h2 = (int) (d2 & MASK);
-                d4 += (int) (d3 >>> 26);
-                h3 = (int) (d3 & MASK);
-                h0 += 5 * (int) (d4 >>> 26);
-                h4 = (int) (d4 & MASK);
-                h1 += h0 >>> 26;
-                h0 &= MASK;
+            long r0 = p[0], r1 = p[1], r2 = p[2], s1 = p[3], s2 = p[4];
+            for (; blocks > 0; blocks--) {
+                long t0 = input.get(LAYOUT, offset), t1 = input.get(LAYOUT, offset + 8);
+                a0 += t0 & MASK_44;
+                a1 += ((t0 >>> 44) | (t1 << 20)) & MASK_44;
+                a2 += (t1 >>> 24) | hibit;
+
+                long d0l = lo(a0, r0) + lo(a1, s2) + lo(a2, s1), d0h = hi(a0, r0) + hi(a1, s2) + hi(a2, s1);
+                long d1l = lo(a0, r1) + lo(a1, r0) + lo(a2, s2), d1h = hi(a0, r1) + hi(a1, r0) + hi(a2, s2);
+                long d2l = lo(a0, r2) + lo(a1, r1) + lo(a2, r0), d2h = hi(a0, r2) + hi(a1, r1) + hi(a2, r0);
+
+                long c = d0h + (d0l >>> 44);
+                a0 = d0l & MASK_44;
+                d1l += c;
+                c = d1h + (d1l >>> 44);
+                a1 = d1l & MASK_44;
+                d2l += c;
+                c = (d2h << 2) + (d2l >>> 42);
+                a2 = d2l & MASK_42;
+                a0 += 5 * c;
+                a1 += a0 >>> 44;
+                a0 &= MASK_44;
 
                 offset += 16;
-                length -= 16;
             }
 
-            h[0] = h0;
-            h[1] = h1;
-            h[2] = h2;
-            h[3] = h3;
-            h[4] = h4;
-
-            return offset - initial;
+            h0 = a0;
+            h1 = a1;
+            h2 = a2;
         }
 
-        private void processBlock(MemorySegment input, long offset, int hibit) {
-            h[0] += (input.get(LAYOUT, offset + 0)) & MASK;
-            h[1] += (input.get(LAYOUT, offset + 3) >>> 2) & MASK;
-            h[2] += (input.get(LAYOUT, offset + 6) >>> 4) & MASK;
-            h[3] += (input.get(LAYOUT, offset + 9) >>> 6) & MASK;
-            h[0] += (input.get(LAYOUT, offset + 12) >>> 8) | hibit;
-
-            long d0 = ((long) h[0] * r[0]) + ((long) h[1] * s[3]) + ((long) h[2] * s[2]) + ((long) h[3] * s[1]) + ((long) h[4] * s[0]);
-            long d1 = ((long) h[0] * r[1]) + ((long) h[1] * r[0]) + ((long) h[2] * s[3]) + ((long) h[3] * s[2]) + ((long) h[4] * s[1]);
-            long d2 = ((long) h[0] * r[2]) + ((long) h[1] * r[1]) + ((long) h[2] * r[0]) + ((long) h[3] * s[3]) + ((long) h[4] * s[2]);
-            long d3 = ((long) h[0] * r[3]) + ((long) h[1] * r[2]) + ((long) h[2] * r[1]) + ((long) h[3] * r[0]) + ((long) h[4] * s[3]);
-            long d4 = ((long) h[0] * r[4]) + ((long) h[1] * r[3]) + ((long) h[2] * r[2]) + ((long) h[3] * r[1]) + ((long) h[4] * r[0]);
-
-            d1 += (int) (d0 >>> 26);
-            h[0] = (int) (d0 & MASK);
-            d2 += (int) (d1 >>> 26);
-            h[1] = (int) (d1 & MASK);
-            d3 += (int) (d2 >>> 26);
-            h[2] = (int) (d2 & MASK);
-            d4 += (int) (d3 >>> 26);
-            h[3] = (int) (d3 & MASK);
-            h[0] += 5 * (int) (d4 >>> 26);
-            h[4] = (int) (d4 & MASK);
-            h[1] += h[0] >>> 26;
-            h[0] &= MASK;
+        private void getTag(byte[] buffer) {
+            long a0 = h0, a1 = h1, a2 = h2, c;
+
+            c = a1 >>> 44;
+            a1 &= MASK_44;
+            a2 += c;
+            c = a2 >>> 42;
+            a2 &= MASK_42;
+            a0 += 5 * c;
+            c = a0 >>> 44;
+            a0 &= MASK_44;
+            a1 += c;
+            c = a1 >>> 44;
+            a1 &= MASK_44;
+            a2 += c;
+            c = a2 >>> 42;
+            a2 &= MASK_42;
+            a0 += 5 * c;
+            c = a0 >>> 44;
+            a0 &= MASK_44;
+            a1 += c;
+
+            //h + 5 - 2^130 is non-negative exactly when h >= p
+            long g0 = a0 + 5;
+            c = g0 >>> 44;
+            g0 &= MASK_44;
+            long g1 = a1 + c;
+            c = g1 >>> 44;
+            g1 &= MASK_44;
+            long g2 = a2 + c - (1L << 42);
+
+            long b = (g2 >>> 63) - 1;
+            a0 = (a0 & ~b) | (g0 & b);
+            a1 = (a1 & ~b) | (g1 & b);
+            a2 = (a2 & ~b) | (g2 & b);
+
+            a0 += pad0 & MASK_44;
+            c = a0 >>> 44;
+            a0 &= MASK_44;
+            a1 += (((pad0 >>> 44) | (pad1 << 20)) & MASK_44) + c;
+            c = a1 >>> 44;
+            a1 &= MASK_44;
+            a2 += (pad1 >>> 24) + c;
+
+            Tools.store64LE(a0 | (a1 << 44), buffer, 0);
+            Tools.store64LE((a1 >>> 20) | (a2 << 24), buffer, 8);
         }
 
-        private void getTag(byte[] buffer) {
-            int h0 = h[0], h1 = h[1], h2 = h[2], h3 = h[3], h4 = h[4];
-
-            h2 += h1 >>> 26;
-            h1 &= MASK;
-            h3 += h2 >>> 26;
-            h2 &= MASK;
-            h4 += h3 >>> 26;
-            h3 &= MASK;
-            h0 += 5 * (h4 >>> 26);
-            h4 &= MASK;
-            h1 += h0 >>> 26;
-            h0 &= MASK;
-
-            int g0 = h0 + 5;
-            int g1 = h1 + (g0 >>> 26);
-            g0 &= MASK;
-            int g2 = h2 + (g1 >>> 26);
-            g1 &= MASK;
-            int g3 = h3 + (g2 >>> 26);
-            g2 &= MASK;
-            int g4 = h4 + (g3 >>> 26) - 0x4000000;
-            g3 &= MASK;
-
-            int b = (g4 >>> 31) - 1;
-            int nb = ~b;
-
-            h0 = (h0 & nb) | (g0 & b);
-            h1 = (h1 & nb) | (g1 & b);
-            h2 = (h2 & nb) | (g2 & b);
-            h3 = (h3 & nb) | (g3 & b);
-            h4 = (h4 & nb) | (g4 & b);
-
-            long f;
-
-            f = addFull(h0 | (h1 << 26), pad[0]);
-            Tools.store32LE((int) f, buffer, 0);
-
-            f = addFull((h1 >>> 6) | (h2 << 20), pad[1]) + (f >>> 32);
-            Tools.store32LE((int) f, buffer, 4);
-
-            f = addFull((h2 >>> 12) | (h3 << 14), pad[2]) + (f >>> 32);
-            Tools.store32LE((int) f, buffer, 8);
-
-            f = addFull((h2 >>> 18) | (h4 << 8), pad[3]) + (f >>> 32);
-            Tools.store32LE((int) f, buffer, 12);
+        @Override
+        public void reset() {
+            h0 = h1 = h2 = 0;
+            position = 0;
+        }
 
+        @Override
+        public void reset(byte[] key) {
+            if (key.length < 32) {
+                throw new IllegalArgumentException("Poly1305 requires a 32 byte key, " + key.length + " bytes provided");
+            }
+            setKey(key);
+            reset();
         }
 
         @Override
@@ -18,7 +18,6 @@
 package org.asterisk.crypto.mac;
 
 import java.lang.foreign.MemorySegment;
-import java.lang.foreign.Arena;
 import java.lang.foreign.ValueLayout;
 import java.util.Objects;
 import org.asterisk.crypto.helper.Tools;
@@ -33,7 +32,7 @@ public enum SipHash implements Mac {
     SIPHASH_2_4 {
         @Override
         public Engine start(byte[] key) {
-            return new SipHashEngine(Tools.load64LE(key, 0), Tools.load64LE(key, 8)) {
+            return new SipHashEngine(key) {
 
                 @Override
                 protected void ingestBlocks(MemorySegment input, long offset, long length) {
@@ -107,7 +106,7 @@ public enum SipHash implements Mac {
     }, SIPHASH_4_8 {
         @Override
         public Engine start(byte[] key) {
-            return new SipHashEngine(Tools.load64LE(key, 0), Tools.load64LE(key, 8)) {
+            return new SipHashEngine(key) {
 
                 @Override
                 protected void ingestBlocks(MemorySegment input, long offset, long length) {
@@ -231,17 +230,19 @@ public enum SipHash implements Mac {
 
     private abstract static class SipHashEngine implements Engine {
 
-        protected final long[] state;
+        protected final long[] state = new long[4];
+
+        private long k0, k1;
 
         private int counter = 0;
 
-        private final MemorySegment buffer = Arena.ofAuto().allocate(8);
+        private final MemorySegment buffer = Tools.allocate(8);
         private int position = 0;
 
-        private SipHashEngine(long k0, long k1) {
-            state = new long[]{
-                k0 ^ CONST_0, k1 ^ CONST_1, k0 ^ CONST_2, k1 ^ CONST_3
-            };
+        private final byte[] tagBuffer = new byte[8];
+
+        private SipHashEngine(byte[] key) {
+            reset(key);
         }
 
         protected abstract void ingestOneBlock(MemorySegment input, long offset);
@@ -278,15 +279,60 @@ public enum SipHash implements Mac {
 
         @Override
         public void authenticateTo(byte[] tag, int offset, int length) {
-            Objects.checkFromIndexSize(offset, 8, tag.length);
+            checkTagLength(length);
+            Objects.checkFromIndexSize(offset, length, tag.length);
+            System.arraycopy(finish(), 0, tag, offset, length);
+        }
+
+        @Override
+        public void authenticateTo(MemorySegment tag) {
+            MemorySegment.copy(finish(), 0, tag, ValueLayout.JAVA_BYTE, 0, (int) Math.min(8, tag.byteSize()));
+        }
+
+        @Override
+        public boolean verify(byte[] tag, int offset, int length) {
+            checkTagLength(length);
+            return Tools.equals(finish(), 0, tag, offset, length);
+        }
 
+        @Override
+        public boolean verify(MemorySegment tag) {
+            return Tools.equals(finish(), 0, tag, 0, (int) Math.min(8, tag.byteSize()));
+        }
+
+        private static void checkTagLength(int length) {
+            if (length > 8) {
+                throw new IllegalArgumentException("SipHash can produce tags of up to 8 bytes, " + length + " bytes requested");
+            }
+        }
+
+        private byte[] finish() {
             buffer.asSlice(position, 7 - position).fill((byte) 0);
             buffer.set(ValueLayout.JAVA_BYTE, 7, (byte) counter);
             ingestOneBlock(buffer, 0);
 
-            byte[] dest = new byte[8];
-            getTag(dest);
-            System.arraycopy(dest, 0, tag, offset, length);
+            getTag(tagBuffer);
+            return tagBuffer;
+        }
+
+        @Override
+        public void reset() {
+            state[0] = k0 ^ CONST_0;
+            state[1] = k1 ^ CONST_1;
+            state[2] = k0 ^ CONST_2;
+            state[3] = k1 ^ CONST_3;
+            counter = 0;
+            position = 0;
+        }
+
+        @Override
+        public void reset(byte[] key) {
+            if (key.length < 16) {
+                throw new IllegalArgumentException("SipHash requires a 16 byte key, " + key.length + " bytes provided");
+            }
+            k0 = Tools.load64LE(key, 0);
+            k1 = Tools.load64LE(key, 8);
+            reset();
         }
 
     }
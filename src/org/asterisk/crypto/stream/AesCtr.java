@@ -0,0 +1,157 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.stream;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import org.asterisk.crypto.Cipher;
+import org.asterisk.crypto.StreamCipher;
+import org.asterisk.crypto.Tested;
+import org.asterisk.crypto.helper.AbstractCounterEncrypter;
+import org.asterisk.crypto.helper.Tools;
+import org.asterisk.crypto.lowlevel.AesEncApi;
+
+/**
+ * AES in counter mode as in NIST SP 800-38A. The 16 byte iv is the first
+ * counter block, and its last 4 or 8 bytes are a big endian counter that is
+ * incremented once per block, wrapping around without carrying into the rest
+ * of the iv. To start the keystream at another block, add to that counter or
+ * seek the engine. With a 32-bit counter a message can be at most 2^32
+ * blocks long, after which the counter would come back to the iv, and longer
+ * messages or seeks beyond them are refused
+ *
+ * @author Sayantan Chakraborty
+ */
+public enum AesCtr implements StreamCipher {
+
+    @Tested
+    AES_128_CTR_32(16, AesEncApi::aes128, false),
+    @Tested
+    AES_192_CTR_32(24, AesEncApi::aes192, false),
+    @Tested
+    AES_256_CTR_32(32, AesEncApi::aes256, false),
+    @Tested
+    AES_128_CTR_64(16, AesEncApi::aes128, true),
+    @Tested
+    AES_192_CTR_64(24, AesEncApi::aes192, true),
+    @Tested
+    AES_256_CTR_64(32, AesEncApi::aes256, true);
+
+    private static final ValueLayout.OfInt LAYOUT = Tools.BIG_ENDIAN_32_BIT;
+
+    /**
+     * the number of counter blocks passed to the block cipher at a time
+     */
+    private static final int CHUNK_BLOCKS = 32;
+
+    private final int keyLength;
+    private final Function<byte[], AesEncApi> constructor;
+    private final boolean wideCounter;
+
+    private AesCtr(int keyLength, Function<byte[], AesEncApi> constructor, boolean wideCounter) {
+        this.keyLength = keyLength;
+        this.constructor = constructor;
+        this.wideCounter = wideCounter;
+    }
+
+    /**
+     * encrypts {@code blocks} blocks starting {@code index} blocks after the
+     * iv, in chunks of {@code CHUNK_BLOCKS} counter blocks built in
+     * {@code counters}
+     */
+    private void keystream(AesEncApi aes, int[] iv, int[] counters, int[] keystream, long index, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+        long low = (long) iv[2] << 32 | (iv[3] & 0xffffffffL);
+        while (blocks > 0) {
+            int n = (int) Math.min(blocks, CHUNK_BLOCKS);
+            for (int i = 0; i < n; i++) {
+                long counter = low + index + i;
+                counters[4 * i] = iv[0];
+                counters[4 * i + 1] = iv[1];
+                counters[4 * i + 2] = wideCounter ? (int) (counter >>> 32) : iv[2];
+                counters[4 * i + 3] = (int) counter;
+            }
+            aes.encryptBlocks(counters, 0, keystream, 0, n);
+            for (int i = 0; i < 4 * n; i++) {
+                ciphertext.set(LAYOUT, cOffset + 4 * i, plaintext.get(LAYOUT, pOffset + 4 * i) ^ keystream[i]);
+            }
+            index += n;
+            pOffset += 16 * n;
+            cOffset += 16 * n;
+            blocks -= n;
+        }
+    }
+
+    @Override
+    public SeekableEngine startEncryption(byte[] key, byte[] iv) {
+        return engine(key, iv, null);
+    }
+
+    /**
+     * starts an engine that splits long messages in ranges of blocks
+     * encrypted on {@code pool}, with the same output as
+     * {@link #startEncryption(byte[], byte[])}. Messages in confined segments
+     * are encrypted on the calling thread
+     *
+     * @param pool the pool to encrypt the ranges on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public SeekableEngine startEncryption(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return engine(key, iv, Objects.requireNonNull(pool));
+    }
+
+    private SeekableEngine engine(byte[] key, byte[] iv, ForkJoinPool pool) {
+        if (iv.length < 16) {
+            throw new IllegalArgumentException("AES-CTR requires a 16-byte iv, " + iv.length + " bytes provided");
+        }
+        var aes = constructor.apply(key);
+        int[] ivWords = {Tools.load32BE(iv, 0), Tools.load32BE(iv, 4), Tools.load32BE(iv, 8), Tools.load32BE(iv, 12)};
+        return new AbstractCounterEncrypter(16, 0, wideCounter ? Long.MAX_VALUE : 1L << 32, pool) {
+
+            private final int[] counters = new int[4 * CHUNK_BLOCKS], keystream = new int[4 * CHUNK_BLOCKS];
+
+            @Override
+            protected void keystreamBlocks(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                keystream(aes, ivWords, counters, keystream, counter, plaintext, pOffset, ciphertext, cOffset, blocks);
+            }
+
+            @Override
+            protected void keystreamRange(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                keystream(aes.copy(), ivWords, new int[4 * CHUNK_BLOCKS], new int[4 * CHUNK_BLOCKS], counter, plaintext, pOffset, ciphertext, cOffset, blocks);
+            }
+
+            @Override
+            public Cipher getAlgorithm() {
+                return AesCtr.this;
+            }
+        };
+    }
+
+    @Override
+    public int keyLength() {
+        return keyLength;
+    }
+
+    @Override
+    public int ivLength() {
+        return 16;
+    }
+
+}
@@ -6,8 +6,10 @@ package org.asterisk.crypto.stream;
 
 import java.lang.foreign.MemorySegment;
 import java.lang.foreign.ValueLayout;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
 import org.asterisk.crypto.Tested;
-import org.asterisk.crypto.helper.AbstractStreamEncrypter;
+import org.asterisk.crypto.helper.AbstractCounterEncrypter;
 import org.asterisk.crypto.helper.Tools;
 import org.asterisk.crypto.Cipher;
 import org.asterisk.crypto.StreamCipher;
@@ -26,11 +28,12 @@ public enum ChaCha implements StreamCipher {
     CHACHA20_IETF(10) {
 
         @Override
-        public ChaChaEngine startEncryption(byte[] key, byte[] iv) {
+        ChaChaEngine engine(int[] keyState, byte[] iv, ForkJoinPool pool) {
             if (iv.length < 12) {
                 throw new IllegalArgumentException("ChaCha20-IETF requires a 12-byte iv, " + iv.length + " bytes provided");
             }
-            return new ChaChaEngine(key, iv, 4, (long) load32LE(iv, 0) << 32);
+            //the block counter is only the low half, the high half is the first nonce word
+            return new ChaChaEngine(keyState, iv, 4, (long) load32LE(iv, 0) << 32, 1L << 32, pool);
         }
 
         @Override
@@ -41,9 +44,15 @@ public enum ChaCha implements StreamCipher {
 
     private static final ValueLayout.OfInt LAYOUT = Tools.LITTLE_ENDIAN_32_BIT;
 
+    /**
+     * {@link ChaChaVector} is only loaded when the vector api is present and
+     * the hardware has at least 4 int lanes
+     */
+    private static final boolean VECTORIZED = Tools.VECTOR_API && ChaChaVector.LANES >= 4;
+
     public static void chachaCore(int[] state, int[] buffer, int rounds) {
         int x0 = state[0] + state[4];
-        int x12 = Integer.rotateLeft(state[12] ^ state[0], 16);
+        int x12 = Integer.rotateLeft(state[12] ^ x0, 16);
         int x8 = state[8] + x12;
         int x4 = Integer.rotateLeft(state[4] ^ x8, 12);
 
@@ -53,7 +62,7 @@ public enum ChaCha implements StreamCipher {
         x4 = Integer.rotateLeft(x4 ^ x8, 7);
 
         int x1 = state[1] + state[5];
-        int x13 = Integer.rotateLeft(state[13] ^ state[1], 16);
+        int x13 = Integer.rotateLeft(state[13] ^ x1, 16);
         int x9 = state[9] + x13;
         int x5 = Integer.rotateLeft(state[5] ^ x9, 12);
 
@@ -63,7 +72,7 @@ public enum ChaCha implements StreamCipher {
         x5 = Integer.rotateLeft(x5 ^ x9, 7);
 
         int x2 = state[2] + state[6];
-        int x14 = Integer.rotateLeft(state[14] ^ state[2], 16);
+        int x14 = Integer.rotateLeft(state[14] ^ x2, 16);
         int x10 = state[10] + x14;
         int x6 = Integer.rotateLeft(state[6] ^ x10, 12);
 
@@ -73,7 +82,7 @@ public enum ChaCha implements StreamCipher {
         x6 = Integer.rotateLeft(x6 ^ x10, 7);
 
         int x3 = state[3] + state[7];
-        int x15 = Integer.rotateLeft(state[15] ^ state[3], 16);
+        int x15 = Integer.rotateLeft(state[15] ^ x3, 16);
         int x11 = state[11] + x15;
         int x7 = Integer.rotateLeft(state[7] ^ x11, 12);
 
@@ -234,19 +243,49 @@ public enum ChaCha implements StreamCipher {
 
     }
 
-    private static int[] expand(byte[] key, byte[] iv, int ivOffset) {
+    /**
+     * encrypts {@code blocks} whole blocks with counters starting at
+     * {@code counter}. When the {@code jdk.incubator.vector} module is present
+     * the blocks are computed several at a time in vector lanes, with the
+     * remainder that doesn't fill the lanes done here
+     */
+    static void keystreamBlocks(int[] state, int[] buffer, long counter, int rounds, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+        if (VECTORIZED && blocks >= ChaChaVector.LANES && ChaChaVector.supports(plaintext, ciphertext)) {
+            long done = ChaChaVector.keystreamBlocks(state, counter, rounds, plaintext, pOffset, ciphertext, cOffset, blocks);
+            counter += done;
+            pOffset += 64 * done;
+            cOffset += 64 * done;
+            blocks -= done;
+        }
+        for (; blocks > 0; blocks--) {
+            state[12] = (int) counter;
+            state[13] = (int) (counter >>> 32);
+            keystreamOneBlock(state, buffer, rounds, plaintext, pOffset, ciphertext, cOffset);
+            counter++;
+            pOffset += 64;
+            cOffset += 64;
+        }
+    }
+
+    /**
+     * loads the key into a ChaCha state, leaving the counter and iv words
+     * zero. The returned array is only ever read, so it can be reused with
+     * {@link #startEncryption(int[], byte[])} for any number of ivs
+     *
+     * @param key the 32 byte key
+     *
+     * @return the initial state without the counter and iv
+     */
+    public static int[] expandKey(byte[] key) {
         if (key.length < 32) {
             throw new IllegalArgumentException("ChaCha requires a 32-byte key, " + key.length + " bytes provided");
         }
-        if (iv.length - ivOffset < 8) {
-            throw new IllegalArgumentException("ChaCha requires a 8-byte iv, " + iv.length + " bytes provided");
-        }
 
         return new int[]{
             Salsa20.CONST_0, Salsa20.CONST_1, Salsa20.CONST_2, Salsa20.CONST_3,
             load32LE(key, 0), load32LE(key, 4), load32LE(key, 8), load32LE(key, 12),
             load32LE(key, 16), load32LE(key, 20), load32LE(key, 24), load32LE(key, 28),
-            0, 0, load32LE(iv, ivOffset), load32LE(iv, ivOffset + 4)
+            0, 0, 0, 0
         };
     }
 
@@ -258,7 +297,28 @@ public enum ChaCha implements StreamCipher {
 
     @Override
     public ChaChaEngine startEncryption(byte[] key, byte[] iv) {
-        return new ChaChaEngine(key, iv, 0, 0);
+        return startEncryption(expandKey(key), iv);
+    }
+
+    public ChaChaEngine startEncryption(int[] keyState, byte[] iv) {
+        return engine(keyState, iv, null);
+    }
+
+    /**
+     * starts an engine that splits long messages in ranges of blocks
+     * encrypted on {@code pool}, with the same output as
+     * {@link #startEncryption(byte[], byte[])}. Messages in confined segments
+     * are encrypted on the calling thread
+     *
+     * @param pool the pool to encrypt the ranges on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public ChaChaEngine startEncryption(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return engine(expandKey(key), iv, Objects.requireNonNull(pool));
+    }
+
+    ChaChaEngine engine(int[] keyState, byte[] iv, ForkJoinPool pool) {
+        return new ChaChaEngine(keyState, iv, 0, 0, Long.MAX_VALUE, pool);
     }
 
     @Override
@@ -271,24 +331,37 @@ public enum ChaCha implements StreamCipher {
         return 8;
     }
 
-    public class ChaChaEngine extends AbstractStreamEncrypter {
+    public class ChaChaEngine extends AbstractCounterEncrypter {
 
         private final int[] state;
         private final int[] buffer = new int[16];
-        private long counter;
 
         public ChaChaEngine(byte[] key, byte[] iv, int ivOffset, long initialCounter) {
-            super(64);
-            state = expand(key, iv, ivOffset);
-            counter = initialCounter;
+            this(expandKey(key), iv, ivOffset, initialCounter);
+        }
+
+        public ChaChaEngine(int[] keyState, byte[] iv, int ivOffset, long initialCounter) {
+            this(keyState, iv, ivOffset, initialCounter, Long.MAX_VALUE, null);
+        }
+
+        private ChaChaEngine(int[] keyState, byte[] iv, int ivOffset, long initialCounter, long maxBlocks, ForkJoinPool pool) {
+            super(64, initialCounter, maxBlocks, pool);
+            if (iv.length - ivOffset < 8) {
+                throw new IllegalArgumentException("ChaCha requires a 8-byte iv, " + iv.length + " bytes provided");
+            }
+            state = keyState.clone();
+            state[14] = load32LE(iv, ivOffset);
+            state[15] = load32LE(iv, ivOffset + 4);
         }
 
         @Override
-        protected void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset) {
-            state[12] = (int) counter;
-            state[13] = (int) (counter >>> 32);
-            keystreamOneBlock(state, buffer, rounds, plaintext, pOffset, ciphertext, cOffset);
-            counter++;
+        protected void keystreamBlocks(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+            ChaCha.keystreamBlocks(state, buffer, counter, rounds, plaintext, pOffset, ciphertext, cOffset, blocks);
+        }
+
+        @Override
+        protected void keystreamRange(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+            ChaCha.keystreamBlocks(state.clone(), new int[16], counter, rounds, plaintext, pOffset, ciphertext, cOffset, blocks);
         }
 
         public Poly1305.Poly1305Engine keyPoly1305() {
@@ -0,0 +1,221 @@
+/*
+ * Copyright (C) 2023 Sayantan Chakraborty
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 59 Temple Place - Suite 330, Boston, MA  02111-1307, USA.
+ */
+package org.asterisk.crypto.stream;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteOrder;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.ROL;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * ChaCha with one block per vector lane, so a call computes as many blocks as
+ * the preferred species has int lanes (4 with SSE/NEON, 8 with AVX2, 16 with
+ * AVX-512). Every vector holds the same state word of all the blocks, and the
+ * blocks are transposed back into byte order with plain array copies before
+ * they are xored into the data. A gather through an index map is not used,
+ * as C2 in JDK 21 miscompiles it for 16 int lanes.
+ * <p>
+ * This class must only be touched when the {@code jdk.incubator.vector}
+ * module is present, see {@link ChaCha#keystreamBlocks}
+ *
+ * @author Sayantan Chakraborty
+ */
+final class ChaChaVector {
+
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    static final int LANES = SPECIES.length();
+
+    /**
+     * maps the word {@code i} of block {@code j} in byte order, at
+     * {@code 16 * j + i}, to its position {@code LANES * i + j} in the lane
+     * order the rounds leave them in
+     */
+    private static final int[] TRANSPOSE = new int[16 * LANES];
+
+    static {
+        for (int j = 0; j < LANES; j++) {
+            for (int i = 0; i < 16; i++) {
+                TRANSPOSE[16 * j + i] = LANES * i + j;
+            }
+        }
+    }
+
+    /**
+     * checks if both segments can be accessed through vectors. Heap segments
+     * must be backed by a byte array for that
+     */
+    static boolean supports(MemorySegment plaintext, MemorySegment ciphertext) {
+        return supports(plaintext) && supports(ciphertext);
+    }
+
+    private static boolean supports(MemorySegment segment) {
+        return segment.isNative() || segment.heapBase().orElse(null) instanceof byte[];
+    }
+
+    /**
+     * encrypts as many whole groups of {@link #LANES} blocks as fit in
+     * {@code blocks}, with block counters starting at {@code counter}
+     *
+     * @return the number of blocks encrypted
+     */
+    static long keystreamBlocks(int[] state, long counter, int rounds, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+        long done = blocks - blocks % LANES;
+
+        int[] words = new int[16 * LANES], ordered = new int[16 * LANES];
+        int[] low = new int[LANES], high = new int[LANES];
+
+        for (long n = 0; n < done; n += LANES) {
+            for (int j = 0; j < LANES; j++) {
+                low[j] = (int) (counter + j);
+                high[j] = (int) ((counter + j) >>> 32);
+            }
+            counter += LANES;
+
+            var s12 = IntVector.fromArray(SPECIES, low, 0);
+            var s13 = IntVector.fromArray(SPECIES, high, 0);
+
+            var x0 = IntVector.broadcast(SPECIES, state[0]);
+            var x1 = IntVector.broadcast(SPECIES, state[1]);
+            var x2 = IntVector.broadcast(SPECIES, state[2]);
+            var x3 = IntVector.broadcast(SPECIES, state[3]);
+            var x4 = IntVector.broadcast(SPECIES, state[4]);
+            var x5 = IntVector.broadcast(SPECIES, state[5]);
+            var x6 = IntVector.broadcast(SPECIES, state[6]);
+            var x7 = IntVector.broadcast(SPECIES, state[7]);
+            var x8 = IntVector.broadcast(SPECIES, state[8]);
+            var x9 = IntVector.broadcast(SPECIES, state[9]);
+            var x10 = IntVector.broadcast(SPECIES, state[10]);
+            var x11 = IntVector.broadcast(SPECIES, state[11]);
+            var x12 = s12;
+            var x13 = s13;
+            var x14 = IntVector.broadcast(SPECIES, state[14]);
+            var x15 = IntVector.broadcast(SPECIES, state[15]);
+
+            for (int i = 0; i < rounds; i++) {
+                x0 = x0.add(x4);
+                x12 = x12.lanewise(XOR, x0).lanewise(ROL, 16);
+                x8 = x8.add(x12);
+                x4 = x4.lanewise(XOR, x8).lanewise(ROL, 12);
+                x0 = x0.add(x4);
+                x12 = x12.lanewise(XOR, x0).lanewise(ROL, 8);
+                x8 = x8.add(x12);
+                x4 = x4.lanewise(XOR, x8).lanewise(ROL, 7);
+
+                x1 = x1.add(x5);
+                x13 = x13.lanewise(XOR, x1).lanewise(ROL, 16);
+                x9 = x9.add(x13);
+                x5 = x5.lanewise(XOR, x9).lanewise(ROL, 12);
+                x1 = x1.add(x5);
+                x13 = x13.lanewise(XOR, x1).lanewise(ROL, 8);
+                x9 = x9.add(x13);
+                x5 = x5.lanewise(XOR, x9).lanewise(ROL, 7);
+
+                x2 = x2.add(x6);
+                x14 = x14.lanewise(XOR, x2).lanewise(ROL, 16);
+                x10 = x10.add(x14);
+                x6 = x6.lanewise(XOR, x10).lanewise(ROL, 12);
+                x2 = x2.add(x6);
+                x14 = x14.lanewise(XOR, x2).lanewise(ROL, 8);
+                x10 = x10.add(x14);
+                x6 = x6.lanewise(XOR, x10).lanewise(ROL, 7);
+
+                x3 = x3.add(x7);
+                x15 = x15.lanewise(XOR, x3).lanewise(ROL, 16);
+                x11 = x11.add(x15);
+                x7 = x7.lanewise(XOR, x11).lanewise(ROL, 12);
+                x3 = x3.add(x7);
+                x15 = x15.lanewise(XOR, x3).lanewise(ROL, 8);
+                x11 = x11.add(x15);
+                x7 = x7.lanewise(XOR, x11).lanewise(ROL, 7);
+
+                x0 = x0.add(x5);
+                x15 = x15.lanewise(XOR, x0).lanewise(ROL, 16);
+                x10 = x10.add(x15);
+                x5 = x5.lanewise(XOR, x10).lanewise(ROL, 12);
+                x0 = x0.add(x5);
+                x15 = x15.lanewise(XOR, x0).lanewise(ROL, 8);
+                x10 = x10.add(x15);
+                x5 = x5.lanewise(XOR, x10).lanewise(ROL, 7);
+
+                x1 = x1.add(x6);
+                x12 = x12.lanewise(XOR, x1).lanewise(ROL, 16);
+                x11 = x11.add(x12);
+                x6 = x6.lanewise(XOR, x11).lanewise(ROL, 12);
+                x1 = x1.add(x6);
+                x12 = x12.lanewise(XOR, x1).lanewise(ROL, 8);
+                x11 = x11.add(x12);
+                x6 = x6.lanewise(XOR, x11).lanewise(ROL, 7);
+
+                x2 = x2.add(x7);
+                x13 = x13.lanewise(XOR, x2).lanewise(ROL, 16);
+                x8 = x8.add(x13);
+                x7 = x7.lanewise(XOR, x8).lanewise(ROL, 12);
+                x2 = x2.add(x7);
+                x13 = x13.lanewise(XOR, x2).lanewise(ROL, 8);
+                x8 = x8.add(x13);
+                x7 = x7.lanewise(XOR, x8).lanewise(ROL, 7);
+
+                x3 = x3.add(x4);
+                x14 = x14.lanewise(XOR, x3).lanewise(ROL, 16);
+                x9 = x9.add(x14);
+                x4 = x4.lanewise(XOR, x9).lanewise(ROL, 12);
+                x3 = x3.add(x4);
+                x14 = x14.lanewise(XOR, x3).lanewise(ROL, 8);
+                x9 = x9.add(x14);
+                x4 = x4.lanewise(XOR, x9).lanewise(ROL, 7);
+            }
+
+            x0.add(IntVector.broadcast(SPECIES, state[0])).intoArray(words, 0);
+            x1.add(IntVector.broadcast(SPECIES, state[1])).intoArray(words, LANES);
+            x2.add(IntVector.broadcast(SPECIES, state[2])).intoArray(words, 2 * LANES);
+            x3.add(IntVector.broadcast(SPECIES, state[3])).intoArray(words, 3 * LANES);
+            x4.add(IntVector.broadcast(SPECIES, state[4])).intoArray(words, 4 * LANES);
+            x5.add(IntVector.broadcast(SPECIES, state[5])).intoArray(words, 5 * LANES);
+            x6.add(IntVector.broadcast(SPECIES, state[6])).intoArray(words, 6 * LANES);
+            x7.add(IntVector.broadcast(SPECIES, state[7])).intoArray(words, 7 * LANES);
+            x8.add(IntVector.broadcast(SPECIES, state[8])).intoArray(words, 8 * LANES);
+            x9.add(IntVector.broadcast(SPECIES, state[9])).intoArray(words, 9 * LANES);
+            x10.add(IntVector.broadcast(SPECIES, state[10])).intoArray(words, 10 * LANES);
+            x11.add(IntVector.broadcast(SPECIES, state[11])).intoArray(words, 11 * LANES);
+            x12.add(s12).intoArray(words, 12 * LANES);
+            x13.add(s13).intoArray(words, 13 * LANES);
+            x14.add(IntVector.broadcast(SPECIES, state[14])).intoArray(words, 14 * LANES);
+            x15.add(IntVector.broadcast(SPECIES, state[15])).intoArray(words, 15 * LANES);
+
+            for (int k = 0; k < 16 * LANES; k++) {
+                ordered[k] = words[TRANSPOSE[k]];
+            }
+            for (int k = 0; k < 16 * LANES; k += LANES) {
+                IntVector.fromArray(SPECIES, ordered, k)
+                        .lanewise(XOR, IntVector.fromMemorySegment(SPECIES, plaintext, pOffset + 4 * k, ByteOrder.LITTLE_ENDIAN))
+                        .intoMemorySegment(ciphertext, cOffset + 4 * k, ByteOrder.LITTLE_ENDIAN);
+            }
+            pOffset += 64 * LANES;
+            cOffset += 64 * LANES;
+        }
+        return done;
+    }
+
+    private ChaChaVector() {
+    }
+
+}
@@ -5,7 +5,9 @@
 package org.asterisk.crypto.stream;
 
 import java.lang.foreign.MemorySegment;
-import org.asterisk.crypto.helper.AbstractStreamEncrypter;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import org.asterisk.crypto.helper.AbstractCounterEncrypter;
 import org.asterisk.crypto.Cipher;
 import org.asterisk.crypto.StreamCipher;
 
@@ -17,28 +19,38 @@ import static org.asterisk.crypto.helper.Tools.load32LE;
  */
 public enum XChaCha implements StreamCipher {
 
-    XCHACHA20(10), XCHACHA6(3), XCHACHA12(6);
+    XCHACHA20(10, ChaCha.CHACHA20), XCHACHA6(3, ChaCha.CHACHA6), XCHACHA12(6, ChaCha.CHACHA12);
 
     private final int rounds;
+    private final ChaCha chacha;
 
-    private XChaCha(int rounds) {
+    private XChaCha(int rounds, ChaCha chacha) {
         this.rounds = rounds;
+        this.chacha = chacha;
     }
 
     private int[] expand(byte[] key, byte[] iv) {
         if (key.length < 32) {
             throw new IllegalArgumentException("XChaCha requires a 32-byte key, provided " + key.length + " bytes");
         }
+        return subkeyState(ChaCha.expandKey(key), iv);
+    }
+
+    /**
+     * derives the ChaCha state of the subkey of {@code iv} with HChaCha,
+     * leaving the counter zero and the last 8 bytes of {@code iv} as the
+     * nonce
+     */
+    private int[] subkeyState(int[] keyState, byte[] iv) {
         if (iv.length < 24) {
             throw new IllegalArgumentException("XChaCha requires a 24-byte iv, provided " + iv.length + " bytes");
         }
 
-        int[] state = {
-            Salsa20.CONST_0, Salsa20.CONST_1, Salsa20.CONST_2, Salsa20.CONST_3,
-            load32LE(key, 0), load32LE(key, 4), load32LE(key, 8), load32LE(key, 12),
-            load32LE(key, 16), load32LE(key, 20), load32LE(key, 24), load32LE(key, 28),
-            load32LE(iv, 0), load32LE(iv, 4), load32LE(iv, 8), load32LE(iv, 12)
-        };
+        int[] state = keyState.clone();
+        state[12] = load32LE(iv, 0);
+        state[13] = load32LE(iv, 4);
+        state[14] = load32LE(iv, 8);
+        state[15] = load32LE(iv, 12);
 
         ChaCha.chachaCore(state, state, rounds);
 
@@ -51,20 +63,49 @@ public enum XChaCha implements StreamCipher {
 
     }
 
+    /**
+     * starts the ChaCha engine that XChaCha runs on for {@code iv}, which
+     * gives the same keystream as {@link #startEncryption(byte[], byte[])}
+     * but can also key Poly1305 like ChaCha does
+     *
+     * @param keyState the key as returned by {@link ChaCha#expandKey(byte[])}
+     * @param iv       the 24 byte iv
+     */
+    public ChaCha.ChaChaEngine startChaCha(int[] keyState, byte[] iv) {
+        return chacha.new ChaChaEngine(subkeyState(keyState, iv), iv, 16, 0);
+    }
+
     @Override
-    public Cipher.EncryptEngine startEncryption(byte[] key, byte[] iv) {
-        return new AbstractStreamEncrypter(64) {
+    public SeekableEngine startEncryption(byte[] key, byte[] iv) {
+        return engine(key, iv, null);
+    }
+
+    /**
+     * starts an engine that splits long messages in ranges of blocks
+     * encrypted on {@code pool}, with the same output as
+     * {@link #startEncryption(byte[], byte[])}. Messages in confined segments
+     * are encrypted on the calling thread
+     *
+     * @param pool the pool to encrypt the ranges on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public SeekableEngine startEncryption(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return engine(key, iv, Objects.requireNonNull(pool));
+    }
+
+    private SeekableEngine engine(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return new AbstractCounterEncrypter(64, 0, pool) {
 
             private final int[] state = expand(key, iv), buffer = new int[16];
 
-            private long counter = 0;
+            @Override
+            protected void keystreamBlocks(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                ChaCha.keystreamBlocks(state, buffer, counter, rounds, plaintext, pOffset, ciphertext, cOffset, blocks);
+            }
 
             @Override
-            protected void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset) {
-                state[12] = (int) counter;
-                state[13] = (int) (counter >>> 32);
-                ChaCha.keystreamOneBlock(state, buffer, rounds, plaintext, pOffset, ciphertext, cOffset);
-                counter++;
+            protected void keystreamRange(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                ChaCha.keystreamBlocks(state.clone(), new int[16], counter, rounds, plaintext, pOffset, ciphertext, cOffset, blocks);
             }
 
             @Override
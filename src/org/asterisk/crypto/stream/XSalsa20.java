@@ -5,7 +5,9 @@
 package org.asterisk.crypto.stream;
 
 import java.lang.foreign.MemorySegment;
-import org.asterisk.crypto.helper.AbstractStreamEncrypter;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import org.asterisk.crypto.helper.AbstractCounterEncrypter;
 import org.asterisk.crypto.Cipher;
 import org.asterisk.crypto.StreamCipher;
 
@@ -53,16 +55,41 @@ public enum XSalsa20 implements StreamCipher {
     }
 
     @Override
-    public EncryptEngine startEncryption(byte[] key, byte[] iv) {
-        return new AbstractStreamEncrypter(64) {
+    public SeekableEngine startEncryption(byte[] key, byte[] iv) {
+        return engine(key, iv, null);
+    }
+
+    /**
+     * starts an engine that splits long messages in ranges of blocks
+     * encrypted on {@code pool}, with the same output as
+     * {@link #startEncryption(byte[], byte[])}. Messages in confined segments
+     * are encrypted on the calling thread
+     *
+     * @param pool the pool to encrypt the ranges on, for example
+     *             {@link ForkJoinPool#commonPool()}
+     */
+    public SeekableEngine startEncryption(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return engine(key, iv, Objects.requireNonNull(pool));
+    }
+
+    private SeekableEngine engine(byte[] key, byte[] iv, ForkJoinPool pool) {
+        return new AbstractCounterEncrypter(64, 0, pool) {
 
             private final int[] state = expand(key, iv), buffer = new int[16];
 
-            private long counter = 0;
+            @Override
+            protected void keystreamBlocks(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                for (long i = 0; i < blocks; i++) {
+                    keystreamOneBlock(state, buffer, counter + i, rounds, plaintext, pOffset + 64 * i, ciphertext, cOffset + 64 * i);
+                }
+            }
 
             @Override
-            protected void encryptOneBlock(MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset) {
-                keystreamOneBlock(state, buffer, counter++, rounds, plaintext, pOffset, ciphertext, cOffset);
+            protected void keystreamRange(long counter, MemorySegment plaintext, long pOffset, MemorySegment ciphertext, long cOffset, long blocks) {
+                int[] state = this.state.clone(), buffer = new int[16];
+                for (long i = 0; i < blocks; i++) {
+                    keystreamOneBlock(state, buffer, counter + i, rounds, plaintext, pOffset + 64 * i, ciphertext, cOffset + 64 * i);
+                }
             }
 
             @Override